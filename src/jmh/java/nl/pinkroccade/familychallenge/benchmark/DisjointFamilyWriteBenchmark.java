@@ -0,0 +1,96 @@
+package nl.pinkroccade.familychallenge.benchmark;
+
+import nl.pinkroccade.familychallenge.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how {@link PersonService#applyPerson} scales with writers that never touch the same family.
+ *
+ * <p>Every writer thread re-posts the children of its own share of the families, flipping their parents in and
+ * out of the match set, so the writers only meet in the match refresh. The benchmarks differ only in their
+ * number of threads; compare their total throughput. Run on a machine with at least {@value #MAX_WRITERS}
+ * cores.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DisjointFamilyWriteBenchmark {
+
+    /* Most writer threads of any benchmark; the families are split in this many shares */
+    private static final int MAX_WRITERS = 4;
+
+    @Param({"100000"})
+    private int persons;
+
+    @Param({"InMemoryPersonRepository", "ColumnarPersonRepository"})
+    private String repository;
+
+    private MatchingEngine engine;
+
+    private final AtomicInteger writers = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        engine = new MatchingEngine(repository, persons, 1);
+    }
+
+    /**
+     * The families of one writer thread.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private PersonService personService;
+        private int           firstFamily;
+        private int           familyCount;
+        private int           calls;
+
+        @Setup
+        public void setUp(DisjointFamilyWriteBenchmark benchmark) {
+            personService = benchmark.engine.personService;
+            familyCount = benchmark.engine.families / MAX_WRITERS;
+            firstFamily = (benchmark.writers.getAndIncrement() % MAX_WRITERS) * familyCount;
+        }
+
+        void write() {
+            int call = calls++;
+            boolean minor = (call / familyCount) % 2 == 1;
+            personService.applyPerson(FamilyGraph.childRequest(firstFamily + call % familyCount, minor));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void oneWriter(Writer writer) {
+        writer.write();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void twoWriters(Writer writer) {
+        writer.write();
+    }
+
+    @Benchmark
+    @Threads(MAX_WRITERS)
+    public void fourWriters(Writer writer) {
+        writer.write();
+    }
+}
@@ -0,0 +1,118 @@
+package nl.pinkroccade.familychallenge.benchmark;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.dto.PersonReferenceDTO;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import nl.pinkroccade.familychallenge.repository.ColumnarPersonRepository;
+import nl.pinkroccade.familychallenge.repository.InMemoryPersonRepository;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Synthetic family graph used by the benchmarks.
+ *
+ * <p>The graph consists of families of {@value #FAMILY_SIZE} persons: two partners and three children.
+ * Three out of four families match the pattern (one child under 18); in the fourth all children are adults.
+ * Family {@code f} uses IDs {@code f * 5 + 1} to {@code f * 5 + 5}, so every ID can be derived without lookups.</p>
+ */
+final class FamilyGraph {
+
+    static final int FAMILY_SIZE = 5;
+
+    private static final LocalDate MINOR_BIRTH_DATE = LocalDate.now().minusYears(10);
+    private static final LocalDate ADULT_BIRTH_DATE = LocalDate.now().minusYears(30);
+
+    private FamilyGraph() {
+    }
+
+    static PersonRepository newRepository(String simpleName) {
+        return switch (simpleName) {
+            case "InMemoryPersonRepository" -> new InMemoryPersonRepository();
+            case "ColumnarPersonRepository" -> new ColumnarPersonRepository();
+            default -> throw new IllegalArgumentException("Unknown repository: " + simpleName);
+        };
+    }
+
+    /**
+     * Fills the repository with {@code persons / 5} families, writing the records directly without
+     * going through the service so setup stays fast for large graphs.
+     *
+     * @return the number of families written
+     */
+    static int populate(PersonRepository repository, int persons) {
+        int families = persons / FAMILY_SIZE;
+        for (int family = 0; family < families; family++) {
+            save(repository, family);
+        }
+        return families;
+    }
+
+    static void save(PersonRepository repository, int family) {
+        long parent1 = parent1Id(family);
+        long parent2 = parent1 + 1;
+        Set<Long> children = Set.of(parent1 + 2, parent1 + 3, parent1 + 4);
+
+        repository.save(new Person(parent1, "Parent " + parent1, ADULT_BIRTH_DATE.minusYears(10),
+                null, null, parent2, children));
+        repository.save(new Person(parent2, "Parent " + parent2, ADULT_BIRTH_DATE.minusYears(10),
+                null, null, parent1, children));
+        for (Long child : children) {
+            LocalDate birthDate = family % 4 != 0 && child == parent1 + 2 ? MINOR_BIRTH_DATE : ADULT_BIRTH_DATE;
+            repository.save(new Person(child, "Child " + child, birthDate, parent1, parent2, null, Set.of()));
+        }
+    }
+
+    static long parent1Id(int family) {
+        return (long) family * FAMILY_SIZE + 1;
+    }
+
+    /**
+     * @return requests posting all members of a family, in the same state as {@link #save}
+     */
+    static List<PersonRequestDTO> familyRequests(int family) {
+        long parent1 = parent1Id(family);
+        long parent2 = parent1 + 1;
+        List<PersonReferenceDTO> children = List.of(new PersonReferenceDTO(parent1 + 2),
+                new PersonReferenceDTO(parent1 + 3), new PersonReferenceDTO(parent1 + 4));
+
+        List<PersonRequestDTO> requests = new ArrayList<>();
+        requests.add(new PersonRequestDTO(parent1, "Parent " + parent1, ADULT_BIRTH_DATE.minusYears(10),
+                null, null, new PersonReferenceDTO(parent2), children));
+        requests.add(new PersonRequestDTO(parent2, "Parent " + parent2, ADULT_BIRTH_DATE.minusYears(10),
+                null, null, new PersonReferenceDTO(parent1), children));
+        for (long child = parent1 + 2; child <= parent1 + 4; child++) {
+            LocalDate birthDate = family % 4 != 0 && child == parent1 + 2 ? MINOR_BIRTH_DATE : ADULT_BIRTH_DATE;
+            requests.add(new PersonRequestDTO(child, "Child " + child, birthDate,
+                    new PersonReferenceDTO(parent1), new PersonReferenceDTO(parent2), null, null));
+        }
+        return requests;
+    }
+
+    /**
+     * @return a request posting a child of only the first parent of a family, which neither makes nor breaks
+     *         the family's match
+     */
+    static PersonRequestDTO halfSiblingRequest(long id, int family) {
+        return new PersonRequestDTO(id, "Half-sibling " + id, MINOR_BIRTH_DATE,
+                new PersonReferenceDTO(parent1Id(family)), null, null, null);
+    }
+
+    /**
+     * @return a request re-posting the youngest child of a family, as minor or adult
+     */
+    static PersonRequestDTO childRequest(int family, boolean minor) {
+        long parent1 = parent1Id(family);
+        return new PersonRequestDTO(
+                parent1 + 2,
+                "Child " + (parent1 + 2),
+                minor ? MINOR_BIRTH_DATE : ADULT_BIRTH_DATE,
+                new PersonReferenceDTO(parent1),
+                new PersonReferenceDTO(parent1 + 1),
+                null,
+                null);
+    }
+}
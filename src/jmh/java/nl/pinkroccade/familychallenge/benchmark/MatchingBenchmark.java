@@ -0,0 +1,56 @@
+package nl.pinkroccade.familychallenge.benchmark;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.service.PatternMatchingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link PatternMatchingService}: reading the match set and the full re-scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class MatchingBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int persons;
+
+    @Param({"InMemoryPersonRepository", "ColumnarPersonRepository"})
+    private String repository;
+
+    @Param({"1", "8"})
+    private int matchingParallelism;
+
+    private PatternMatchingService patternMatchingService;
+
+    @Setup
+    public void setUp() {
+        patternMatchingService = new MatchingEngine(repository, persons, matchingParallelism).patternMatchingService;
+    }
+
+    @Benchmark
+    public List<Person> findMatches() {
+        return patternMatchingService.findMatches();
+    }
+
+    @Benchmark
+    public void rebuildMatches() {
+        patternMatchingService.rebuildMatches();
+    }
+}
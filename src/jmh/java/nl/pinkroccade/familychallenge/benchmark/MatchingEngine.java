@@ -0,0 +1,34 @@
+package nl.pinkroccade.familychallenge.benchmark;
+
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.PatternMatchingService;
+import nl.pinkroccade.familychallenge.service.PersonService;
+import nl.pinkroccade.familychallenge.util.ServiceFixture;
+
+/**
+ * The services wired by hand with the default strategies from application.properties,
+ * on top of a populated {@link FamilyGraph}.
+ */
+final class MatchingEngine {
+
+    final PersonRepository       repository;
+    final PatternMatchingService patternMatchingService;
+    final PersonService          personService;
+    final int                    families;
+
+    MatchingEngine(String repositoryName, int persons, int matchingParallelism) {
+        FamilyChallengeProperties properties = new FamilyChallengeProperties();
+        properties.setMatchingParallelism(matchingParallelism);
+
+        this.repository = FamilyGraph.newRepository(repositoryName);
+        this.families = FamilyGraph.populate(repository, persons);
+        // Service timers included, as in the running application
+        ServiceFixture services = new ServiceFixture(repository, properties);
+        this.patternMatchingService = services.patternMatchingService;
+        this.personService = services.personService;
+
+        // Start from a warm match set, as a running application would
+        patternMatchingService.rebuildMatches();
+    }
+}
@@ -0,0 +1,106 @@
+package nl.pinkroccade.familychallenge.benchmark;
+
+import nl.pinkroccade.familychallenge.dto.PersonResponseDTO;
+import nl.pinkroccade.familychallenge.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the write paths of {@link PersonService}: upserting a person and deleting a family.
+ *
+ * <p>Both include the incremental match refresh; {@code processPerson} also materializes the full
+ * match list, as the endpoint does.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class PersonServiceBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int persons;
+
+    @Param({"InMemoryPersonRepository", "ColumnarPersonRepository"})
+    private String repository;
+
+    /* Families deleted per invocation of deletePersons */
+    private static final int FAMILIES_PER_DELETE = 100;
+
+    private MatchingEngine engine;
+    private int            calls;
+
+    @Setup
+    public void setUp() {
+        engine = new MatchingEngine(repository, persons, 1);
+    }
+
+    /**
+     * Fresh families beyond the graph for {@link #deletePersons(DeletableFamilies)} to remove. Deleted IDs stay
+     * ignored, so every invocation needs new ones. Only that benchmark uses this state, so {@code processPerson}
+     * runs against a graph of constant size.
+     *
+     * <p>Per-invocation setup adds timing overhead that distorts methods running in microseconds, so each
+     * invocation deletes {@value #FAMILIES_PER_DELETE} families and takes milliseconds.</p>
+     */
+    @State(Scope.Benchmark)
+    public static class DeletableFamilies {
+
+        private MatchingEngine engine;
+        private int            lastFamily;
+        private int            firstFamily;
+
+        @Setup
+        public void setUp(PersonServiceBenchmark benchmark) {
+            engine = benchmark.engine;
+            lastFamily = engine.families;
+        }
+
+        @Setup(Level.Invocation)
+        public void addFamilies() {
+            firstFamily = lastFamily + 1;
+            for (int i = 0; i < FAMILIES_PER_DELETE; i++) {
+                FamilyGraph.save(engine.repository, ++lastFamily);
+            }
+            engine.patternMatchingService.refreshMatches();
+        }
+    }
+
+    /**
+     * Re-posts the youngest child of the next family, alternating between minor and adult so every call
+     * flips the parents in or out of the match set.
+     */
+    @Benchmark
+    public List<PersonResponseDTO> processPerson() {
+        int call = calls++;
+        boolean minor = (call / engine.families) % 2 == 1;
+        return engine.personService.processPerson(FamilyGraph.childRequest(call % engine.families, minor));
+    }
+
+    /**
+     * Deletes the families added for this invocation one by one; the score is per family.
+     */
+    @Benchmark
+    @OperationsPerInvocation(FAMILIES_PER_DELETE)
+    public void deletePersons(DeletableFamilies families) {
+        for (int family = families.firstFamily; family <= families.lastFamily; family++) {
+            long parent1 = FamilyGraph.parent1Id(family);
+            engine.personService.deletePersons(List.of(parent1, parent1 + 1, parent1 + 2, parent1 + 3, parent1 + 4));
+        }
+    }
+}
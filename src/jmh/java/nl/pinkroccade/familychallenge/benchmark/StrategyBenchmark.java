@@ -0,0 +1,113 @@
+package nl.pinkroccade.familychallenge.benchmark;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.age.AgeValidationStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.age.OptimisticAgeValidation;
+import nl.pinkroccade.familychallenge.service.strategy.age.PessimisticAgeValidation;
+import nl.pinkroccade.familychallenge.service.strategy.children.ChildCountStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.children.ExclusiveChildCountStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.children.InclusiveChildCountStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.partner.ExistenceBasedPartnerValidation;
+import nl.pinkroccade.familychallenge.service.strategy.partner.PartnerValidationStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.partner.ReferenceBasedPartnerValidation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks every strategy implementation against persons sampled from the graph.
+ *
+ * <p>Samples are loaded once so the measurement covers the strategy and the lookups it performs itself,
+ * not the lookup of the person under test.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class StrategyBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int persons;
+
+    @Param({"InMemoryPersonRepository", "ColumnarPersonRepository"})
+    private String repository;
+
+    private final ChildCountStrategy        exclusiveChildCount = new ExclusiveChildCountStrategy();
+    private final ChildCountStrategy        inclusiveChildCount = new InclusiveChildCountStrategy();
+    private final AgeValidationStrategy     pessimisticAge      = new PessimisticAgeValidation();
+    private final AgeValidationStrategy     optimisticAge       = new OptimisticAgeValidation();
+    private final PartnerValidationStrategy referenceBased      = new ReferenceBasedPartnerValidation();
+    private final PartnerValidationStrategy existenceBased      = new ExistenceBasedPartnerValidation();
+
+    private PersonRepository store;
+    private Person[]         parents;
+    private Person[]         children;
+    private int              next;
+
+    @Setup
+    public void setUp() {
+        store = FamilyGraph.newRepository(repository);
+        int families = FamilyGraph.populate(store, persons);
+
+        Random random = new Random(42);
+        parents = new Person[SAMPLES];
+        children = new Person[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long parent1 = FamilyGraph.parent1Id(random.nextInt(families));
+            parents[i] = store.findById(parent1).orElseThrow();
+            children[i] = store.findById(parent1 + 2).orElseThrow();
+        }
+    }
+
+    private int nextSample() {
+        return next++ & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public ChildCountStrategy.ValidationResult exclusiveChildCount() {
+        Person parent = parents[nextSample()];
+        return exclusiveChildCount.validateChildren(parent, parent.getPartnerId(), store);
+    }
+
+    @Benchmark
+    public ChildCountStrategy.ValidationResult inclusiveChildCount() {
+        Person parent = parents[nextSample()];
+        return inclusiveChildCount.validateChildren(parent, parent.getPartnerId(), store);
+    }
+
+    @Benchmark
+    public boolean pessimisticAge() {
+        return pessimisticAge.isUnder18(children[nextSample()]);
+    }
+
+    @Benchmark
+    public boolean optimisticAge() {
+        return optimisticAge.isUnder18(children[nextSample()]);
+    }
+
+    @Benchmark
+    public boolean referenceBasedPartner() {
+        return referenceBased.hasValidPartner(parents[nextSample()], store);
+    }
+
+    @Benchmark
+    public boolean existenceBasedPartner() {
+        return existenceBased.hasValidPartner(parents[nextSample()], store);
+    }
+}
@@ -0,0 +1,322 @@
+package nl.pinkroccade.familychallenge.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.pinkroccade.familychallenge.FamilyChallengeApplication;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Load test comparing Tomcat's platform-thread pool with virtual threads
+ * ({@code spring.threads.virtual.enabled}) under mixed POST/DELETE traffic.
+ *
+ * <p>For each thread model the application is started in this JVM on a random port and seeded with a
+ * {@link FamilyGraph}. Then, for every concurrency level, that many clients send requests back to back over
+ * HTTP for a fixed duration: mostly {@code POST /api/v1/people} re-posting a family's youngest child as
+ * minor or adult, and with {@code --delete-ratio} alternately posting and deleting a half-sibling in a
+ * family, so every request is a write touching a family. Throughput and latency percentiles are reported
+ * per thread model and concurrency level.</p>
+ *
+ * <p>With {@code --sync-commit} (the default) the write-ahead log runs in sync-commit mode, so every request
+ * blocks on the fsync of its log records, as requests waiting on I/O do in production. A platform pool
+ * then caps the requests in flight at {@code --tomcat-threads}: past that concurrency, throughput flattens
+ * and the queueing shows up in p99. Virtual threads keep every request in flight and the group commit
+ * turns them into fewer, larger fsyncs.</p>
+ *
+ * <p>Mode {@code single-writer} runs on virtual threads with {@code family-challenge.single-writer.enabled},
+ * so the POSTs of all clients are applied by one writer thread (see {@code PersonWriteQueue}). Compare it
+ * with {@code --sync-commit=false}: in sync-commit mode the writer waits for every fsync on its own.</p>
+ *
+ * <p>Run with:</p>
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=nl.pinkroccade.familychallenge.benchmark.ThreadModelLoadComparison \
+ *     -Djmh.args="--concurrency=50,200,800 --duration=20"
+ * </pre>
+ *
+ * <p>Options: {@code --persons} (graph size, default 1000), {@code --concurrency} (comma-separated client
+ * counts, default 25,100,200,400,800), {@code --duration} and {@code --warmup} (seconds per level, default
+ * 10 and 3), {@code --tomcat-threads} (platform pool size, default 200), {@code --delete-ratio} (default
+ * 0.2), {@code --sync-commit} (default true) and {@code --modes} (default platform,virtual; also single-writer).</p>
+ */
+public final class ThreadModelLoadComparison {
+
+    private static final String PEOPLE_PATH = "/api/v1/people";
+
+    /* Half-sibling IDs, far beyond any graph size; each client gets its own block */
+    private static final long HALF_SIBLING_IDS      = 1_000_000_000_000L;
+    private static final long HALF_SIBLING_ID_BLOCK = 1_000_000_000L;
+
+    private final int      persons;
+    private final int[]    concurrencyLevels;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int      tomcatThreads;
+    private final double   deleteRatio;
+    private final boolean  syncCommit;
+
+    private ThreadModelLoadComparison(Map<String, String> options) {
+        this.persons = Integer.parseInt(options.getOrDefault("persons", "1000"));
+        this.concurrencyLevels = Arrays.stream(options.getOrDefault("concurrency", "25,100,200,400,800").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "10")));
+        this.warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "3")));
+        this.tomcatThreads = Integer.parseInt(options.getOrDefault("tomcat-threads", "200"));
+        this.deleteRatio = Double.parseDouble(options.getOrDefault("delete-ratio", "0.2"));
+        this.syncCommit = Boolean.parseBoolean(options.getOrDefault("sync-commit", "true"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        // DevTools is on the test classpath and would restart the application in a new class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        ThreadModelLoadComparison comparison = new ThreadModelLoadComparison(options);
+
+        List<String> rows = new ArrayList<>();
+        for (String mode : options.getOrDefault("modes", "platform,virtual").split(",")) {
+            rows.addAll(comparison.run(mode));
+        }
+
+        System.out.printf("%nTomcat threads (platform): %d, persons: %d, sync commit: %s, %ds per level%n",
+                comparison.tomcatThreads, comparison.persons, comparison.syncCommit,
+                comparison.duration.toSeconds());
+        System.out.printf("%-13s %8s %10s %8s %8s %9s %9s %9s %7s%n",
+                "mode", "clients", "req/s", "posts", "deletes", "p50 ms", "p99 ms", "max ms", "errors");
+        rows.forEach(System.out::println);
+    }
+
+    /**
+     * Starts the application in the given thread model and runs every concurrency level against it.
+     *
+     * @return one report row per concurrency level
+     */
+    private List<String> run(String mode) throws Exception {
+        Path walDirectory = Files.createTempDirectory("load-wal");
+        // Passed as arguments, so they override application.properties
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.nl.pinkroccade.familychallenge=WARN",
+                "--spring.threads.virtual.enabled=" + !"platform".equals(mode),
+                "--family-challenge.single-writer.enabled=" + "single-writer".equals(mode),
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--server.tomcat.max-connections=" + Math.max(8192, maxConcurrency() * 2),
+                "--server.tomcat.accept-count=" + maxConcurrency()));
+        if (syncCommit) {
+            arguments.add("--family-challenge.wal.enabled=true");
+            arguments.add("--family-challenge.wal.sync-commit=true");
+            arguments.add("--family-challenge.wal.directory=" + walDirectory);
+        }
+
+        List<String> rows = new ArrayList<>();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FamilyChallengeApplication.class)
+                .run(arguments.toArray(String[]::new));
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .build()) {
+            URI people = URI.create("http://localhost:"
+                    + context.getEnvironment().getProperty("local.server.port") + PEOPLE_PATH);
+            Load load = new Load(http, people, context.getBean(ObjectMapper.class), persons / FamilyGraph.FAMILY_SIZE);
+            load.seed();
+
+            System.out.printf("%s: warming up for %ds%n", mode, warmup.toSeconds());
+            load.drive(clients, concurrencyLevels[0], warmup);
+            for (int concurrency : concurrencyLevels) {
+                System.out.printf("%s: %d clients for %ds%n", mode, concurrency, duration.toSeconds());
+                rows.add(load.drive(clients, concurrency, duration).format(mode, concurrency, duration));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(walDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+        return rows;
+    }
+
+    private int maxConcurrency() {
+        return Arrays.stream(concurrencyLevels).max().orElse(1);
+    }
+
+    /**
+     * Sends the requests against one running application.
+     */
+    private final class Load {
+
+        private final HttpClient   http;
+        private final URI          people;
+        private final ObjectMapper objectMapper;
+        private final int          families;
+
+        /* Next free half-sibling block, so later levels never reuse deleted (ignored) IDs */
+        private long nextClient;
+
+        Load(HttpClient http, URI people, ObjectMapper objectMapper, int families) {
+            this.http = http;
+            this.people = people;
+            this.objectMapper = objectMapper;
+            this.families = families;
+        }
+
+        void seed() throws IOException, InterruptedException {
+            List<PersonRequestDTO> requests = new ArrayList<>();
+            for (int family = 0; family < families; family++) {
+                requests.addAll(FamilyGraph.familyRequests(family));
+            }
+            HttpResponse<Void> response = http.send(post(people.resolve(PEOPLE_PATH + "/batch"), requests),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200 && response.statusCode() != 444) {
+                throw new IllegalStateException("Seeding failed with HTTP " + response.statusCode());
+            }
+        }
+
+        /**
+         * Runs the given number of clients for the given duration and merges their measurements.
+         */
+        Result drive(ExecutorService clients, int concurrency, Duration runFor) throws Exception {
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<Future<Result>> results = new ArrayList<>();
+            for (int client = 0; client < concurrency; client++) {
+                long firstId = HALF_SIBLING_IDS + nextClient++ * HALF_SIBLING_ID_BLOCK;
+                results.add(clients.submit(() -> client(firstId, running)));
+            }
+            TimeUnit.MILLISECONDS.sleep(runFor.toMillis());
+            running.set(false);
+
+            Result total = new Result();
+            for (Future<Result> result : results) {
+                total.add(result.get());
+            }
+            return total;
+        }
+
+        private Result client(long firstId, AtomicBoolean running) throws InterruptedException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Result result = new Result();
+            long nextId = firstId;
+            long pendingId = -1;
+            int pendingFamily = 0;
+
+            while (running.get()) {
+                HttpRequest request;
+                boolean delete = false;
+                if (random.nextDouble() < deleteRatio) {
+                    if (pendingId >= 0) {
+                        request = HttpRequest.newBuilder(people)
+                                .header("Content-Type", "application/json")
+                                .method("DELETE", HttpRequest.BodyPublishers.ofString("[" + pendingId + "]"))
+                                .build();
+                        pendingId = -1;
+                        delete = true;
+                    } else {
+                        pendingId = nextId++;
+                        pendingFamily = random.nextInt(families);
+                        request = post(people, FamilyGraph.halfSiblingRequest(pendingId, pendingFamily));
+                    }
+                } else {
+                    request = post(people, FamilyGraph.childRequest(random.nextInt(families), random.nextBoolean()));
+                }
+
+                long started = System.nanoTime();
+                try {
+                    int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    result.record(System.nanoTime() - started, delete, status != 200 && status != 444);
+                } catch (IOException e) {
+                    result.record(System.nanoTime() - started, delete, true);
+                }
+            }
+            return result;
+        }
+
+        private HttpRequest post(URI uri, Object body) {
+            try {
+                return HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                        .build();
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Latencies and counters of one or more clients.
+     */
+    private static final class Result {
+
+        private long[] latencies = new long[1024];
+        private int    count;
+        private long   deletes;
+        private long   errors;
+
+        void record(long latencyNanos, boolean delete, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (delete) {
+                deletes++;
+            }
+            if (error) {
+                errors++;
+            }
+        }
+
+        void add(Result other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            deletes += other.deletes;
+            errors += other.errors;
+        }
+
+        String format(String mode, int concurrency, Duration runFor) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return String.format("%-13s %8d %10.0f %8d %8d %9.2f %9.2f %9.2f %7d",
+                    mode, concurrency, count / (double) runFor.toSeconds(), count - deletes, deletes,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0), errors);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
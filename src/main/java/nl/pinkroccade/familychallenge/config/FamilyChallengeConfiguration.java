@@ -1,13 +1,27 @@
 package nl.pinkroccade.familychallenge.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.pinkroccade.familychallenge.metrics.TimedAgeValidationStrategy;
+import nl.pinkroccade.familychallenge.metrics.TimedChildCountStrategy;
+import nl.pinkroccade.familychallenge.metrics.TimedDataCleanupStrategy;
+import nl.pinkroccade.familychallenge.metrics.TimedPartnerValidationStrategy;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.repository.PersonWriteAheadLog;
+import nl.pinkroccade.familychallenge.repository.WriteAheadLoggedPersonRepository;
 import nl.pinkroccade.familychallenge.service.strategy.age.AgeValidationStrategy;
 import nl.pinkroccade.familychallenge.service.strategy.children.ChildCountStrategy;
 import nl.pinkroccade.familychallenge.service.strategy.cleanup.DataCleanupStrategy;
 import nl.pinkroccade.familychallenge.service.strategy.partner.PartnerValidationStrategy;
+import nl.pinkroccade.familychallenge.shard.ShardRouter;
+import nl.pinkroccade.familychallenge.shard.ShardedPersonRepository;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -16,9 +30,11 @@ import java.util.List;
  * <p>Selects active strategy implementations from application.properties.
  * All strategies are auto-discovered as {@code @Component} beans, then filtered
  * by FQCN to select the configured one. Selected strategies are marked {@code @Primary}
- * to resolve bean ambiguity during injection.</p>
+ * to resolve bean ambiguity during injection, and wrapped in a timing decorator from the
+ * {@code metrics} package, which records their latency and hit/miss counts.</p>
  */
 @Configuration
+@EnableScheduling
 public class FamilyChallengeConfiguration {
 
     private final FamilyChallengeProperties properties;
@@ -30,13 +46,14 @@ public class FamilyChallengeConfiguration {
     /**
      * Selects the configured {@link PartnerValidationStrategy} from application.properties.
      * 
-     * @param strategies all available partner validation strategies
-     * @return the selected strategy
+     * @param strategies    all available partner validation strategies
+     * @param meterRegistry registry for the strategy's timers
+     * @return the selected strategy, timed
      */
     @Bean
     @Primary
-    public PartnerValidationStrategy partnerValidationStrategy(List<PartnerValidationStrategy> strategies) {
-        return strategies.stream()
+    public PartnerValidationStrategy partnerValidationStrategy(List<PartnerValidationStrategy> strategies, MeterRegistry meterRegistry) {
+        PartnerValidationStrategy selected = strategies.stream()
                 .filter(s -> s.getClass().getName().equals(properties.getPartnerValidation()))
                 .findFirst()
                 .orElseThrow(() -> new IllegalStateException(
@@ -44,18 +61,20 @@ public class FamilyChallengeConfiguration {
                                 + properties.getPartnerValidation()
                                 + ". Available strategies: "
                                 + strategies.stream().map(s -> s.getClass().getName()).toList()));
+        return new TimedPartnerValidationStrategy(selected, meterRegistry);
     }
 
     /**
      * Selects the configured {@link ChildCountStrategy} from application.properties.
      * 
-     * @param strategies all available child count strategies
-     * @return the selected strategy
+     * @param strategies    all available child count strategies
+     * @param meterRegistry registry for the strategy's timers
+     * @return the selected strategy, timed
      */
     @Bean
     @Primary
-    public ChildCountStrategy childCountStrategy(List<ChildCountStrategy> strategies) {
-        return strategies.stream()
+    public ChildCountStrategy childCountStrategy(List<ChildCountStrategy> strategies, MeterRegistry meterRegistry) {
+        ChildCountStrategy selected = strategies.stream()
                 .filter(s -> s.getClass().getName().equals(properties.getChildCount()))
                 .findFirst()
                 .orElseThrow(() -> new IllegalStateException(
@@ -63,18 +82,20 @@ public class FamilyChallengeConfiguration {
                                 + properties.getChildCount()
                                 + ". Available strategies: "
                                 + strategies.stream().map(s -> s.getClass().getName()).toList()));
+        return new TimedChildCountStrategy(selected, meterRegistry);
     }
 
     /**
      * Selects the configured {@link AgeValidationStrategy} from application.properties.
      * 
-     * @param strategies all available age validation strategies
-     * @return the selected strategy
+     * @param strategies    all available age validation strategies
+     * @param meterRegistry registry for the strategy's timers
+     * @return the selected strategy, timed
      */
     @Bean
     @Primary
-    public AgeValidationStrategy ageValidationStrategy(List<AgeValidationStrategy> strategies) {
-        return strategies.stream()
+    public AgeValidationStrategy ageValidationStrategy(List<AgeValidationStrategy> strategies, MeterRegistry meterRegistry) {
+        AgeValidationStrategy selected = strategies.stream()
                 .filter(s -> s.getClass().getName().equals(properties.getAgeValidation()))
                 .findFirst()
                 .orElseThrow(() -> new IllegalStateException(
@@ -82,18 +103,20 @@ public class FamilyChallengeConfiguration {
                                 + properties.getAgeValidation()
                                 + ". Available strategies: "
                                 + strategies.stream().map(s -> s.getClass().getName()).toList()));
+        return new TimedAgeValidationStrategy(selected, meterRegistry);
     }
 
     /**
      * Selects the configured {@link DataCleanupStrategy} from application.properties.
      * 
-     * @param strategies all available data cleanup strategies
-     * @return the selected strategy
+     * @param strategies    all available data cleanup strategies
+     * @param meterRegistry registry for the strategy's timers
+     * @return the selected strategy, timed
      */
     @Bean
     @Primary
-    public DataCleanupStrategy dataCleanupStrategy(List<DataCleanupStrategy> strategies) {
-        return strategies.stream()
+    public DataCleanupStrategy dataCleanupStrategy(List<DataCleanupStrategy> strategies, MeterRegistry meterRegistry) {
+        DataCleanupStrategy selected = strategies.stream()
                 .filter(s -> s.getClass().getName().equals(properties.getCascadeDelete()))
                 .findFirst()
                 .orElseThrow(() -> new IllegalStateException(
@@ -101,6 +124,40 @@ public class FamilyChallengeConfiguration {
                                 + properties.getCascadeDelete()
                                 + ". Available strategies: "
                                 + strategies.stream().map(s -> s.getClass().getName()).toList()));
+        return new TimedDataCleanupStrategy(selected, meterRegistry);
     }
-}
 
+    /**
+     * Selects the configured {@link PersonRepository} from application.properties.
+     * With {@code family-challenge.wal.enabled} it is wrapped in a {@link WriteAheadLoggedPersonRepository},
+     * which restores the latest snapshot and replays the log before the application starts serving.
+     * With {@code family-challenge.shard.enabled} it only stores the persons owned by this instance and is
+     * wrapped in a {@link ShardedPersonRepository}, which looks up the others from their owners.
+     *
+     * @param repositories all available repository implementations
+     * @param shardRouter  the owners of the persons in a sharded deployment
+     * @return the selected repository
+     */
+    @Bean
+    @Primary
+    public PersonRepository personRepository(List<PersonRepository> repositories, ShardRouter shardRouter)
+            throws IOException {
+        PersonRepository selected = repositories.stream()
+                .filter(r -> r.getClass().getName().equals(properties.getRepository()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "No PersonRepository found for configured class: "
+                                + properties.getRepository()
+                                + ". Available repositories: "
+                                + repositories.stream().map(r -> r.getClass().getName()).toList()));
+
+        FamilyChallengeProperties.Wal wal = properties.getWal();
+        if (wal.isEnabled()) {
+            PersonWriteAheadLog writeAheadLog = PersonWriteAheadLog.open(Path.of(wal.getDirectory()),
+                    Duration.ofMillis(wal.getFsyncIntervalMs()), wal.getFsyncBatchBytes(), wal.isSyncCommit());
+            selected = new WriteAheadLoggedPersonRepository(selected, writeAheadLog);
+        }
+        // Outermost, so replaying the log only touches this instance
+        return shardRouter.isEnabled() ? new ShardedPersonRepository(selected, shardRouter) : selected;
+    }
+}
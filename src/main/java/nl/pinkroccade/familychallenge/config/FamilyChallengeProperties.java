@@ -1,5 +1,7 @@
 package nl.pinkroccade.familychallenge.config;
 
+import nl.pinkroccade.familychallenge.repository.InMemoryPersonRepository;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
 import nl.pinkroccade.familychallenge.service.strategy.age.AgeValidationStrategy;
 import nl.pinkroccade.familychallenge.service.strategy.children.ChildCountStrategy;
 import nl.pinkroccade.familychallenge.service.strategy.cleanup.DataCleanupStrategy;
@@ -7,6 +9,9 @@ import nl.pinkroccade.familychallenge.service.strategy.partner.PartnerValidation
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration properties for the Family Challenge application.
  *
@@ -24,6 +29,16 @@ public class FamilyChallengeProperties {
     private String childCount;
     private String ageValidation;
     private String cascadeDelete;
+    private String repository = InMemoryPersonRepository.class.getName();
+    private int    matchingParallelism = 1;
+    private int    importChunkSize = 1000;
+    private int    lockStripes = 1024;
+    private int    matchDeltaHistory = 100_000;
+    private int    matchCacheMaxBytes = 16 * 1024 * 1024;
+    private final Wal wal = new Wal();
+    private final SingleWriter singleWriter = new SingleWriter();
+    private final Shard shard = new Shard();
+    private final MatchFeed matchFeed = new MatchFeed();
 
     /**
      * @return FQCN of {@link PartnerValidationStrategy} to use
@@ -68,5 +83,343 @@ public class FamilyChallengeProperties {
     public void setCascadeDelete(String cascadeDelete) {
         this.cascadeDelete = cascadeDelete;
     }
-}
 
+    /**
+     * @return FQCN of {@link PersonRepository} to use, defaults to {@link InMemoryPersonRepository}
+     */
+    public String getRepository() {
+        return repository;
+    }
+
+    public void setRepository(String repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return number of threads used for full match re-scans; 1 scans sequentially
+     */
+    public int getMatchingParallelism() {
+        return matchingParallelism;
+    }
+
+    public void setMatchingParallelism(int matchingParallelism) {
+        this.matchingParallelism = matchingParallelism;
+    }
+
+    /**
+     * @return number of records applied per chunk by the streaming import
+     */
+    public int getImportChunkSize() {
+        return importChunkSize;
+    }
+
+    public void setImportChunkSize(int importChunkSize) {
+        this.importChunkSize = importChunkSize;
+    }
+
+    /**
+     * @return number of locks guarding concurrent updates of related persons
+     */
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    public void setLockStripes(int lockStripes) {
+        this.lockStripes = lockStripes;
+    }
+
+    /**
+     * @return number of most recent match set changes kept to answer delta requests
+     */
+    public int getMatchDeltaHistory() {
+        return matchDeltaHistory;
+    }
+
+    public void setMatchDeltaHistory(int matchDeltaHistory) {
+        this.matchDeltaHistory = matchDeltaHistory;
+    }
+
+    /**
+     * @return largest serialized match response kept for requests that do not change the matches; 0 disables
+     *         the cache
+     */
+    public int getMatchCacheMaxBytes() {
+        return matchCacheMaxBytes;
+    }
+
+    public void setMatchCacheMaxBytes(int matchCacheMaxBytes) {
+        this.matchCacheMaxBytes = matchCacheMaxBytes;
+    }
+
+    /**
+     * @return settings of the optional write-ahead log ({@code family-challenge.wal.*})
+     */
+    public Wal getWal() {
+        return wal;
+    }
+
+    /**
+     * @return settings of the optional single writer thread ({@code family-challenge.single-writer.*})
+     */
+    public SingleWriter getSingleWriter() {
+        return singleWriter;
+    }
+
+    /**
+     * @return settings of the optional sharded deployment ({@code family-challenge.shard.*})
+     */
+    public Shard getShard() {
+        return shard;
+    }
+
+    /**
+     * @return settings of the optional match change feed ({@code family-challenge.match-feed.*})
+     */
+    public MatchFeed getMatchFeed() {
+        return matchFeed;
+    }
+
+    /**
+     * Settings of the write-ahead log that makes the repository survive restarts.
+     */
+    public static class Wal {
+
+        private boolean enabled;
+        private String  directory = "data/wal";
+        private long    fsyncIntervalMs = 10;
+        private int     fsyncBatchBytes = 1 << 20;
+        private boolean syncCommit;
+        private long    snapshotIntervalMs = 600_000;
+
+        /**
+         * @return whether mutations are logged and replayed on startup
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return directory holding the log segments and the snapshot
+         */
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * @return milliseconds records are collected before one write and fsync (group commit)
+         */
+        public long getFsyncIntervalMs() {
+            return fsyncIntervalMs;
+        }
+
+        public void setFsyncIntervalMs(long fsyncIntervalMs) {
+            this.fsyncIntervalMs = fsyncIntervalMs;
+        }
+
+        /**
+         * @return pending bytes that trigger a write and fsync before the interval has passed
+         */
+        public int getFsyncBatchBytes() {
+            return fsyncBatchBytes;
+        }
+
+        public void setFsyncBatchBytes(int fsyncBatchBytes) {
+            this.fsyncBatchBytes = fsyncBatchBytes;
+        }
+
+        /**
+         * @return whether a write waits until its record is synced, instead of returning once it is buffered
+         */
+        public boolean isSyncCommit() {
+            return syncCommit;
+        }
+
+        public void setSyncCommit(boolean syncCommit) {
+            this.syncCommit = syncCommit;
+        }
+
+        /**
+         * @return milliseconds between snapshots, after which only the newer log segments are replayed
+         */
+        public long getSnapshotIntervalMs() {
+            return snapshotIntervalMs;
+        }
+
+        public void setSnapshotIntervalMs(long snapshotIntervalMs) {
+            this.snapshotIntervalMs = snapshotIntervalMs;
+        }
+    }
+
+    /**
+     * Settings of the writer thread applying single person records from a bounded queue.
+     */
+    public static class SingleWriter {
+
+        private boolean enabled;
+        private int     queueCapacity = 1024;
+        private int     maxBatch = 256;
+
+        /**
+         * @return whether single person records are applied by one writer thread instead of the request threads
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return records that can wait for the writer before request threads have to wait for space
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /**
+         * @return records applied before the match set is refreshed and their requests are released
+         */
+        public int getMaxBatch() {
+            return maxBatch;
+        }
+
+        public void setMaxBatch(int maxBatch) {
+            this.maxBatch = maxBatch;
+        }
+    }
+
+    /**
+     * Settings of the deployment partitioning persons over several instances by person ID.
+     */
+    public static class Shard {
+
+        private boolean      enabled;
+        private List<String> nodes = new ArrayList<>();
+        private String       self;
+        private int          virtualNodes = 128;
+        private long         timeoutMs = 2000;
+
+        /**
+         * @return whether persons are partitioned over {@link #getNodes()} instead of all stored here
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return base URLs of all instances, including this one; the same list on every instance
+         */
+        public List<String> getNodes() {
+            return nodes;
+        }
+
+        public void setNodes(List<String> nodes) {
+            this.nodes = nodes;
+        }
+
+        /**
+         * @return base URL of this instance, one of {@link #getNodes()}
+         */
+        public String getSelf() {
+            return self;
+        }
+
+        public void setSelf(String self) {
+            this.self = self;
+        }
+
+        /**
+         * @return points per instance on the hash ring; more points spread the persons more evenly
+         */
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        /**
+         * @return milliseconds to wait for another instance to connect and to answer
+         */
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    /**
+     * Settings of the feed pushing match set changes to subscribers as Server-Sent Events.
+     */
+    public static class MatchFeed {
+
+        private boolean enabled;
+        private int     bufferSize = 256;
+        private int     maxSubscribers = 100;
+        private long    heartbeatIntervalMs = 15_000;
+
+        /**
+         * @return whether clients can subscribe to the changes of the match set
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return changes buffered per subscriber; a subscriber falling further behind is dropped
+         */
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        /**
+         * @return subscribers served at the same time; further subscriptions are refused
+         */
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        /**
+         * @return milliseconds without changes after which a subscriber is sent a heartbeat
+         */
+        public long getHeartbeatIntervalMs() {
+            return heartbeatIntervalMs;
+        }
+
+        public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+            this.heartbeatIntervalMs = heartbeatIntervalMs;
+        }
+    }
+}
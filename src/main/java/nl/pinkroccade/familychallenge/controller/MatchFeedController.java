@@ -0,0 +1,103 @@
+package nl.pinkroccade.familychallenge.controller;
+
+import nl.pinkroccade.familychallenge.dto.MatchChangeDTO;
+import nl.pinkroccade.familychallenge.service.MatchChange;
+import nl.pinkroccade.familychallenge.service.MatchFeed;
+import nl.pinkroccade.familychallenge.service.PatternMatchingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Pushes the changes of the matches to clients as Server-Sent Events, so they need not poll.
+ *
+ * <p>Only registered with {@code family-challenge.match-feed.enabled}. Events, all but the last one with a
+ * {@link MatchChangeDTO} as data:</p>
+ * <ul>
+ *   <li><b>subscribed</b>: First event, with the version the following changes build on.</li>
+ *   <li><b>matches</b>: Persons added to or removed from the matches.</li>
+ *   <li><b>reset</b>: The matches were rebuilt; reload them with {@code GET /api/v1/people/matches}.</li>
+ *   <li><b>dropped</b>: Last event for a client that fell too far behind; reload and subscribe again.</li>
+ * </ul>
+ *
+ * <p>A client holding the matches at some {@code Match-Version} applies the changes of a later version of the
+ * same epoch and skips the others. In a sharded deployment every instance only reports its own matches.</p>
+ */
+@RestController
+@RequestMapping("/api/v1/people")
+@ConditionalOnProperty(prefix = "family-challenge.match-feed", name = "enabled", havingValue = "true")
+public class MatchFeedController {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchFeedController.class);
+
+    private final PatternMatchingService patternMatchingService;
+
+    public MatchFeedController(PatternMatchingService patternMatchingService) {
+        this.patternMatchingService = patternMatchingService;
+    }
+
+    /**
+     * Subscribes to the changes of the matches.
+     *
+     * @return HTTP 200 with the event stream, or 503 if the feed has no room for another subscriber
+     */
+    @GetMapping(path = "/matches/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe() {
+        // No timeout: the feed's heartbeats detect clients that went away
+        SseEmitter emitter = new SseEmitter(0L);
+        Optional<MatchFeed.Subscription> subscription = patternMatchingService.subscribe(new EmitterSink(emitter));
+        if (subscription.isEmpty()) {
+            log.debug("Match feed is full - returning HTTP 503");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        log.info("GET /api/v1/people/matches/feed - subscribed");
+        emitter.onCompletion(subscription.get()::cancel);
+        emitter.onTimeout(subscription.get()::cancel);
+        emitter.onError(e -> subscription.get().cancel());
+        return ResponseEntity.ok(emitter);
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements MatchFeed.Sink {
+
+        @Override
+        public void send(MatchChange change) throws IOException {
+            String name = switch (change.kind()) {
+                case SUBSCRIBED -> "subscribed";
+                case CHANGED -> "matches";
+                case RESET -> "reset";
+            };
+            emitter.send(SseEmitter.event()
+                    .name(name)
+                    .data(new MatchChangeDTO(change.version().toString(), change.addedIds(), change.removedIds()),
+                            MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close(boolean dropped) {
+            if (dropped) {
+                try {
+                    emitter.send(SseEmitter.event().name("dropped").data("{}", MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    // The client is gone already
+                }
+            }
+            emitter.complete();
+        }
+    }
+}
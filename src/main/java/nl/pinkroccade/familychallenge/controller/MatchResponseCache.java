@@ -0,0 +1,111 @@
+package nl.pinkroccade.familychallenge.controller;
+
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.service.MatchSetState;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keeps the serialized complete match response for the {@link MatchSetState} it was built for.
+ *
+ * <p>Requests that do not change the matches, like a person on the ignore list or an unchanged upsert, find
+ * the state unchanged and get the stored bytes instead of looking up and serializing every match again. Any
+ * save, delete or match flip changes the state, so a stale response is never served.</p>
+ *
+ * <p>A response is recorded while it is streamed to the client, up to {@code family-challenge.match-cache-max-bytes};
+ * larger responses are not cached, so streaming them still takes constant memory. Only the latest response is
+ * kept.</p>
+ */
+@Component
+class MatchResponseCache {
+
+    /* Stands for "no matches", which is answered without a body */
+    private static final byte[] NO_MATCHES = new byte[0];
+
+    private final int maxBytes;
+
+    private volatile Entry entry;
+
+    MatchResponseCache(FamilyChallengeProperties properties) {
+        this.maxBytes = properties.getMatchCacheMaxBytes();
+    }
+
+    /**
+     * @return the response built for the given state, empty if there were no matches, or {@code null} if
+     *         there is none for this state
+     */
+    byte[] get(MatchSetState state) {
+        Entry current = entry;
+        return current != null && current.state().equals(state) ? current.body() : null;
+    }
+
+    /**
+     * Records that there are no matches in the given state.
+     */
+    void putNoMatches(MatchSetState state) {
+        entry = new Entry(state, NO_MATCHES);
+    }
+
+    /**
+     * Wraps the response stream to record what is written to it, up to the maximum size.
+     */
+    Recorder record(OutputStream target) {
+        return new Recorder(target, maxBytes);
+    }
+
+    /**
+     * Stores the recorded response if it was complete and within the maximum size.
+     *
+     * @param state the state the response was built for; only to be stored if it still holds afterwards
+     */
+    void put(MatchSetState state, Recorder recorder) {
+        if (recorder.copy != null && recorder.copy.size() > 0) {
+            entry = new Entry(state, recorder.copy.toByteArray());
+        }
+    }
+
+    private record Entry(MatchSetState state, byte[] body) {
+    }
+
+    /**
+     * Passes everything through to the response and keeps a copy until it grows beyond the maximum size.
+     */
+    static final class Recorder extends FilterOutputStream {
+
+        private ByteArrayOutputStream copy;
+        private final int             maxBytes;
+
+        private Recorder(OutputStream target, int maxBytes) {
+            super(target);
+            this.maxBytes = maxBytes;
+            this.copy = maxBytes > 0 ? new ByteArrayOutputStream() : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (keep(1)) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (keep(len)) {
+                copy.write(b, off, len);
+            }
+        }
+
+        private boolean keep(int len) {
+            if (copy != null && copy.size() + len > maxBytes) {
+                copy = null; // Too large to cache
+            }
+            return copy != null;
+        }
+    }
+}
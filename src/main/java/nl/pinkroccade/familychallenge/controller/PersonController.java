@@ -1,26 +1,70 @@
 package nl.pinkroccade.familychallenge.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import nl.pinkroccade.familychallenge.dto.ImportStatusDTO;
+import nl.pinkroccade.familychallenge.dto.MatchDeltaDTO;
 import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
 import nl.pinkroccade.familychallenge.dto.PersonResponseDTO;
+import nl.pinkroccade.familychallenge.service.MatchSetState;
+import nl.pinkroccade.familychallenge.service.MatchVersion;
+import nl.pinkroccade.familychallenge.service.PersonImportService;
 import nl.pinkroccade.familychallenge.service.PersonService;
+import nl.pinkroccade.familychallenge.service.PersonWriteQueue;
 import nl.pinkroccade.familychallenge.service.strategy.cleanup.DataCleanupStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.stream.Stream;
 
 /**
  * REST controller for person-related operations.
  *
  * <p>Endpoints:</p>
  * <ul>
- *   <li><b>POST /api/v1/people</b>: Add or update a person and return matching persons.</li>
+ *   <li><b>POST /api/v1/people</b>: Add or update a person and return matching persons. Applied by the single
+ *       writer thread if enabled (see {@link PersonWriteQueue}).</li>
+ *   <li><b>POST /api/v1/people/batch</b>: Add or update many persons (JSON array or NDJSON) and return
+ *       matching persons once for the whole batch.</li>
+ *   <li><b>POST /api/v1/people/import</b>: Stream a large NDJSON upload in bounded chunks and return import counters.</li>
+ *   <li><b>GET /api/v1/people/import</b>: Progress of running and recently finished imports.</li>
+ *   <li><b>GET /api/v1/people/matches</b>: Page through the current matching persons.</li>
  *   <li><b>DELETE /api/v1/people</b>: Delete persons and add them to the ignore list.</li>
  * </ul>
+ *
+ * <p>Matches are written to the response one at a time with a {@link JsonGenerator} as they are read from
+ * the match set, so a response costs constant memory regardless of the number of matches. The status is
+ * decided by the first match, before anything is written. With {@code limit}, at most that many matches are
+ * returned; if there are more, a {@code Link} header with {@code rel="next"} points to the next page.</p>
+ *
+ * <p>Every match response carries the version of the match set in a {@code Match-Version} header. A client
+ * sending the version it last saw in the same header receives only the changes since then, as a JSON object
+ * with {@code Match-Delta: true}. If the version is unknown or too old, the complete matches are returned as
+ * usual and the client replaces its copy. Deltas are not paged, so {@code limit} does not apply to them.</p>
+ *
+ * <p>The complete matches are served from a {@link MatchResponseCache} as long as nothing changed since they
+ * were last written.</p>
+ *
+ * <p>In a sharded deployment any instance accepts every request, and the matches are collected from all
+ * instances. Their match sets have no common version, so responses carry no {@code Match-Version}, deltas are
+ * not available and nothing is cached.</p>
  */
 @RestController
 @RequestMapping("/api/v1/people")
@@ -31,10 +75,31 @@ public class PersonController {
     /* Unofficial client error specific to nginx */
     private static final int HTTP_444_NO_RESPONSE = 444;
 
-    private final PersonService personService;
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final String MATCH_VERSION_HEADER = "Match-Version";
+    private static final String MATCH_DELTA_HEADER   = "Match-Delta";
+
+    /* Largest page a client can request; a page is buffered to find out whether another one follows */
+    private static final int MAX_PAGE_SIZE = 10_000;
 
-    public PersonController(PersonService personService) {
+    private final PersonService       personService;
+    private final PersonImportService personImportService;
+    private final PersonWriteQueue    personWriteQueue;
+    private final ObjectMapper        objectMapper;
+    private final MatchResponseCache  matchCache;
+
+    public PersonController(
+            PersonService personService,
+            PersonImportService personImportService,
+            PersonWriteQueue personWriteQueue,
+            ObjectMapper objectMapper,
+            MatchResponseCache matchCache) {
         this.personService = personService;
+        this.personImportService = personImportService;
+        this.personWriteQueue = personWriteQueue;
+        this.objectMapper = objectMapper;
+        this.matchCache = matchCache;
     }
 
     /**
@@ -43,30 +108,156 @@ public class PersonController {
      * Returns:
      * <ul>
      *   <li>HTTP 200 with matching persons if at least one person matches the pattern</li>
+     *   <li>HTTP 200 with the changes of the matches, if requested with a known {@code Match-Version}</li>
      *   <li>HTTP 444 if no one matches</li>
      * </ul>
      * </p>
      *
      * @param request  the person data
-     * @param response the HTTP response (used for setting custom status 444)
-     * @return the list of matching persons, or {@code null} if no matches are found
+     * @param limit    the maximum number of matches to return, or {@code null} for all of them
+     * @param since    the match version the client last saw, or {@code null} for the complete matches
+     * @param response the HTTP response, written directly
      */
     @PostMapping
-    public ResponseEntity<List<PersonResponseDTO>> addPerson(
+    public void addPerson(
             @Valid @RequestBody PersonRequestDTO request,
-            HttpServletResponse response) {
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestHeader(name = MATCH_VERSION_HEADER, required = false) String since,
+            HttpServletResponse response) throws IOException {
         log.info("POST /api/v1/people - ID: {}", request.id());
+        checkLimit(limit);
+        MatchVersion sinceVersion = parseMatchVersion(since);
 
-        List<PersonResponseDTO> matches = personService.processPerson(request);
+        personWriteQueue.apply(request);
+        writeMatchesOrDelta(sinceVersion, limit, response);
+    }
 
-        if (matches.isEmpty()) {
-            log.debug("No matches found - returning HTTP 444");
-            response.setStatus(HTTP_444_NO_RESPONSE);
-            return null;
+    /**
+     * Processes a batch of person records given as a JSON array.
+     * Matches are evaluated once after the whole batch has been applied.
+     *
+     * @param requests the person records
+     * @param limit    the maximum number of matches to return, or {@code null} for all of them
+     * @param since    the match version the client last saw, or {@code null} for the complete matches
+     * @param response the HTTP response, written directly
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void addPersons(
+            @RequestBody List<PersonRequestDTO> requests,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestHeader(name = MATCH_VERSION_HEADER, required = false) String since,
+            HttpServletResponse response) throws IOException {
+        log.info("POST /api/v1/people/batch - {} record(s)", requests.size());
+        checkLimit(limit);
+        MatchVersion sinceVersion = parseMatchVersion(since);
+        personService.applyPersons(requests);
+        writeMatchesOrDelta(sinceVersion, limit, response);
+    }
+
+    /**
+     * Processes a batch of person records given as newline-delimited JSON.
+     * <p>
+     * Records are parsed and applied one at a time while the body is read, so the batch size is not
+     * limited by memory. A malformed record results in HTTP 400; the records before it stay applied.
+     * </p>
+     *
+     * @param body     the request body, one JSON person per line
+     * @param limit    the maximum number of matches to return, or {@code null} for all of them
+     * @param since    the match version the client last saw, or {@code null} for the complete matches
+     * @param response the HTTP response, written directly
+     */
+    @PostMapping(path = "/batch", consumes = APPLICATION_NDJSON_VALUE)
+    public void addPersonsStream(
+            InputStream body,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestHeader(name = MATCH_VERSION_HEADER, required = false) String since,
+            HttpServletResponse response) throws IOException {
+        log.info("POST /api/v1/people/batch - NDJSON stream");
+        checkLimit(limit);
+        MatchVersion sinceVersion = parseMatchVersion(since);
+        try (MappingIterator<PersonRequestDTO> records = objectMapper.readerFor(PersonRequestDTO.class).readValues(body)) {
+            personService.applyPersons(() -> iterate(records));
         }
+        writeMatchesOrDelta(sinceVersion, limit, response);
+    }
 
-        log.debug("Found {} matches - returning HTTP 200", matches.size());
-        return ResponseEntity.ok(matches);
+    /**
+     * Returns a page of the current matches, ordered by ID.
+     * <p>
+     * Start without {@code after} and follow the {@code Link} header with {@code rel="next"}, which is
+     * present as long as more matches follow. The cursor is the last ID of the previous page, so pages stay
+     * consistent while matches are added or removed in between.
+     * </p>
+     *
+     * @param after    the last ID of the previous page, or {@code null} for the first page
+     * @param limit    the maximum number of matches to return, or {@code null} for all of them
+     * @param since    the match version the client last saw, or {@code null} for the complete matches;
+     *                 ignored when continuing after a page
+     * @param response the HTTP response, written directly: HTTP 200 with the matches or their changes, or 444
+     *                 if there are no matches
+     */
+    @GetMapping("/matches")
+    public void getMatches(
+            @RequestParam(name = "after", required = false) Long after,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestHeader(name = MATCH_VERSION_HEADER, required = false) String since,
+            HttpServletResponse response) throws IOException {
+        checkLimit(limit);
+        if (after != null) {
+            writeMatches(after, limit, response);
+        } else {
+            writeMatchesOrDelta(parseMatchVersion(since), limit, response);
+        }
+    }
+
+    /**
+     * Imports a newline-delimited JSON upload of arbitrary size.
+     * <p>
+     * Unlike {@code /batch}, the upload is applied in bounded chunks and the matches are not returned,
+     * as they may be as large as the upload itself. A malformed record results in HTTP 400;
+     * the chunks before it stay applied.
+     * </p>
+     *
+     * @param body the request body, one JSON person per line
+     * @return HTTP 200 with the final import counters
+     */
+    @PostMapping(path = "/import", consumes = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportStatusDTO> importPersons(InputStream body) throws IOException {
+        log.info("POST /api/v1/people/import - NDJSON stream");
+        return ResponseEntity.ok(personImportService.importNdjson(body));
+    }
+
+    /**
+     * Returns the progress counters of running and recently finished imports.
+     *
+     * @return HTTP 200 with the imports, oldest first
+     */
+    @GetMapping("/import")
+    public ResponseEntity<List<ImportStatusDTO>> getImports() {
+        return ResponseEntity.ok(personImportService.getImports());
+    }
+
+    /**
+     * Returns the family of a person: everyone connected to it through parent, partner and child links,
+     * including relatives that are referenced but not posted yet.
+     *
+     * @param id the person ID
+     * @return HTTP 200 with the IDs in the family, ascending, or 404 if the ID is unknown
+     */
+    @GetMapping("/{id}/family")
+    public ResponseEntity<List<Long>> getFamily(@PathVariable(name = "id") Long id) {
+        List<Long> familyIds = personService.findFamilyIds(id);
+        return familyIds.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(familyIds);
+    }
+
+    /**
+     * Returns how many families there are of each size.
+     *
+     * @return HTTP 200 with the number of families per family size, by ascending size
+     */
+    @GetMapping("/families")
+    public ResponseEntity<SortedMap<Integer, Integer>> getFamilySizes() {
+        return ResponseEntity.ok(personService.familySizeHistogram());
     }
 
     /**
@@ -87,4 +278,166 @@ public class PersonController {
         log.debug("Successfully deleted {} person(s)", ids.size());
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Writes the changes since the client's match version if they are still known, otherwise all matches.
+     */
+    private void writeMatchesOrDelta(MatchVersion since, Integer limit, HttpServletResponse response)
+            throws IOException {
+        if (since != null && !personService.isSharded()) {
+            Optional<MatchDeltaDTO> delta = personService.findMatchDelta(since);
+            if (delta.isPresent()) {
+                log.debug("Returning {} added and {} removed match(es) since {}",
+                        delta.get().added().size(), delta.get().removed().size(), since);
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setHeader(MATCH_VERSION_HEADER, delta.get().version());
+                response.setHeader(MATCH_DELTA_HEADER, "true");
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                objectMapper.writeValue(response.getOutputStream(), delta.get());
+                return;
+            }
+            log.debug("Match version {} is no longer known - returning all matches", since);
+        }
+        writeMatches(null, limit, response);
+    }
+
+    /**
+     * Writes the matches after the given ID as a JSON array, or sets HTTP 444 if there are none.
+     */
+    private void writeMatches(Long after, Integer limit, HttpServletResponse response) throws IOException {
+        // Read before streaming, so the matches reflect at least this state
+        MatchSetState state = personService.isSharded() ? null : personService.matchState();
+        if (state != null) {
+            response.setHeader(MATCH_VERSION_HEADER, state.matchVersion().toString());
+        }
+
+        // Only complete responses are cached
+        boolean complete = state != null && after == null && limit == null;
+        if (complete && writeCachedMatches(state, response)) {
+            return;
+        }
+
+        try (Stream<PersonResponseDTO> matches = personService.streamMatches(after, limit)) {
+            Iterator<PersonResponseDTO> iterator = matches.iterator();
+            if (!iterator.hasNext()) {
+                if (complete && personService.matchState().equals(state)) {
+                    matchCache.putNoMatches(state);
+                }
+                log.debug("No matches found - returning HTTP 444");
+                response.setStatus(HTTP_444_NO_RESPONSE);
+                return;
+            }
+
+            if (limit != null) {
+                List<PersonResponseDTO> page = new ArrayList<>(limit);
+                while (page.size() < limit && iterator.hasNext()) {
+                    page.add(iterator.next());
+                }
+                if (iterator.hasNext()) {
+                    response.setHeader(HttpHeaders.LINK, "<" + ServletUriComponentsBuilder.fromCurrentContextPath()
+                            .path("/api/v1/people/matches")
+                            .queryParam("after", page.getLast().id())
+                            .queryParam("limit", limit)
+                            .toUriString() + ">; rel=\"next\"");
+                }
+                iterator = page.iterator();
+            }
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            int written = 0;
+            MatchResponseCache.Recorder recorder = complete ? matchCache.record(response.getOutputStream()) : null;
+            try (JsonGenerator generator = objectMapper.createGenerator(
+                    recorder != null ? recorder : response.getOutputStream())) {
+                generator.writeStartArray();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                    written++;
+                }
+                generator.writeEndArray();
+            }
+            // The stream is weakly consistent, so the response is only kept if nothing changed meanwhile
+            if (recorder != null && personService.matchState().equals(state)) {
+                matchCache.put(state, recorder);
+            }
+            log.debug("Wrote {} match(es) - returning HTTP 200", written);
+        }
+    }
+
+    /**
+     * Parses the client's {@code Match-Version}, before the request changes anything.
+     *
+     * @return the version, or {@code null} if the client sent none
+     * @throws IllegalArgumentException if the header is not a match version
+     */
+    private static MatchVersion parseMatchVersion(String since) {
+        return since != null ? MatchVersion.parse(since) : null;
+    }
+
+    /**
+     * Rejects a page size out of range, before the request changes anything.
+     *
+     * @throws IllegalArgumentException if {@code limit} is not between 1 and {@value #MAX_PAGE_SIZE}
+     */
+    private static void checkLimit(Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Writes the cached complete response for the given state, if there is one.
+     *
+     * @return true if the response was written
+     */
+    private boolean writeCachedMatches(MatchSetState state, HttpServletResponse response) throws IOException {
+        byte[] cached = matchCache.get(state);
+        if (cached == null) {
+            return false;
+        }
+        if (cached.length == 0) {
+            log.debug("No matches found (cached) - returning HTTP 444");
+            response.setStatus(HTTP_444_NO_RESPONSE);
+            return true;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(cached.length);
+        response.getOutputStream().write(cached);
+        log.debug("Wrote {} cached byte(s) of matches - returning HTTP 200", cached.length);
+        return true;
+    }
+
+    /**
+     * Adapts the NDJSON records to an iterator, reporting malformed records as {@link IllegalArgumentException}.
+     */
+    private static Iterator<PersonRequestDTO> iterate(MappingIterator<PersonRequestDTO> records) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return records.hasNextValue();
+                } catch (JsonProcessingException e) {
+                    throw malformed(e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public PersonRequestDTO next() {
+                try {
+                    return records.nextValue();
+                } catch (JsonProcessingException e) {
+                    throw malformed(e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private IllegalArgumentException malformed(JsonProcessingException e) {
+                return new IllegalArgumentException("Malformed NDJSON record: " + e.getOriginalMessage());
+            }
+        };
+    }
 }
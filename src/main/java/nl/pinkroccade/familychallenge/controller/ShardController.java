@@ -0,0 +1,122 @@
+package nl.pinkroccade.familychallenge.controller;
+
+import jakarta.validation.Valid;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import nl.pinkroccade.familychallenge.dto.PersonResponseDTO;
+import nl.pinkroccade.familychallenge.dto.ShardLinkDTO;
+import nl.pinkroccade.familychallenge.service.PersonService;
+import nl.pinkroccade.familychallenge.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Internal API the instances of a sharded deployment call on each other (see {@link ShardRouter}).
+ *
+ * <p>Only registered with {@code family-challenge.shard.enabled}. These endpoints trust their caller and must
+ * not be reachable by clients.</p>
+ *
+ * <p>Endpoints:</p>
+ * <ul>
+ *   <li><b>POST /internal/v1/shard/people</b>: Save and repair a person owned by this instance.</li>
+ *   <li><b>GET /internal/v1/shard/people/{id}</b>: Read a person owned by this instance.</li>
+ *   <li><b>POST /internal/v1/shard/people/lookup</b>: Read several persons owned by this instance.</li>
+ *   <li><b>POST /internal/v1/shard/links</b>: Add a relationship to a person owned by this instance.</li>
+ *   <li><b>POST /internal/v1/shard/changes</b>: Re-evaluate the persons referencing persons changed elsewhere.</li>
+ *   <li><b>POST /internal/v1/shard/deletions</b>: Delete persons here, without notifying the other instances.</li>
+ *   <li><b>GET /internal/v1/shard/matches</b>: The matches stored on this instance.</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/internal/v1/shard")
+@ConditionalOnProperty(prefix = "family-challenge.shard", name = "enabled", havingValue = "true")
+public class ShardController {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardController.class);
+
+    private final PersonService personService;
+
+    public ShardController(PersonService personService) {
+        this.personService = personService;
+    }
+
+    /**
+     * Saves a person record forwarded by the instance it was posted to, without refreshing the matches.
+     *
+     * @param request the person data
+     * @return HTTP 200 with true if the record was stored, false if it was ignored
+     */
+    @PostMapping("/people")
+    public ResponseEntity<Boolean> ingestPerson(@Valid @RequestBody PersonRequestDTO request) {
+        log.debug("Ingesting forwarded person ID {}", request.id());
+        return ResponseEntity.ok(personService.ingestPerson(request));
+    }
+
+    /**
+     * @param id the person ID
+     * @return HTTP 200 with the person, or 404 if it is not stored here
+     */
+    @GetMapping("/people/{id}")
+    public ResponseEntity<PersonResponseDTO> getPerson(@PathVariable(name = "id") Long id) {
+        return ResponseEntity.of(personService.findOwnedPerson(id));
+    }
+
+    /**
+     * @param ids the person IDs
+     * @return HTTP 200 with the persons among them stored here; possibly empty
+     */
+    @PostMapping("/people/lookup")
+    public ResponseEntity<List<PersonResponseDTO>> getPersons(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(personService.findOwnedPersons(ids));
+    }
+
+    /**
+     * @param link the relationship to add
+     * @return HTTP 200 once the relationship is stored
+     */
+    @PostMapping("/links")
+    public ResponseEntity<Void> addLink(@RequestBody ShardLinkDTO link) {
+        personService.applyLink(link);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * @param ids the IDs of persons changed on the calling instance
+     * @return HTTP 200 once the change is recorded; the persons referencing them are re-evaluated lazily
+     */
+    @PostMapping("/changes")
+    public ResponseEntity<Void> relativesChanged(@RequestBody List<Long> ids) {
+        personService.relativesChanged(ids);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * @param ids the IDs of the persons to delete
+     * @return HTTP 200 once the persons are deleted and ignored here
+     */
+    @PostMapping("/deletions")
+    public ResponseEntity<Void> deletePersons(@RequestBody List<Long> ids) {
+        log.debug("Deleting IDs {} on behalf of another instance", ids);
+        personService.deletePersonsLocally(ids);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * @param after the ID to continue after, or {@code null} to start at the first match
+     * @param limit the maximum number of matches to return, or {@code null} for all of them
+     * @return HTTP 200 with the matches stored on this instance, ordered by ID; possibly empty
+     */
+    @GetMapping("/matches")
+    public ResponseEntity<List<PersonResponseDTO>> getMatches(
+            @RequestParam(name = "after", required = false) Long after,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        try (Stream<PersonResponseDTO> matches = personService.streamMatches(after)) {
+            return ResponseEntity.ok((limit != null ? matches.limit(limit) : matches).toList());
+        }
+    }
+}
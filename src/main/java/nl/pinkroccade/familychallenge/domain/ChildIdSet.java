@@ -0,0 +1,211 @@
+package nl.pinkroccade.familychallenge.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * Compact set of child IDs backed by a small {@code long[]}.
+ *
+ * <p>Almost every person has 0 to 5 children, so a linear scan over a primitive array is faster and
+ * far smaller than a {@code HashSet<Long>} with its table, entry objects and boxed values. IDs are kept
+ * sorted ascending, which gives a deterministic iteration order and allows binary search for the
+ * rare person with many children.</p>
+ *
+ * <p>The primitive methods ({@link #contains(long)}, {@link #get(int)}, {@link #forEachId(LongConsumer)})
+ * do not allocate. The {@link java.util.Set} methods are available for compatibility and box on access.
+ * {@code null} elements are not supported. Not thread-safe.</p>
+ */
+public final class ChildIdSet extends AbstractSet<Long> {
+
+    private static final long[] EMPTY = new long[0];
+
+    /* Below this size a linear scan beats binary search */
+    private static final int LINEAR_SCAN_LIMIT = 8;
+
+    private long[] ids;
+    private int    size;
+
+    public ChildIdSet() {
+        this.ids = EMPTY;
+    }
+
+    private ChildIdSet(long[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Creates a set holding the distinct, non-null IDs of the given collection.
+     */
+    public static ChildIdSet copyOf(Collection<Long> source) {
+        if (source instanceof ChildIdSet other) {
+            return new ChildIdSet(Arrays.copyOf(other.ids, other.size), other.size);
+        }
+        long[] copy = new long[source.size()];
+        int count = 0;
+        for (Long id : source) {
+            if (id != null) {
+                copy[count++] = id;
+            }
+        }
+        Arrays.sort(copy, 0, count);
+        return new ChildIdSet(copy, removeDuplicates(copy, count));
+    }
+
+    /**
+     * Creates a set from a region of a primitive array. The region must be sorted and distinct,
+     * as produced by iterating another {@code ChildIdSet}.
+     */
+    public static ChildIdSet copyOf(long[] source, int offset, int length) {
+        return new ChildIdSet(Arrays.copyOfRange(source, offset, offset + length), length);
+    }
+
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * @return the ID at the given position, in ascending order
+     */
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return ids[index];
+    }
+
+    public void forEachId(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(ids[i]);
+        }
+    }
+
+    public boolean add(long id) {
+        int index = indexOf(id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -(index + 1);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean add(Long id) {
+        if (id == null) {
+            throw new NullPointerException("Child ID cannot be null");
+        }
+        return add(id.longValue());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long id && contains(id.longValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long id && remove(id.longValue());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int expectedSize = size;
+            private boolean canRemove;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Long next() {
+                if (expectedSize != size) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                return ids[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                removeAt(--next);
+                expectedSize = size;
+                canRemove = false;
+            }
+        };
+    }
+
+    /**
+     * @return the index of the ID, or {@code -(insertion point) - 1} if absent
+     */
+    private int indexOf(long id) {
+        if (size > LINEAR_SCAN_LIMIT) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+            if (ids[i] > id) {
+                return -(i + 1);
+            }
+        }
+        return -(size + 1);
+    }
+
+    private static int removeDuplicates(long[] sorted, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+}
@@ -1,6 +1,7 @@
 package nl.pinkroccade.familychallenge.domain;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -16,24 +17,32 @@ import java.util.StringJoiner;
  *   <li><b>partner</b>: horizontal (current spouse/partner)</li>
  *   <li><b>children</b>: forward-looking (offspring)</li>
  * </ul>
+ *
+ * <p>Children are kept in a compact {@link ChildIdSet}; use {@link #containsChild(long)} and
+ * {@link #getChildIdAt(int)} on hot paths to avoid boxing. {@link #getChildrenIds()} is a read-only view;
+ * change the children through the methods of the person.</p>
+ *
+ * <p>Repositories that hand out their stored versions store a {@link #readOnlyCopy()}, whose setters throw
+ * {@link UnsupportedOperationException}. Change a {@link #copy()} and save it instead.</p>
  */
 public class Person {
 
-    private Long      id;
-    private String    name;
-    private LocalDate birthDate;
-    private Long      parent1Id;
-    private Long      parent2Id;
-    private Long      partnerId;
-    private Set<Long> childrenIds;
+    private Long       id;
+    private String     name;
+    private LocalDate  birthDate;
+    private Long       parent1Id;
+    private Long       parent2Id;
+    private Long       partnerId;
+    private ChildIdSet childrenIds;
+    private boolean    readOnly;
 
     public Person() {
-        this.childrenIds = new HashSet<>();
+        this.childrenIds = new ChildIdSet();
     }
 
     public Person(Long id) {
         this.id = id;
-        this.childrenIds = new HashSet<>();
+        this.childrenIds = new ChildIdSet();
     }
 
     public Person(Long id, String name, LocalDate birthDate, Long parent1Id, Long parent2Id, Long partnerId,
@@ -44,7 +53,7 @@ public class Person {
         this.parent1Id = parent1Id;
         this.parent2Id = parent2Id;
         this.partnerId = partnerId;
-        this.childrenIds = childrenIds != null ? new HashSet<>(childrenIds) : new HashSet<>();
+        this.childrenIds = childrenIds != null ? ChildIdSet.copyOf(childrenIds) : new ChildIdSet();
     }
 
     public Long getId() {
@@ -52,10 +61,12 @@ public class Person {
     }
 
     public void setId(Long id) {
+        checkWritable();
         this.id = id;
     }
 
     public Person withId(Long id) {
+        checkWritable();
         this.id = id;
         return this;
     }
@@ -65,10 +76,12 @@ public class Person {
     }
 
     public void setName(String name) {
+        checkWritable();
         this.name = name;
     }
 
     public Person withName(String name) {
+        checkWritable();
         this.name = name;
         return this;
     }
@@ -78,10 +91,12 @@ public class Person {
     }
 
     public void setBirthDate(LocalDate birthDate) {
+        checkWritable();
         this.birthDate = birthDate;
     }
 
     public Person withBirthDate(LocalDate birthDate) {
+        checkWritable();
         this.birthDate = birthDate;
         return this;
     }
@@ -91,10 +106,12 @@ public class Person {
     }
 
     public void setParent1Id(Long parent1Id) {
+        checkWritable();
         this.parent1Id = parent1Id;
     }
 
     public Person withParent1Id(Long parent1Id) {
+        checkWritable();
         this.parent1Id = parent1Id;
         return this;
     }
@@ -104,10 +121,12 @@ public class Person {
     }
 
     public void setParent2Id(Long parent2Id) {
+        checkWritable();
         this.parent2Id = parent2Id;
     }
 
     public Person withParent2Id(Long parent2Id) {
+        checkWritable();
         this.parent2Id = parent2Id;
         return this;
     }
@@ -117,44 +136,132 @@ public class Person {
     }
 
     public void setPartnerId(Long partnerId) {
+        checkWritable();
         this.partnerId = partnerId;
     }
 
     public Person withPartnerId(Long partnerId) {
+        checkWritable();
         this.partnerId = partnerId;
         return this;
     }
 
+    /**
+     * @return a read-only view of the child IDs, ascending
+     */
     public Set<Long> getChildrenIds() {
-        return childrenIds;
+        return Collections.unmodifiableSet(childrenIds);
     }
 
     public void setChildrenIds(Set<Long> childrenIds) {
-        this.childrenIds = childrenIds != null ? new HashSet<>(childrenIds) : new HashSet<>();
+        checkWritable();
+        this.childrenIds = childrenIds != null ? ChildIdSet.copyOf(childrenIds) : new ChildIdSet();
     }
 
     public Person withChildrenIds(Set<Long> childrenIds) {
-        this.childrenIds = childrenIds != null ? new HashSet<>(childrenIds) : new HashSet<>();
+        checkWritable();
+        this.childrenIds = childrenIds != null ? ChildIdSet.copyOf(childrenIds) : new ChildIdSet();
         return this;
     }
 
+    public boolean containsChild(long childId) {
+        return childrenIds.contains(childId);
+    }
+
+    public int getChildCount() {
+        return childrenIds.size();
+    }
+
+    /**
+     * @return the child ID at the given position, in ascending order
+     */
+    public long getChildIdAt(int index) {
+        return childrenIds.get(index);
+    }
+
+    /**
+     * @return true if the given ID is listed as parent1 or parent2
+     */
+    public boolean hasParent(long parentId) {
+        return (parent1Id != null && parent1Id == parentId) || (parent2Id != null && parent2Id == parentId);
+    }
+
     public void addChild(Long childId) {
+        checkWritable();
         if (childId != null) {
-            this.childrenIds.add(childId);
+            this.childrenIds.add(childId.longValue());
         }
     }
 
     public void removeChild(Long childId) {
-        this.childrenIds.remove(childId);
+        checkWritable();
+        if (childId != null) {
+            this.childrenIds.remove(childId.longValue());
+        }
     }
 
     public Person withChild(Long childId) {
+        checkWritable();
         if (childId != null) {
-            this.childrenIds.add(childId);
+            this.childrenIds.add(childId.longValue());
         }
         return this;
     }
 
+    /**
+     * @return IDs of all persons referenced by this person (parents, partner and children)
+     */
+    public Set<Long> getReferencedIds() {
+        Set<Long> referencedIds = new HashSet<>(childrenIds);
+        if (parent1Id != null) {
+            referencedIds.add(parent1Id);
+        }
+        if (parent2Id != null) {
+            referencedIds.add(parent2Id);
+        }
+        if (partnerId != null) {
+            referencedIds.add(partnerId);
+        }
+        return referencedIds;
+    }
+
+    /**
+     * @return an independent copy, to be changed and saved instead of a person read from a repository
+     */
+    public Person copy() {
+        return new Person(id, name, birthDate, parent1Id, parent2Id, partnerId, childrenIds);
+    }
+
+    /**
+     * @return a copy that rejects every change, to be stored and shared with readers
+     */
+    public Person readOnlyCopy() {
+        Person copy = copy();
+        copy.readOnly = true;
+        return copy;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Person " + id + " is a stored version; change a copy()");
+        }
+    }
+
+    /**
+     * Compares all fields, unlike {@link #equals(Object)}, which only compares the ID.
+     *
+     * @return true if the other person has the same ID, name, birth date, parents, partner and children
+     */
+    public boolean hasSameContentAs(Person other) {
+        return Objects.equals(id, other.id)
+                && Objects.equals(name, other.name)
+                && Objects.equals(birthDate, other.birthDate)
+                && Objects.equals(parent1Id, other.parent1Id)
+                && Objects.equals(parent2Id, other.parent2Id)
+                && Objects.equals(partnerId, other.partnerId)
+                && childrenIds.equals(other.childrenIds);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
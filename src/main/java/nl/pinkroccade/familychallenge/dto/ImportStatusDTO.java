@@ -0,0 +1,23 @@
+package nl.pinkroccade.familychallenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Outgoing snapshot of the progress of a streaming import.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportStatusDTO(
+        long id,
+        String state,
+        Instant startedAt,
+        Instant finishedAt,
+        long bytesRead,
+        long recordsRead,
+        long recordsStored,
+        long recordsIgnored,
+        long chunksApplied,
+        String error
+) {
+}
@@ -0,0 +1,17 @@
+package nl.pinkroccade.familychallenge.dto;
+
+import java.util.List;
+
+/**
+ * Outgoing change of the matches, pushed to the subscribers of the match feed.
+ *
+ * @param version the version of the matches after the change
+ * @param added   IDs of persons that now match, ascending
+ * @param removed IDs of persons that no longer match, ascending
+ */
+public record MatchChangeDTO(
+        String version,
+        List<Long> added,
+        List<Long> removed
+) {
+}
@@ -0,0 +1,17 @@
+package nl.pinkroccade.familychallenge.dto;
+
+import java.util.List;
+
+/**
+ * Outgoing changes of the matches since the version a client last saw.
+ *
+ * @param version the version of the matches after applying the changes
+ * @param added   persons that now match, replacing any earlier copy
+ * @param removed IDs of persons that no longer match
+ */
+public record MatchDeltaDTO(
+        String version,
+        List<PersonResponseDTO> added,
+        List<Long> removed
+) {
+}
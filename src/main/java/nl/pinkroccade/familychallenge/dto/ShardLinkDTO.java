@@ -0,0 +1,21 @@
+package nl.pinkroccade.familychallenge.dto;
+
+/**
+ * Internal request to add a relationship to a person stored on another instance, the remote part of repairing
+ * bidirectional integrity.
+ *
+ * @param kind       the relationship to add
+ * @param personId   the person to update, owned by the receiving instance
+ * @param relativeId the relative to add to it
+ */
+public record ShardLinkDTO(Kind kind, Long personId, Long relativeId) {
+
+    public enum Kind {
+        /* Add the relative as a child */
+        CHILD,
+        /* Add the relative as parent1 or parent2, whichever is free */
+        PARENT,
+        /* Make the relative the partner */
+        PARTNER
+    }
+}
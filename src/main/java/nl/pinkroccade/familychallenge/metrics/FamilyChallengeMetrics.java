@@ -0,0 +1,37 @@
+package nl.pinkroccade.familychallenge.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.PatternMatchingService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges for the size of the data set: stored persons, ignored IDs and current matches.
+ * Values are read when the registry is scraped, never on the request path.
+ */
+@Component
+public class FamilyChallengeMetrics implements MeterBinder {
+
+    private final PersonRepository       repository;
+    private final PatternMatchingService patternMatchingService;
+
+    public FamilyChallengeMetrics(PersonRepository repository, PatternMatchingService patternMatchingService) {
+        this.repository = repository;
+        this.patternMatchingService = patternMatchingService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("family.persons", repository, PersonRepository::count)
+                .description("Stored persons")
+                .register(registry);
+        Gauge.builder("family.persons.ignored", repository, r -> r.getIgnoredIds().size())
+                .description("Deleted and ignored person IDs")
+                .register(registry);
+        Gauge.builder("family.matches", patternMatchingService, PatternMatchingService::getMatchCount)
+                .description("Persons currently matching the pattern")
+                .register(registry);
+    }
+}
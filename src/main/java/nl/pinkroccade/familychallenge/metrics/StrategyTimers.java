@@ -0,0 +1,38 @@
+package nl.pinkroccade.familychallenge.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two timers of one strategy implementation, one per result. Their counts are the hit and miss counters.
+ */
+final class StrategyTimers {
+
+    static final String METRIC_NAME = "family.strategy";
+
+    private final Timer hit;
+    private final Timer miss;
+
+    StrategyTimers(MeterRegistry registry, String strategy, Object implementation) {
+        this.hit = register(registry, strategy, implementation, "hit");
+        this.miss = register(registry, strategy, implementation, "miss");
+    }
+
+    private static Timer register(MeterRegistry registry, String strategy, Object implementation, String result) {
+        return Timer.builder(METRIC_NAME)
+                .description("Strategy calls by result")
+                .tag("strategy", strategy)
+                .tag("implementation", implementation.getClass().getSimpleName())
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Records a call that started at {@code startNanos} (from {@link System#nanoTime()}).
+     */
+    void record(long startNanos, boolean hit) {
+        (hit ? this.hit : miss).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
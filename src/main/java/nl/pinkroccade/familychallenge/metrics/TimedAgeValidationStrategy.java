@@ -0,0 +1,27 @@
+package nl.pinkroccade.familychallenge.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.service.strategy.age.AgeValidationStrategy;
+
+/**
+ * Times an {@link AgeValidationStrategy}. A hit is a person under 18.
+ */
+public class TimedAgeValidationStrategy implements AgeValidationStrategy {
+
+    private final AgeValidationStrategy delegate;
+    private final StrategyTimers        timers;
+
+    public TimedAgeValidationStrategy(AgeValidationStrategy delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timers = new StrategyTimers(registry, "age-validation", delegate);
+    }
+
+    @Override
+    public boolean isUnder18(Person person) {
+        long start = System.nanoTime();
+        boolean under18 = delegate.isUnder18(person);
+        timers.record(start, under18);
+        return under18;
+    }
+}
@@ -0,0 +1,37 @@
+package nl.pinkroccade.familychallenge.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
+import nl.pinkroccade.familychallenge.service.strategy.children.ChildCountStrategy;
+
+/**
+ * Times a {@link ChildCountStrategy}. A hit is a valid set of children.
+ */
+public class TimedChildCountStrategy implements ChildCountStrategy {
+
+    private final ChildCountStrategy delegate;
+    private final StrategyTimers     timers;
+
+    public TimedChildCountStrategy(ChildCountStrategy delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timers = new StrategyTimers(registry, "child-count", delegate);
+    }
+
+    @Override
+    public ValidationResult validateChildren(Person person, Long partnerId, PersonRepository repository) {
+        long start = System.nanoTime();
+        ValidationResult result = delegate.validateChildren(person, partnerId, repository);
+        timers.record(start, result.valid());
+        return result;
+    }
+
+    @Override
+    public boolean hasValidChildren(MatchContext context) {
+        long start = System.nanoTime();
+        boolean valid = delegate.hasValidChildren(context);
+        timers.record(start, valid);
+        return valid;
+    }
+}
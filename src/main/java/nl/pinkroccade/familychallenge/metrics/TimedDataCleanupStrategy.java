@@ -0,0 +1,38 @@
+package nl.pinkroccade.familychallenge.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.service.strategy.cleanup.DataCleanupStrategy;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Times a {@link DataCleanupStrategy}. A hit is a call that removed at least one reference.
+ */
+public class TimedDataCleanupStrategy implements DataCleanupStrategy {
+
+    private final DataCleanupStrategy delegate;
+    private final StrategyTimers      timers;
+
+    public TimedDataCleanupStrategy(DataCleanupStrategy delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timers = new StrategyTimers(registry, "data-cleanup", delegate);
+    }
+
+    @Override
+    public void cleanupReferences(Person person, Set<Long> ignoredIds) {
+        // References are only ever removed, so comparing them field by field detects a cleanup without copying
+        Long partnerId = person.getPartnerId();
+        Long parent1Id = person.getParent1Id();
+        Long parent2Id = person.getParent2Id();
+        int childCount = person.getChildCount();
+
+        long start = System.nanoTime();
+        delegate.cleanupReferences(person, ignoredIds);
+        timers.record(start, !Objects.equals(partnerId, person.getPartnerId())
+                || !Objects.equals(parent1Id, person.getParent1Id())
+                || !Objects.equals(parent2Id, person.getParent2Id())
+                || childCount != person.getChildCount());
+    }
+}
@@ -0,0 +1,37 @@
+package nl.pinkroccade.familychallenge.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
+import nl.pinkroccade.familychallenge.service.strategy.partner.PartnerValidationStrategy;
+
+/**
+ * Times a {@link PartnerValidationStrategy}. A hit is a person with a valid partner.
+ */
+public class TimedPartnerValidationStrategy implements PartnerValidationStrategy {
+
+    private final PartnerValidationStrategy delegate;
+    private final StrategyTimers            timers;
+
+    public TimedPartnerValidationStrategy(PartnerValidationStrategy delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timers = new StrategyTimers(registry, "partner-validation", delegate);
+    }
+
+    @Override
+    public boolean hasValidPartner(Person person, PersonRepository repository) {
+        long start = System.nanoTime();
+        boolean valid = delegate.hasValidPartner(person, repository);
+        timers.record(start, valid);
+        return valid;
+    }
+
+    @Override
+    public boolean hasValidPartner(MatchContext context) {
+        long start = System.nanoTime();
+        boolean valid = delegate.hasValidPartner(context);
+        timers.record(start, valid);
+        return valid;
+    }
+}
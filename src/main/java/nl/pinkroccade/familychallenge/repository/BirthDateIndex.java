@@ -0,0 +1,66 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index from birth date (as epoch day) to the IDs of the persons born on that day.
+ *
+ * <p>Lets the matching service find the children crossing an age threshold on a given day
+ * without scanning every person. Persons without a birth date are not indexed.</p>
+ *
+ * <p>Thread-safe without a global lock: updates of one person are serialized by the concurrent map entry of its
+ * indexed birth day. Days keep their (possibly empty) set once created; there are only a few tens of thousands
+ * of them, and it saves coordinating the removal of a set with concurrent additions to it.</p>
+ */
+public class BirthDateIndex {
+
+    /* epoch day -> IDs of persons born on that day */
+    private final ConcurrentNavigableMap<Long, Set<Long>> idsByBirthDay = new ConcurrentSkipListMap<>();
+
+    /* person ID -> indexed epoch day */
+    private final ConcurrentMap<Long, Long> indexedBirthDays = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the indexed birth date of a person.
+     *
+     * @param id        the person
+     * @param birthDate the current birth date, or {@code null} if unknown
+     */
+    public void update(Long id, LocalDate birthDate) {
+        Long birthDay = birthDate != null ? birthDate.toEpochDay() : null;
+        indexedBirthDays.compute(id, (key, previous) -> {
+            Set<Long> previousIds = previous != null ? idsByBirthDay.get(previous) : null;
+            if (previousIds != null && !previous.equals(birthDay)) {
+                previousIds.remove(id);
+            }
+            if (birthDay != null && !birthDay.equals(previous)) {
+                idsByBirthDay.computeIfAbsent(birthDay, day -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            return birthDay;
+        });
+    }
+
+    public void remove(Long id) {
+        update(id, null);
+    }
+
+    /**
+     * @return IDs of persons born after {@code after} up to and including {@code until}
+     */
+    public Set<Long> idsBornBetween(LocalDate after, LocalDate until) {
+        Set<Long> found = new HashSet<>();
+        idsByBirthDay.subMap(after.toEpochDay(), false, until.toEpochDay(), true).values().forEach(found::addAll);
+        return found;
+    }
+
+    public void clear() {
+        idsByBirthDay.clear();
+        indexedBirthDays.clear();
+    }
+}
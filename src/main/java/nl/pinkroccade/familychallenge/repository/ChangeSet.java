@@ -0,0 +1,12 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.util.Set;
+
+/**
+ * IDs of persons that were saved or deleted after a given repository version.
+ *
+ * @param version the repository version the change set is complete up to
+ * @param ids     IDs mutated since the requested version
+ */
+public record ChangeSet(long version, Set<Long> ids) {
+}
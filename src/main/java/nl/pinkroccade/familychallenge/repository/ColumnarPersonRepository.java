@@ -0,0 +1,535 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.ChildIdSet;
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Struct-of-arrays implementation of PersonRepository for large datasets.
+ *
+ * <p>Instead of one {@code Person} object per record, every field lives in a primitive column indexed
+ * by a slot number: IDs, birth dates as epoch days, parent and partner IDs, and an offset/length pair
+ * into a shared {@code long[]} child-ID region. Only names remain objects. This removes the boxed
+ * {@code Long} fields, the {@code LocalDate} and the {@code HashSet} per person, so the heap cost per
+ * record drops to a few dozen bytes and the GC has almost nothing to trace.</p>
+ *
+ * <p>The reverse reference and birth date indexes follow the same layout: chains of slot numbers in
+ * {@code int} columns, headed through {@link LongIntHashMap}s. They are updated from the difference between
+ * the old and new column values of a slot, under the same lock.</p>
+ *
+ * <p>{@link #findById(Long)} and {@link #findAll()} materialize detached {@code Person} copies;
+ * changes only become visible after {@link #save(Person)}. {@link Long#MIN_VALUE} is reserved as the
+ * "no value" marker and cannot be used as a person ID.</p>
+ *
+ * <p>Thread-safe: writers take an exclusive lock, readers a shared one.
+ * Select it with {@code family-challenge.repository} in application.properties.</p>
+ */
+@Repository
+public class ColumnarPersonRepository implements PersonRepository {
+
+    private static final long NONE             = Long.MIN_VALUE;
+    private static final int  INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+
+    private final LongIntHashMap slotsById = new LongIntHashMap(INITIAL_CAPACITY);
+
+    /* Columns, indexed by slot */
+    private long[]   ids           = new long[INITIAL_CAPACITY];
+    private String[] names         = new String[INITIAL_CAPACITY];
+    private long[]   birthDates    = new long[INITIAL_CAPACITY];
+    private long[]   parent1Ids    = new long[INITIAL_CAPACITY];
+    private long[]   parent2Ids    = new long[INITIAL_CAPACITY];
+    private long[]   partnerIds    = new long[INITIAL_CAPACITY];
+    private int[]    childOffsets  = new int[INITIAL_CAPACITY];
+    private int[]    childCounts   = new int[INITIAL_CAPACITY];
+    private int[]    childCapacity = new int[INITIAL_CAPACITY];
+
+    /* Adjacency region holding the child IDs of all persons back to back */
+    private long[] childRegion = new long[INITIAL_CAPACITY * 2];
+    private int    childRegionSize;
+    private int    childRegionGarbage;
+
+    /* Slots are never shrunk; freed slots are reused by later inserts */
+    private int   slotCount;
+    private int[] freeSlots = new int[16];
+    private int   freeSlotCount;
+
+    private final IgnoredIdSet ignoredIds = new IgnoredIdSet();
+
+    private final PersonChangeLog changeLog = new PersonChangeLog();
+
+    private final SlotReferenceIndex referenceIndex = new SlotReferenceIndex(INITIAL_CAPACITY * 4);
+
+    private final SlotBirthDateIndex birthDateIndex = new SlotBirthDateIndex(INITIAL_CAPACITY);
+
+    @Override
+    public Optional<Person> save(Person person) {
+        if (isIgnored(person.getId())) {
+            return Optional.empty(); // Silently ignore
+        }
+        if (person.getId() == NONE) {
+            throw new IllegalArgumentException("Person ID " + NONE + " is reserved");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            long id = person.getId();
+            int slot = slotsById.get(id);
+            if (slot == LongIntHashMap.NO_VALUE) {
+                slot = allocateSlot();
+                slotsById.put(id, slot);
+            }
+            long birthDay = person.getBirthDate() != null ? person.getBirthDate().toEpochDay() : NONE;
+            long parent1Id = toColumn(person.getParent1Id());
+            long parent2Id = toColumn(person.getParent2Id());
+            long partnerId = toColumn(person.getPartnerId());
+            reindexBirthDay(slot, birthDates[slot], birthDay);
+            reindexReference(slot, parent1Ids[slot], parent1Id);
+            reindexReference(slot, parent2Ids[slot], parent2Id);
+            reindexReference(slot, partnerIds[slot], partnerId);
+            reindexChildren(slot, person);
+
+            ids[slot] = id;
+            names[slot] = person.getName();
+            birthDates[slot] = birthDay;
+            parent1Ids[slot] = parent1Id;
+            parent2Ids[slot] = parent2Id;
+            partnerIds[slot] = partnerId;
+            writeChildren(slot, person);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        changeLog.record(person.getId());
+        return Optional.of(person);
+    }
+
+    @Override
+    public Optional<Person> findById(Long id) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotsById.get(id);
+            return slot == LongIntHashMap.NO_VALUE ? Optional.empty() : Optional.of(materialize(slot));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int count() {
+        long stamp = lock.readLock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Materializes a snapshot of all persons. Prefer {@link #findById(Long)} on hot paths.
+     */
+    @Override
+    public Collection<Person> findAll() {
+        long stamp = lock.readLock();
+        try {
+            List<Person> persons = new ArrayList<>(slotsById.size());
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (ids[slot] != NONE) {
+                    persons.add(materialize(slot));
+                }
+            }
+            return persons;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void deleteByIds(List<Long> idsToDelete) {
+        idsToDelete.forEach(id -> {
+            long stamp = lock.writeLock();
+            try {
+                int slot = slotsById.remove(id);
+                if (slot != LongIntHashMap.NO_VALUE) {
+                    unindex(slot);
+                    releaseSlot(slot);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            ignoredIds.ignore(id);
+            changeLog.record(id);
+        });
+    }
+
+    @Override
+    public boolean isIgnored(Long id) {
+        return id != null && ignoredIds.contains(id.longValue());
+    }
+
+    @Override
+    public Set<Long> getIgnoredIds() {
+        return ignoredIds;
+    }
+
+    @Override
+    public Set<Long> findReferrerIds(Long id) {
+        if (id == null) {
+            return Set.of();
+        }
+        long stamp = lock.readLock();
+        try {
+            Set<Long> referrerIds = new HashSet<>();
+            referenceIndex.forEachReferrer(id, slot -> referrerIds.add(ids[slot]));
+            return referrerIds;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Looks up every day of the range in the birth date index, or scans the birth date column when the range
+     * holds more days than the index.
+     */
+    @Override
+    public Set<Long> findIdsBornBetween(LocalDate after, LocalDate until) {
+        long firstDay = after.toEpochDay() + 1;
+        long lastDay = until.toEpochDay();
+        long stamp = lock.readLock();
+        try {
+            Set<Long> found = new HashSet<>();
+            if (lastDay - firstDay < birthDateIndex.dayCount()) {
+                for (long day = firstDay; day <= lastDay; day++) {
+                    birthDateIndex.forEachBornOn(day, slot -> found.add(ids[slot]));
+                }
+            } else {
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if (ids[slot] != NONE && birthDates[slot] >= firstDay && birthDates[slot] <= lastDay) {
+                        found.add(ids[slot]);
+                    }
+                }
+            }
+            return found;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long currentVersion() {
+        return changeLog.currentVersion();
+    }
+
+    @Override
+    public ChangeSet changesSince(long sinceVersion) {
+        return changeLog.changesSince(sinceVersion);
+    }
+
+    @Override
+    public void discardChangesUpTo(long upToVersion) {
+        changeLog.discardUpTo(upToVersion);
+    }
+
+    /**
+     * Copies the columns directly, skipping free slots and child region garbage.
+     */
+    @Override
+    public PersonColumns exportColumns() {
+        long stamp = lock.readLock();
+        try {
+            PersonColumns.Builder builder = new PersonColumns.Builder(Math.max(16, slotsById.size()));
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (ids[slot] != NONE) {
+                    builder.add(ids[slot], names[slot], birthDates[slot], parent1Ids[slot], parent2Ids[slot],
+                            partnerIds[slot], childCounts[slot]);
+                    System.arraycopy(childRegion, childOffsets[slot], builder.childIds(),
+                            builder.childIdCount() - childCounts[slot], childCounts[slot]);
+                }
+            }
+            return builder.build();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adopts the given columns as storage instead of saving person by person, and builds the indexes
+     * straight from them, so no {@code Person} is materialized. The restored persons are not recorded as changes.
+     */
+    @Override
+    public void restore(PersonColumns persons, Set<Long> ignored) {
+        long stamp = lock.writeLock();
+        try {
+            if (slotCount > 0) {
+                throw new IllegalStateException("Restore requires an empty repository");
+            }
+            int count = persons.count();
+            ids = persons.ids();
+            names = persons.names();
+            birthDates = persons.birthDays();
+            parent1Ids = persons.parent1Ids();
+            parent2Ids = persons.parent2Ids();
+            partnerIds = persons.partnerIds();
+            childCounts = persons.childCounts();
+            childCapacity = Arrays.copyOf(childCounts, ids.length);
+            childOffsets = new int[ids.length];
+            childRegion = persons.childIds();
+            slotCount = count;
+            if (ids.length < INITIAL_CAPACITY) {
+                growColumns(INITIAL_CAPACITY);
+            }
+
+            int offset = 0;
+            for (int slot = 0; slot < count; slot++) {
+                childOffsets[slot] = offset;
+                offset += childCounts[slot];
+            }
+            childRegionSize = offset;
+            birthDateIndex.ensureCapacity(ids.length);
+            for (int slot = 0; slot < count; slot++) {
+                if (ignored.contains(ids[slot])) {
+                    releaseSlot(slot);
+                } else {
+                    slotsById.put(ids[slot], slot);
+                    index(slot);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (ignored instanceof IgnoredIdSet ignoredIdSet) {
+            ignoredIds.ignoreAll(ignoredIdSet.copyBitmap());
+        } else {
+            ignored.forEach(ignoredIds::ignore);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            // Removed persons are recorded as changes so consumers drop them as well
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (ids[slot] != NONE) {
+                    changeLog.record(ids[slot]);
+                }
+            }
+            slotsById.clear();
+            Arrays.fill(childOffsets, 0, slotCount, 0);
+            Arrays.fill(childCounts, 0, slotCount, 0);
+            Arrays.fill(childCapacity, 0, slotCount, 0);
+            slotCount = 0;
+            freeSlotCount = 0;
+            childRegionSize = 0;
+            childRegionGarbage = 0;
+            Arrays.fill(names, null);
+            referenceIndex.clear();
+            birthDateIndex.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        ignoredIds.reset();
+    }
+
+    private Person materialize(int slot) {
+        ChildIdSet children = ChildIdSet.copyOf(childRegion, childOffsets[slot], childCounts[slot]);
+        return new Person(
+                ids[slot],
+                names[slot],
+                birthDates[slot] != NONE ? LocalDate.ofEpochDay(birthDates[slot]) : null,
+                fromColumn(parent1Ids[slot]),
+                fromColumn(parent2Ids[slot]),
+                fromColumn(partnerIds[slot]),
+                children);
+    }
+
+    /**
+     * Indexes all values of a slot whose columns were filled directly.
+     */
+    private void index(int slot) {
+        reindexBirthDay(slot, NONE, birthDates[slot]);
+        reindexReference(slot, NONE, parent1Ids[slot]);
+        reindexReference(slot, NONE, parent2Ids[slot]);
+        reindexReference(slot, NONE, partnerIds[slot]);
+        int offset = childOffsets[slot];
+        for (int i = 0; i < childCounts[slot]; i++) {
+            referenceIndex.add(childRegion[offset + i], slot);
+        }
+    }
+
+    /**
+     * Removes all values of a slot from the indexes.
+     */
+    private void unindex(int slot) {
+        reindexBirthDay(slot, birthDates[slot], NONE);
+        reindexReference(slot, parent1Ids[slot], NONE);
+        reindexReference(slot, parent2Ids[slot], NONE);
+        reindexReference(slot, partnerIds[slot], NONE);
+        int offset = childOffsets[slot];
+        for (int i = 0; i < childCounts[slot]; i++) {
+            referenceIndex.remove(childRegion[offset + i], slot);
+        }
+    }
+
+    private void reindexBirthDay(int slot, long previous, long current) {
+        if (previous != current) {
+            if (previous != NONE) {
+                birthDateIndex.remove(previous, slot);
+            }
+            if (current != NONE) {
+                birthDateIndex.add(current, slot);
+            }
+        }
+    }
+
+    private void reindexReference(int slot, long previous, long current) {
+        if (previous != current) {
+            if (previous != NONE) {
+                referenceIndex.remove(previous, slot);
+            }
+            if (current != NONE) {
+                referenceIndex.add(current, slot);
+            }
+        }
+    }
+
+    /**
+     * Applies the difference between the slot's current child IDs and those of the person to the reference
+     * index. Both are sorted ascending, so one merge pass finds it.
+     */
+    private void reindexChildren(int slot, Person person) {
+        int offset = childOffsets[slot];
+        int previousCount = childCounts[slot];
+        int count = person.getChildCount();
+        int i = 0;
+        int j = 0;
+        while (i < previousCount || j < count) {
+            long previous = i < previousCount ? childRegion[offset + i] : Long.MAX_VALUE;
+            long current = j < count ? person.getChildIdAt(j) : Long.MAX_VALUE;
+            if (i < previousCount && (j == count || previous < current)) {
+                referenceIndex.remove(previous, slot);
+                i++;
+            } else if (i == previousCount || current < previous) {
+                referenceIndex.add(current, slot);
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Writes child IDs into the slot's region, reusing it when large enough.
+     * Otherwise a new region is appended and the old one becomes garbage until the next compaction.
+     */
+    private void writeChildren(int slot, Person person) {
+        int count = person.getChildCount();
+        if (count > childCapacity[slot]) {
+            childRegionGarbage += childCapacity[slot];
+            childCounts[slot] = 0;
+            childCapacity[slot] = 0;
+            if (childRegionGarbage > childRegionSize / 2) {
+                compactChildRegion();
+            }
+            ensureChildRegion(count);
+            childOffsets[slot] = childRegionSize;
+            childCapacity[slot] = count;
+            childRegionSize += count;
+        }
+
+        int offset = childOffsets[slot];
+        for (int i = 0; i < count; i++) {
+            childRegion[offset + i] = person.getChildIdAt(i);
+        }
+        childCounts[slot] = count;
+    }
+
+    private void compactChildRegion() {
+        long[] compacted = new long[Math.max(INITIAL_CAPACITY, childRegionSize - childRegionGarbage) * 2];
+        int size = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (ids[slot] != NONE && childCapacity[slot] > 0) {
+                System.arraycopy(childRegion, childOffsets[slot], compacted, size, childCounts[slot]);
+                childOffsets[slot] = size;
+                childCapacity[slot] = childCounts[slot];
+                size += childCounts[slot];
+            }
+        }
+        childRegion = compacted;
+        childRegionSize = size;
+        childRegionGarbage = 0;
+    }
+
+    private void ensureChildRegion(int additional) {
+        if (childRegionSize + additional > childRegion.length) {
+            childRegion = Arrays.copyOf(childRegion, Math.max(childRegion.length * 2, childRegionSize + additional));
+        }
+    }
+
+    /**
+     * @return a slot whose columns hold no values, so saving into it indexes every value as new
+     */
+    private int allocateSlot() {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            if (slotCount == ids.length) {
+                growColumns(ids.length * 2);
+            }
+            slot = slotCount++;
+        }
+        birthDates[slot] = NONE;
+        parent1Ids[slot] = NONE;
+        parent2Ids[slot] = NONE;
+        partnerIds[slot] = NONE;
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        childRegionGarbage += childCapacity[slot];
+        ids[slot] = NONE;
+        names[slot] = null;
+        // A childless person reusing the slot keeps its offset, so it must stay inside the region
+        childOffsets[slot] = 0;
+        childCounts[slot] = 0;
+        childCapacity[slot] = 0;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void growColumns(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        birthDates = Arrays.copyOf(birthDates, capacity);
+        parent1Ids = Arrays.copyOf(parent1Ids, capacity);
+        parent2Ids = Arrays.copyOf(parent2Ids, capacity);
+        partnerIds = Arrays.copyOf(partnerIds, capacity);
+        childOffsets = Arrays.copyOf(childOffsets, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        childCapacity = Arrays.copyOf(childCapacity, capacity);
+        birthDateIndex.ensureCapacity(capacity);
+    }
+
+    private static long toColumn(Long id) {
+        return id != null ? id : NONE;
+    }
+
+    private static Long fromColumn(long value) {
+        return value != NONE ? value : null;
+    }
+}
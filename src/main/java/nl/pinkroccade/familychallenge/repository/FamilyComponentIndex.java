@@ -0,0 +1,218 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Disjoint-set (union-find) index of the families in a {@link PersonRepository}: the connected components of
+ * the graph formed by the parent, partner and child links of all persons.
+ *
+ * <p>A component holds the IDs of stored persons and of the relatives they reference without having been
+ * posted themselves. Ignored IDs are never linked, and {@link Long#MIN_VALUE}, reserved by the underlying map,
+ * is not indexed. Linking a saved person merges the components of the person and its relatives in near-constant
+ * time, using path halving and union by size. Every component also keeps its members in a circular list, so
+ * listing a family costs only the size of that family.</p>
+ *
+ * <p>Union-find cannot split a component. Removing a link, by a delete or by a record dropping a relative,
+ * marks the index as stale instead; the next query rebuilds it from the repository, and until then linking
+ * is skipped, since the rebuild sees those saves as well. The index starts out stale, so it also covers the
+ * persons restored before it was created.</p>
+ */
+@Component
+public class FamilyComponentIndex {
+
+    private final PersonRepository repository;
+    private final ReentrantLock    lock = new ReentrantLock();
+
+    /* person ID -> slot */
+    private LongIntHashMap slots = new LongIntHashMap(1024);
+
+    /* slot -> person ID, parent slot, component size (roots only) and next member of the same component */
+    private long[] ids     = new long[1024];
+    private int[]  parents = new int[1024];
+    private int[]  sizes   = new int[1024];
+    private int[]  next    = new int[1024];
+
+    private int     count;
+    private int     components;
+    private boolean stale = true;
+
+    public FamilyComponentIndex(PersonRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Merges the component of a saved person with those of its parents, partner and children.
+     *
+     * @param person the person as saved
+     */
+    public void link(Person person) {
+        lock.lock();
+        try {
+            if (!stale) {
+                union(person);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that a link was removed, so components may have to be split.
+     */
+    public void markStale() {
+        lock.lock();
+        try {
+            stale = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param id a person ID
+     * @return the IDs in the family of the person, ascending, including the person itself; empty if the ID
+     *         is neither stored nor referenced by a stored person
+     */
+    public List<Long> findComponent(Long id) {
+        lock.lock();
+        try {
+            refresh();
+            int slot = slots.get(id);
+            if (slot == LongIntHashMap.NO_VALUE) {
+                return List.of();
+            }
+            long[] members = new long[sizes[find(slot)]];
+            int member = slot;
+            for (int i = 0; i < members.length; i++) {
+                members[i] = ids[member];
+                member = next[member];
+            }
+            Arrays.sort(members);
+            return Arrays.stream(members).boxed().toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of families per family size, by ascending size
+     */
+    public SortedMap<Integer, Integer> sizeHistogram() {
+        lock.lock();
+        try {
+            refresh();
+            SortedMap<Integer, Integer> histogram = new TreeMap<>();
+            for (int slot = 0; slot < count; slot++) {
+                if (parents[slot] == slot) {
+                    histogram.merge(sizes[slot], 1, Integer::sum);
+                }
+            }
+            return histogram;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of families
+     */
+    public int componentCount() {
+        lock.lock();
+        try {
+            refresh();
+            return components;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the repository if a link was removed since it was last built.
+     * Writers linking meanwhile wait for the lock, and are covered either by the rebuild or by their own link.
+     */
+    private void refresh() {
+        if (!stale) {
+            return;
+        }
+        slots = new LongIntHashMap(Math.max(1024, repository.count()));
+        count = 0;
+        components = 0;
+        for (Person person : repository.findAll()) {
+            union(person);
+        }
+        stale = false;
+    }
+
+    private void union(Person person) {
+        if (person.getId() == LongIntHashMap.EMPTY_KEY) {
+            return;
+        }
+        int root = find(slotOf(person.getId()));
+        for (Long relativeId : person.getReferencedIds()) {
+            if (relativeId != LongIntHashMap.EMPTY_KEY && !repository.isIgnored(relativeId)) {
+                root = union(root, find(slotOf(relativeId)));
+            }
+        }
+    }
+
+    /**
+     * Merges two components, attaching the smaller to the larger one.
+     *
+     * @return the root of the merged component
+     */
+    private int union(int root, int other) {
+        if (root == other) {
+            return root;
+        }
+        if (sizes[root] < sizes[other]) {
+            int swap = root;
+            root = other;
+            other = swap;
+        }
+        parents[other] = root;
+        sizes[root] += sizes[other];
+        // Splicing the two circular member lists joins them into one
+        int rootNext = next[root];
+        next[root] = next[other];
+        next[other] = rootNext;
+        components--;
+        return root;
+    }
+
+    private int find(int slot) {
+        while (parents[slot] != slot) {
+            parents[slot] = parents[parents[slot]];
+            slot = parents[slot];
+        }
+        return slot;
+    }
+
+    private int slotOf(long id) {
+        int slot = slots.get(id);
+        if (slot != LongIntHashMap.NO_VALUE) {
+            return slot;
+        }
+        if (count == ids.length) {
+            int capacity = count << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        slot = count++;
+        ids[slot] = id;
+        parents[slot] = slot;
+        sizes[slot] = 1;
+        next[slot] = slot;
+        slots.put(id, slot);
+        components++;
+        return slot;
+    }
+}
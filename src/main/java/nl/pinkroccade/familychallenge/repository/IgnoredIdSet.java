@@ -0,0 +1,125 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Grow-only set of ignored (deleted) person IDs backed by a compressed 64-bit roaring bitmap.
+ *
+ * <p>IDs are mostly dense ranges, which roaring stores as bitmaps or runs at a fraction of the size of a
+ * {@code ConcurrentHashMap} key set with its boxed {@code Long} nodes. The set itself is handed out as a
+ * live, read-only view: {@link #contains(long)} takes a shared lock and does not allocate, so callers no
+ * longer need a copy for every request.</p>
+ *
+ * <p>Thread-safe: {@link #ignore(long)}, {@link #ignoreAll(Roaring64Bitmap)} and {@link #reset()} take an
+ * exclusive lock, lookups a shared one. Iteration works on a snapshot taken when the iterator is created.</p>
+ */
+public final class IgnoredIdSet extends AbstractSet<Long> {
+
+    private final StampedLock     lock   = new StampedLock();
+    private final Roaring64Bitmap bitmap = new Roaring64Bitmap();
+
+    public boolean contains(long id) {
+        long stamp = lock.readLock();
+        try {
+            return bitmap.contains(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long id && contains(id.longValue());
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, bitmap.getLongCardinality());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        long stamp = lock.readLock();
+        try {
+            return bitmap.isEmpty();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        Roaring64Bitmap snapshot;
+        long stamp = lock.readLock();
+        try {
+            snapshot = bitmap.clone();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return snapshot.iterator();
+    }
+
+    /**
+     * @return the approximate heap size of the bitmap in bytes
+     */
+    public long sizeInBytes() {
+        long stamp = lock.readLock();
+        try {
+            return bitmap.getLongSizeInBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /* Mutators are package-private: the view handed out by repositories is read-only */
+
+    void ignore(long id) {
+        long stamp = lock.writeLock();
+        try {
+            bitmap.addLong(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void ignoreAll(Roaring64Bitmap ids) {
+        long stamp = lock.writeLock();
+        try {
+            bitmap.or(ids);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    Roaring64Bitmap copyBitmap() {
+        long stamp = lock.readLock();
+        try {
+            return bitmap.clone();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Ignored IDs are read-only");
+    }
+
+    void reset() {
+        long stamp = lock.writeLock();
+        try {
+            bitmap.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package nl.pinkroccade.familychallenge.repository;
 import nl.pinkroccade.familychallenge.domain.Person;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -13,6 +14,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * In-memory implementation of PersonRepository using ConcurrentHashMap.
  *
  * <p>Thread-safe for concurrent access. Data is not persisted.</p>
+ * <p>Stored persons are immutable versions: {@link #save(Person)} stores a {@link Person#readOnlyCopy()}, which
+ * rejects changes and is replaced by the next save. Readers get the stored versions without copying or
+ * locking.</p>
  * <p>This repository handles pure data storage operations. Reference cleanup
  * is the responsibility of the service layer.</p>
  */
@@ -21,15 +25,26 @@ public class InMemoryPersonRepository implements PersonRepository {
 
     private final ConcurrentHashMap<Long, Person> store = new ConcurrentHashMap<>();
 
-    private final Set<Long> ignoredIds = ConcurrentHashMap.newKeySet();
+    private final IgnoredIdSet ignoredIds = new IgnoredIdSet();
+
+    private final PersonChangeLog changeLog = new PersonChangeLog();
+
+    private final ReverseReferenceIndex referenceIndex = new ReverseReferenceIndex();
+
+    private final BirthDateIndex birthDateIndex = new BirthDateIndex();
 
     @Override
     public Optional<Person> save(Person person) {
         if (isIgnored(person.getId())) {
             return Optional.empty(); // Silently ignore
         }
-        store.put(person.getId(), person);
-        return Optional.of(person);
+        // Copied, so later changes by the caller never reach readers of the stored version
+        Person version = person.readOnlyCopy();
+        store.put(version.getId(), version);
+        referenceIndex.update(version.getId(), version.getReferencedIds());
+        birthDateIndex.update(version.getId(), version.getBirthDate());
+        changeLog.record(version.getId());
+        return Optional.of(version);
     }
 
     @Override
@@ -46,23 +61,55 @@ public class InMemoryPersonRepository implements PersonRepository {
     public void deleteByIds(List<Long> ids) {
         ids.forEach(id -> {
             store.remove(id);
-            ignoredIds.add(id);
+            referenceIndex.remove(id);
+            birthDateIndex.remove(id);
+            ignoredIds.ignore(id);
+            changeLog.record(id);
         });
     }
 
     @Override
     public boolean isIgnored(Long id) {
-        return ignoredIds.contains(id);
+        return id != null && ignoredIds.contains(id.longValue());
     }
 
     @Override
     public Set<Long> getIgnoredIds() {
-        return Set.copyOf(ignoredIds);
+        return ignoredIds;
+    }
+
+    @Override
+    public Set<Long> findReferrerIds(Long id) {
+        return referenceIndex.referrersOf(id);
+    }
+
+    @Override
+    public Set<Long> findIdsBornBetween(LocalDate after, LocalDate until) {
+        return birthDateIndex.idsBornBetween(after, until);
+    }
+
+    @Override
+    public long currentVersion() {
+        return changeLog.currentVersion();
+    }
+
+    @Override
+    public ChangeSet changesSince(long sinceVersion) {
+        return changeLog.changesSince(sinceVersion);
+    }
+
+    @Override
+    public void discardChangesUpTo(long upToVersion) {
+        changeLog.discardUpTo(upToVersion);
     }
 
     public void clear() {
+        // Removed persons are recorded as changes so consumers drop them as well
+        store.keySet().forEach(changeLog::record);
         store.clear();
-        ignoredIds.clear();
+        referenceIndex.clear();
+        birthDateIndex.clear();
+        ignoredIds.reset();
     }
 }
 
@@ -0,0 +1,137 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} keys to {@code int} values without boxing.
+ *
+ * <p>Uses linear probing with backward-shift deletion, so no tombstones accumulate.
+ * {@link Long#MIN_VALUE} is reserved as the empty-slot marker and cannot be used as a key.
+ * Not thread-safe; callers synchronize externally.</p>
+ */
+class LongIntHashMap {
+
+    static final long EMPTY_KEY = Long.MIN_VALUE;
+    static final int  NO_VALUE  = -1;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[]  values;
+    private int    size;
+    private int    resizeThreshold;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int get(long key) {
+        if (key == EMPTY_KEY) {
+            return NO_VALUE;
+        }
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long existing = keys[i];
+            if (existing == key) {
+                return values[i];
+            }
+            if (existing == EMPTY_KEY) {
+                return NO_VALUE;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("Key " + EMPTY_KEY + " is reserved");
+        }
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long existing = keys[i];
+            if (existing == key) {
+                values[i] = value;
+                return;
+            }
+            if (existing == EMPTY_KEY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+        }
+    }
+
+    int remove(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long existing = keys[i];
+            if (existing == EMPTY_KEY) {
+                return NO_VALUE;
+            }
+            if (existing == key) {
+                int removed = values[i];
+                shiftBack(i, mask);
+                size--;
+                return removed;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY_KEY);
+        size = 0;
+    }
+
+    /**
+     * Closes the gap left at {@code gap} by moving later entries of the same probe chain back.
+     */
+    private void shiftBack(int gap, int mask) {
+        for (int i = (gap + 1) & mask; keys[i] != EMPTY_KEY; i = (i + 1) & mask) {
+            int home = index(keys[i], mask);
+            // Move the entry if its home slot is not in the cyclic range (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY_KEY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != EMPTY_KEY) {
+                int i = index(key, mask);
+                while (keys[i] != EMPTY_KEY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,14 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * The match set as stored in a {@link PersonSnapshot}.
+ *
+ * @param ids         IDs of the matching persons, ascending
+ * @param evaluatedOn the day whose age thresholds the matches were evaluated with
+ * @param version     the repository version the matches reflect; only set when restored from a snapshot
+ */
+public record MatchSetSnapshot(Collection<Long> ids, LocalDate evaluatedOn, long version) {
+}
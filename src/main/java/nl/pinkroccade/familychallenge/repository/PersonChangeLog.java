@@ -0,0 +1,86 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change capture for repository implementations.
+ *
+ * <p>Every mutation gets a monotonically increasing version. Consumers remember the version they
+ * last processed and ask for the IDs changed since then, which keeps their work proportional to the
+ * number of changes instead of the dataset size. Entries are kept until they are explicitly
+ * discarded by the consumer.</p>
+ *
+ * <p>Recording takes no lock: a change draws its version from a counter and is then added to a concurrent
+ * map. The current version only advances over versions that are in the map, so a consumer never skips a
+ * change still being added. A change returns once its own version is current, so its writer reads its own
+ * change like before.</p>
+ */
+public class PersonChangeLog {
+
+    private final ConcurrentSkipListMap<Long, Long> changes = new ConcurrentSkipListMap<>();
+
+    /* Last version handed out */
+    private final AtomicLong lastVersion = new AtomicLong();
+
+    /* Every version up to this one is in the map */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Records a mutation of the given person.
+     *
+     * @param id the ID of the saved or deleted person
+     * @return the version assigned to this change
+     */
+    public long record(Long id) {
+        long recorded = lastVersion.incrementAndGet();
+        changes.put(recorded, id);
+        // Whoever adds the change the others wait for also publishes theirs
+        long current = publish();
+        while (current < recorded) {
+            Thread.onSpinWait();
+            current = publish();
+        }
+        return recorded;
+    }
+
+    public long currentVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns the IDs recorded after the given version.
+     *
+     * @param sinceVersion the last version already processed by the caller
+     * @return the changed IDs together with the version they are complete up to
+     */
+    public ChangeSet changesSince(long sinceVersion) {
+        long current = version.get();
+        // May include changes after the current version, which are simply seen again next time
+        Set<Long> ids = new HashSet<>(changes.tailMap(sinceVersion, false).values());
+        return new ChangeSet(current, ids);
+    }
+
+    /**
+     * Drops all entries up to and including the given version.
+     */
+    public void discardUpTo(long upToVersion) {
+        changes.headMap(upToVersion, true).clear();
+    }
+
+    /**
+     * Advances the current version over the changes that are in the map.
+     *
+     * @return the current version
+     */
+    private long publish() {
+        long current = version.get();
+        while (changes.containsKey(current + 1)) {
+            version.compareAndSet(current, current + 1);
+            current = version.get();
+        }
+        return current;
+    }
+}
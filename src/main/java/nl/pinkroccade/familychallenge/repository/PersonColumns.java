@@ -0,0 +1,163 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.ChildIdSet;
+import nl.pinkroccade.familychallenge.domain.Person;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Columnar image of a set of persons, as written to and read from a {@link PersonSnapshot}.
+ *
+ * <p>The first {@code count} entries of every column describe one person each. Absent values are
+ * {@link #NONE}; names may be {@code null}. The child IDs of all persons are stored back to back in
+ * {@code childIds}, in person order, {@code childCounts[i]} per person.</p>
+ *
+ * @param count       number of persons
+ * @param ids         person IDs
+ * @param names       names
+ * @param birthDays   birth dates as epoch days
+ * @param parent1Ids  parent1 IDs
+ * @param parent2Ids  parent2 IDs
+ * @param partnerIds  partner IDs
+ * @param childCounts number of children per person
+ * @param childIds    child IDs of all persons, each person's IDs ascending
+ */
+public record PersonColumns(int count, long[] ids, String[] names, long[] birthDays, long[] parent1Ids,
+                            long[] parent2Ids, long[] partnerIds, int[] childCounts, long[] childIds) {
+
+    /** Marks an absent ID or birth date */
+    public static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Copies the given persons into columns. The collection may change while it is copied,
+     * in which case each person is captured in either state.
+     */
+    public static PersonColumns of(Collection<Person> persons) {
+        int capacity = Math.max(16, persons.size());
+        Builder builder = new Builder(capacity);
+        persons.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * @return the total number of child IDs
+     */
+    public int childIdCount() {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += childCounts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Materializes every person in column order.
+     */
+    public void forEachPerson(Consumer<Person> action) {
+        int childOffset = 0;
+        for (int i = 0; i < count; i++) {
+            action.accept(new Person(
+                    ids[i],
+                    names[i],
+                    birthDays[i] != NONE ? LocalDate.ofEpochDay(birthDays[i]) : null,
+                    fromColumn(parent1Ids[i]),
+                    fromColumn(parent2Ids[i]),
+                    fromColumn(partnerIds[i]),
+                    ChildIdSet.copyOf(childIds, childOffset, childCounts[i])));
+            childOffset += childCounts[i];
+        }
+    }
+
+    private static Long fromColumn(long value) {
+        return value != NONE ? value : null;
+    }
+
+    /**
+     * Collects persons row by row into growing columns.
+     */
+    static final class Builder {
+
+        private int      count;
+        private long[]   ids;
+        private String[] names;
+        private long[]   birthDays;
+        private long[]   parent1Ids;
+        private long[]   parent2Ids;
+        private long[]   partnerIds;
+        private int[]    childCounts;
+        private long[]   childIds;
+        private int      childIdCount;
+
+        Builder(int capacity) {
+            ids = new long[capacity];
+            names = new String[capacity];
+            birthDays = new long[capacity];
+            parent1Ids = new long[capacity];
+            parent2Ids = new long[capacity];
+            partnerIds = new long[capacity];
+            childCounts = new int[capacity];
+            childIds = new long[capacity * 2];
+        }
+
+        void add(Person person) {
+            int children = person.getChildCount();
+            add(person.getId(), person.getName(),
+                    person.getBirthDate() != null ? person.getBirthDate().toEpochDay() : NONE,
+                    toColumn(person.getParent1Id()), toColumn(person.getParent2Id()),
+                    toColumn(person.getPartnerId()), children);
+            for (int i = 0; i < children; i++) {
+                childIds[childIdCount - children + i] = person.getChildIdAt(i);
+            }
+        }
+
+        /**
+         * Adds a row and reserves room for its child IDs, which the caller writes into {@link #childIds()}
+         * ending at {@link #childIdCount()}.
+         */
+        void add(long id, String name, long birthDay, long parent1Id, long parent2Id, long partnerId,
+                 int children) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                birthDays = Arrays.copyOf(birthDays, capacity);
+                parent1Ids = Arrays.copyOf(parent1Ids, capacity);
+                parent2Ids = Arrays.copyOf(parent2Ids, capacity);
+                partnerIds = Arrays.copyOf(partnerIds, capacity);
+                childCounts = Arrays.copyOf(childCounts, capacity);
+            }
+            if (childIdCount + children > childIds.length) {
+                childIds = Arrays.copyOf(childIds, Math.max(childIds.length * 2, childIdCount + children));
+            }
+            ids[count] = id;
+            names[count] = name;
+            birthDays[count] = birthDay;
+            parent1Ids[count] = parent1Id;
+            parent2Ids[count] = parent2Id;
+            partnerIds[count] = partnerId;
+            childCounts[count] = children;
+            count++;
+            childIdCount += children;
+        }
+
+        long[] childIds() {
+            return childIds;
+        }
+
+        int childIdCount() {
+            return childIdCount;
+        }
+
+        PersonColumns build() {
+            return new PersonColumns(count, ids, names, birthDays, parent1Ids, parent2Ids, partnerIds,
+                    childCounts, childIds);
+        }
+
+        private static long toColumn(Long id) {
+            return id != null ? id : NONE;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package nl.pinkroccade.familychallenge.repository;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 
+import java.time.LocalDate;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -12,6 +15,14 @@ import java.util.Set;
  *
  * <p>This repository handles pure data storage operations. Business logic
  * such as reference cleanup should be handled by the service layer.</p>
+ *
+ * <p>Every successful {@link #save(Person)} and {@link #deleteByIds(List)} is recorded with a
+ * version number, so consumers can process only the IDs that changed since they last looked.</p>
+ *
+ * <p>Persons returned by the repository may be the stored versions, shared with concurrent readers, and
+ * must not be changed in place: change a {@link Person#copy()} and save that instead. A save replaces the
+ * stored version as a whole, so readers such as a running match scan always see complete versions without
+ * blocking writers.</p>
  */
 public interface PersonRepository {
 
@@ -19,11 +30,102 @@ public interface PersonRepository {
 
     Optional<Person> findById(Long id);
 
+    /**
+     * Looks up several persons at once, for callers about to read all of them. The default looks them up one at
+     * a time; a repository reading persons from elsewhere fetches them in batches.
+     *
+     * @param ids the IDs to look up
+     * @return the stored persons among them, by ID
+     */
+    default Map<Long, Person> findAllById(Collection<Long> ids) {
+        Map<Long, Person> persons = new HashMap<>();
+        for (Long id : ids) {
+            findById(id).ifPresent(person -> persons.put(id, person));
+        }
+        return persons;
+    }
+
     Collection<Person> findAll();
 
+    /**
+     * @return the number of stored persons
+     */
+    default int count() {
+        return findAll().size();
+    }
+
     void deleteByIds(List<Long> ids);
 
     boolean isIgnored(Long id);
 
+    /**
+     * Returns the IDs of deleted persons. The result is a live, read-only view rather than a copy,
+     * so membership checks see later deletes and cost no allocation.
+     *
+     * @return the ignored IDs
+     */
     Set<Long> getIgnoredIds();
+
+    /**
+     * Returns the persons referencing the given ID as parent1, parent2, partner or child.
+     * The ID itself does not need to exist.
+     *
+     * @param id the referenced person ID
+     * @return IDs of the referencing persons
+     */
+    Set<Long> findReferrerIds(Long id);
+
+    /**
+     * Returns the persons whose birth date lies after {@code after}, up to and including {@code until}.
+     * Persons without a birth date are never returned.
+     *
+     * @param after the exclusive lower bound
+     * @param until the inclusive upper bound
+     * @return IDs of the persons born in the range
+     */
+    Set<Long> findIdsBornBetween(LocalDate after, LocalDate until);
+
+    /**
+     * @return the version of the most recent mutation
+     */
+    long currentVersion();
+
+    /**
+     * Returns the IDs of persons saved or deleted after the given version.
+     *
+     * @param sinceVersion the last version already processed by the caller
+     * @return the changed IDs and the version they are complete up to
+     */
+    ChangeSet changesSince(long sinceVersion);
+
+    /**
+     * Releases change records up to and including the given version once they have been processed.
+     *
+     * @param upToVersion the last processed version
+     */
+    void discardChangesUpTo(long upToVersion);
+
+    /**
+     * Copies all persons into columns, e.g. for a {@link PersonSnapshot}. Persons saved concurrently
+     * may be captured in either state.
+     *
+     * @return the persons as columns
+     */
+    default PersonColumns exportColumns() {
+        return PersonColumns.of(findAll());
+    }
+
+    /**
+     * Loads persons and ignored IDs, e.g. from a {@link PersonSnapshot}, into an empty repository.
+     * Persons that are also in {@code ignoredIds} are not kept. Implementations may skip recording the
+     * loaded persons as changes, so consumers should rebuild or restore their derived state and continue
+     * from {@link #currentVersion()}.
+     *
+     * @param persons    the persons to load
+     * @param ignoredIds the IDs to ignore
+     */
+    default void restore(PersonColumns persons, Set<Long> ignoredIds) {
+        persons.forEachPerson(this::save);
+        deleteByIds(List.copyOf(ignoredIds));
+    }
 }
@@ -0,0 +1,292 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Versioned binary snapshot of a repository: persons, ignored IDs and the match set, together with the
+ * write-ahead log generation from which the log must be replayed on top of it.
+ *
+ * <p>The persons are stored as the columns of {@link PersonColumns}, each section 8-byte aligned and
+ * little-endian. Loading maps every section with {@link FileChannel#map} and bulk-copies it into a
+ * primitive array, so no per-person record is parsed; only names are decoded one by one. The ignored
+ * IDs are the serialized roaring bitmap.</p>
+ *
+ * <p>A snapshot is written to a temporary file, synced and then atomically moved over the previous one,
+ * so a crash while writing leaves the previous snapshot intact.</p>
+ *
+ * @param logGeneration      first write-ahead log generation not contained in the snapshot
+ * @param persons            the persons
+ * @param ignoredIds         the ignored IDs
+ * @param matchIds           the match set, ascending
+ * @param matchesEvaluatedOn the day whose age thresholds the match set was evaluated with
+ */
+public record PersonSnapshot(long logGeneration, PersonColumns persons, IgnoredIdSet ignoredIds,
+                             long[] matchIds, LocalDate matchesEvaluatedOn) {
+
+    /** File name of the snapshot inside the write-ahead log directory */
+    public static final String FILE_NAME = "persons.snapshot";
+
+    private static final int MAGIC          = 0x50534E31; // "PSN1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES   = 64;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Writes a snapshot, replacing any previous one at the same path. Returns once both the file and its rename
+     * are on disk, so the log segments the snapshot covers may be deleted.
+     */
+    public static void write(Path path, long logGeneration, PersonColumns persons, Set<Long> ignoredIds,
+                             Collection<Long> matchIds, LocalDate matchesEvaluatedOn) throws IOException {
+        int count = persons.count();
+        int childIdCount = persons.childIdCount();
+        byte[][] names = new byte[count][];
+        long nameBytes = 0;
+        for (int i = 0; i < count; i++) {
+            if (persons.names()[i] != null) {
+                names[i] = persons.names()[i].getBytes(StandardCharsets.UTF_8);
+                nameBytes += names[i].length;
+            }
+        }
+        Roaring64Bitmap ignored;
+        if (ignoredIds instanceof IgnoredIdSet ignoredIdSet) {
+            ignored = ignoredIdSet.copyBitmap();
+        } else {
+            ignored = new Roaring64Bitmap();
+            ignoredIds.forEach(ignored::addLong);
+        }
+        ByteBuffer ignoredBytes = ByteBuffer.allocate((int) ignored.serializedSizeInBytes());
+        ignored.serialize(ignoredBytes);
+        ignoredBytes.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter out = new SectionWriter(channel);
+            out.putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putLong(logGeneration)
+                    .putLong(matchesEvaluatedOn.toEpochDay())
+                    .putInt(count).putInt(childIdCount)
+                    .putLong(nameBytes)
+                    .putInt(ignoredBytes.remaining()).putInt(matchIds.size())
+                    .padTo(HEADER_BYTES);
+
+            out.putLongs(persons.ids(), count);
+            out.putLongs(persons.birthDays(), count);
+            out.putLongs(persons.parent1Ids(), count);
+            out.putLongs(persons.parent2Ids(), count);
+            out.putLongs(persons.partnerIds(), count);
+            out.putInts(persons.childCounts(), count);
+            out.putLongs(persons.childIds(), childIdCount);
+            for (byte[] name : names) {
+                out.putInt(name != null ? name.length : -1);
+            }
+            out.align();
+            for (byte[] name : names) {
+                if (name != null) {
+                    out.put(name);
+                }
+            }
+            out.align();
+            out.put(ignoredBytes.array());
+            out.align();
+            for (Long matchId : matchIds) {
+                out.putLong(matchId);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename lives in the directory, which a crash could otherwise roll back to the previous snapshot
+        try (FileChannel directory = FileChannel.open(path.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    /**
+     * Loads the snapshot at the given path.
+     *
+     * @return the snapshot, or {@code null} if there is none
+     * @throws IllegalStateException if the file is not a snapshot of this format version
+     */
+    public static PersonSnapshot load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            SectionReader in = new SectionReader(channel);
+            ByteBuffer header = in.map(HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IllegalStateException("Not a person snapshot (version " + FORMAT_VERSION + "): " + path);
+            }
+            long logGeneration = header.getLong();
+            LocalDate matchesEvaluatedOn = LocalDate.ofEpochDay(header.getLong());
+            int count = header.getInt();
+            int childIdCount = header.getInt();
+            long nameBytes = header.getLong();
+            int ignoredBytes = header.getInt();
+            int matchCount = header.getInt();
+
+            long[] ids = in.getLongs(count);
+            long[] birthDays = in.getLongs(count);
+            long[] parent1Ids = in.getLongs(count);
+            long[] parent2Ids = in.getLongs(count);
+            long[] partnerIds = in.getLongs(count);
+            int[] childCounts = in.getInts(count);
+            long[] childIds = in.getLongs(childIdCount);
+            int[] nameLengths = in.getInts(count);
+
+            String[] names = new String[count];
+            ByteBuffer nameSection = in.map(nameBytes);
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < count; i++) {
+                int length = nameLengths[i];
+                if (length >= 0) {
+                    if (length > scratch.length) {
+                        scratch = new byte[length];
+                    }
+                    nameSection.get(scratch, 0, length);
+                    names[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                }
+            }
+
+            Roaring64Bitmap ignored = new Roaring64Bitmap();
+            // Serialized with the bitmap's own (big-endian) layout
+            ignored.deserialize(in.map(ignoredBytes).order(ByteOrder.BIG_ENDIAN));
+            IgnoredIdSet ignoredIds = new IgnoredIdSet();
+            ignoredIds.ignoreAll(ignored);
+
+            long[] matchIds = in.getLongs(matchCount);
+
+            PersonColumns persons = new PersonColumns(count, ids, names, birthDays, parent1Ids, parent2Ids,
+                    partnerIds, childCounts, childIds);
+            return new PersonSnapshot(logGeneration, persons, ignoredIds, matchIds, matchesEvaluatedOn);
+        }
+    }
+
+    /**
+     * Buffered little-endian writer that pads sections to 8 bytes.
+     */
+    private static final class SectionWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer  buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        SectionWriter putInt(int value) throws IOException {
+            ensure(4).putInt(value);
+            return this;
+        }
+
+        SectionWriter putLong(long value) throws IOException {
+            ensure(8).putLong(value);
+            return this;
+        }
+
+        void putLongs(long[] values, int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                int chunk = Math.min(length - offset, ensure(8).remaining() / 8);
+                buffer.asLongBuffer().put(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * 8);
+                offset += chunk;
+            }
+        }
+
+        void putInts(int[] values, int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                int chunk = Math.min(length - offset, ensure(4).remaining() / 4);
+                buffer.asIntBuffer().put(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * 4);
+                offset += chunk;
+            }
+            align();
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int chunk = Math.min(bytes.length - offset, WRITE_BUFFER_BYTES);
+                ensure(chunk).put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        SectionWriter padTo(long position) throws IOException {
+            while (written + buffer.position() < position) {
+                ensure(1).put((byte) 0);
+            }
+            return this;
+        }
+
+        void align() throws IOException {
+            padTo((written + buffer.position() + 7) & ~7L);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Maps consecutive 8-byte aligned sections of the file.
+     */
+    private static final class SectionReader {
+
+        private final FileChannel channel;
+        private long position;
+
+        SectionReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer map(long length) throws IOException {
+            if (position + length > channel.size()) {
+                throw new IllegalStateException("Snapshot is truncated");
+            }
+            MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position = (position + length + 7) & ~7L;
+            return section.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        long[] getLongs(int length) throws IOException {
+            long[] values = new long[length];
+            map((long) length * 8).asLongBuffer().get(values);
+            return values;
+        }
+
+        int[] getInts(int length) throws IOException {
+            int[] values = new int[length];
+            map((long) length * 4).asIntBuffer().get(values);
+            return values;
+        }
+    }
+}
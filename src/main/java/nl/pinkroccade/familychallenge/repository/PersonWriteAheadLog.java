@@ -0,0 +1,572 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.ChildIdSet;
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary log of repository mutations, used to rebuild the store after a restart.
+ *
+ * <p>Each record is a save (the complete person) or a delete (a list of IDs), framed as
+ * {@code [int length][int CRC32C][payload]}. Absent fields of a person are marked in a flag byte instead
+ * of being written, so a typical record takes 40 to 70 bytes.</p>
+ *
+ * <p><b>Group commit:</b> appending only encodes the record into an in-memory buffer. A background
+ * flusher writes everything that accumulated with one {@link FileChannel#write} and one
+ * {@link FileChannel#force}, at most every {@code fsyncInterval} or as soon as {@code fsyncBatchBytes}
+ * are pending. An append therefore costs a buffer copy, and a crash loses at most the last unsynced batch.
+ * With {@code syncCommit} the caller additionally waits in {@link #awaitSynced(long)} until its batch has been
+ * forced to disk; the wait is separate from the append, so callers can release their own locks first and
+ * let concurrent writers share the next fsync.</p>
+ *
+ * <p><b>Segments:</b> the log is a series of numbered segment files in one directory. {@link #rotate()}
+ * starts a new segment, so that a {@link PersonSnapshot} taken afterwards only needs the segments from that
+ * generation on; older ones are removed with {@link #deleteSegmentsBefore(long)}.</p>
+ *
+ * <p>{@link #replay(PersonRepository, long)} applies all intact records to a repository. A torn or corrupt
+ * tail, left by a crash during a write, is truncated so that new records follow the last intact one.</p>
+ *
+ * <p>Thread-safe. Callers are responsible for appending in the order the mutations were applied.</p>
+ */
+public final class PersonWriteAheadLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonWriteAheadLog.class);
+
+    private static final int MAGIC          = 0x50574131; // "PWA1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES   = 8;
+    private static final int FRAME_BYTES    = 8;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("persons-(\\d{20})\\.wal");
+
+    private static final byte SAVE   = 1;
+    private static final byte DELETE = 2;
+
+    /* Flags marking which optional person fields follow */
+    private static final int HAS_BIRTH_DATE = 1;
+    private static final int HAS_PARENT1    = 1 << 1;
+    private static final int HAS_PARENT2    = 1 << 2;
+    private static final int HAS_PARTNER    = 1 << 3;
+    private static final int HAS_NAME       = 1 << 4;
+
+    private static final int READ_BUFFER_BYTES = 8 << 20;
+
+    /* Larger lengths can only come from a corrupt frame; large deletes are split to stay far below it */
+    private static final int MAX_RECORD_BYTES   = 64 << 20;
+    private static final int MAX_IDS_PER_DELETE = 1 << 16;
+
+    private final Path    directory;
+    private final long    fsyncIntervalNanos;
+    private final int     fsyncBatchBytes;
+    private final boolean syncCommit;
+
+    private final ReentrantLock lock           = new ReentrantLock();
+    private final Condition     flushRequested = lock.newCondition();
+    private final Condition     flushed        = lock.newCondition();
+    private final CRC32C        checksum       = new CRC32C();
+
+    /* Guarded by lock: the current segment, records waiting for the flusher, and the buffer it hands back */
+    private FileChannel channel;
+    private long        generation;
+    private ByteBuffer  pending;
+    private ByteBuffer  spare;
+    private long        appendedBytes;
+    private long        flushedBytes;
+    private boolean     flushImmediately;
+    private boolean     closed;
+    private IOException failure;
+
+    private final Thread flusher;
+
+    private PersonWriteAheadLog(Path directory, long generation, FileChannel channel, Duration fsyncInterval,
+                                int fsyncBatchBytes, boolean syncCommit) {
+        this.directory = directory;
+        this.generation = generation;
+        this.channel = channel;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.fsyncBatchBytes = Math.max(4096, fsyncBatchBytes);
+        this.syncCommit = syncCommit;
+        this.pending = ByteBuffer.allocateDirect(this.fsyncBatchBytes);
+        this.spare = ByteBuffer.allocateDirect(this.fsyncBatchBytes);
+        this.flusher = Thread.ofPlatform().name("person-wal-flusher").daemon().start(this::runFlusher);
+    }
+
+    /**
+     * Opens the log in the given directory, creating the directory and a first segment if needed.
+     *
+     * @param directory       the directory holding the segments
+     * @param fsyncInterval   how long the flusher collects records before writing and syncing them
+     * @param fsyncBatchBytes pending bytes that trigger a write before the interval has passed
+     * @param syncCommit      whether an append waits until its record has been synced to disk
+     * @return the opened log, appending to the end of its newest segment
+     * @throws IllegalStateException if a segment is not a person write-ahead log
+     */
+    public static PersonWriteAheadLog open(Path directory, Duration fsyncInterval, int fsyncBatchBytes,
+                                           boolean syncCommit) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> generations = listGenerations(directory);
+        long generation = generations.isEmpty() ? 1 : generations.getLast();
+        FileChannel channel = openSegment(directory, generation);
+        return new PersonWriteAheadLog(directory, generation, channel, fsyncInterval, fsyncBatchBytes, syncCommit);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Applies all intact records of the segments from the given generation on to the given repository,
+     * in the order they were appended. Must be called before the first append.
+     *
+     * @param target         the repository to rebuild
+     * @param fromGeneration the first generation to replay; 0 replays everything
+     * @return the number of records applied
+     */
+    public long replay(PersonRepository target, long fromGeneration) throws IOException {
+        long records = 0;
+        for (long segment : listGenerations(directory)) {
+            if (segment < fromGeneration) {
+                continue;
+            }
+            if (segment == generation) {
+                records += replaySegment(channel, segmentPath(directory, segment), target);
+            } else {
+                try (FileChannel older = openSegment(directory, segment)) {
+                    records += replaySegment(older, segmentPath(directory, segment), target);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Starts a new segment. All records appended so far are written and synced to the current one first.
+     * The caller must make sure no appends run concurrently.
+     *
+     * @return the generation of the new segment; replaying from it skips all earlier records
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            checkUsable();
+            flushImmediately = true;
+            while (flushedBytes < appendedBytes) {
+                flushRequested.signal();
+                flushed.awaitUninterruptibly();
+                checkUsable();
+            }
+            flushImmediately = false;
+
+            // The flusher is idle: it only touches the channel while it holds a non-empty batch
+            FileChannel next = openSegment(directory, generation + 1);
+            channel.close();
+            channel = next;
+            generation++;
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the segments older than the given generation, once a snapshot contains their records.
+     */
+    public void deleteSegmentsBefore(long firstKept) throws IOException {
+        for (long segment : listGenerations(directory)) {
+            if (segment < firstKept) {
+                Files.deleteIfExists(segmentPath(directory, segment));
+            }
+        }
+    }
+
+    /**
+     * Appends a saved person. Returns once the record is buffered.
+     *
+     * @return the log position after the record, to pass to {@link #awaitSynced(long)}
+     */
+    public long appendSave(Person person) {
+        long birthDate = person.getBirthDate() != null ? person.getBirthDate().toEpochDay() : 0;
+        byte[] name = person.getName() != null ? person.getName().getBytes(StandardCharsets.UTF_8) : null;
+        int flags = (person.getBirthDate() != null ? HAS_BIRTH_DATE : 0)
+                | (person.getParent1Id() != null ? HAS_PARENT1 : 0)
+                | (person.getParent2Id() != null ? HAS_PARENT2 : 0)
+                | (person.getPartnerId() != null ? HAS_PARTNER : 0)
+                | (name != null ? HAS_NAME : 0);
+        int childCount = person.getChildCount();
+        int length = 1 + 8 + 1 + 8 * Integer.bitCount(flags & ~HAS_NAME) + 4 + 8 * childCount
+                + (name != null ? 4 + name.length : 0);
+
+        lock.lock();
+        try {
+            ByteBuffer buffer = reserve(length);
+            buffer.put(SAVE).putLong(person.getId()).put((byte) flags);
+            if ((flags & HAS_BIRTH_DATE) != 0) {
+                buffer.putLong(birthDate);
+            }
+            if ((flags & HAS_PARENT1) != 0) {
+                buffer.putLong(person.getParent1Id());
+            }
+            if ((flags & HAS_PARENT2) != 0) {
+                buffer.putLong(person.getParent2Id());
+            }
+            if ((flags & HAS_PARTNER) != 0) {
+                buffer.putLong(person.getPartnerId());
+            }
+            buffer.putInt(childCount);
+            for (int i = 0; i < childCount; i++) {
+                buffer.putLong(person.getChildIdAt(i));
+            }
+            if (name != null) {
+                buffer.putInt(name.length).put(name);
+            }
+            commit(length);
+            return appendedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a delete of the given IDs. Returns once the record is buffered.
+     *
+     * @return the log position after the record, to pass to {@link #awaitSynced(long)}
+     */
+    public long appendDelete(List<Long> ids) {
+        lock.lock();
+        try {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_DELETE) {
+                List<Long> part = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_DELETE));
+                int length = 1 + 4 + 8 * part.size();
+                ByteBuffer buffer = reserve(length);
+                buffer.put(DELETE).putInt(part.size());
+                part.forEach(buffer::putLong);
+                commit(length);
+            }
+            return appendedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * With {@code syncCommit}, waits until the log has been synced up to the given position; otherwise
+     * returns immediately.
+     *
+     * @param position a position returned by an append
+     */
+    public void awaitSynced(long position) {
+        if (!syncCommit) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (flushedBytes < position) {
+                checkUsable();
+                flushed.awaitUninterruptibly();
+            }
+            checkUsable();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes and syncs all pending records, stops the flusher and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Makes room for a record of the given payload length and writes its frame placeholder.
+     * Blocks while the flusher is too far behind. Must hold the lock.
+     */
+    private ByteBuffer reserve(int length) {
+        checkUsable();
+        int frameLength = FRAME_BYTES + length;
+        while (pending.position() > 0 && pending.position() + frameLength > fsyncBatchBytes * 4) {
+            // Back-pressure: the disk cannot keep up, so wait instead of buffering without bound
+            flushRequested.signal();
+            flushed.awaitUninterruptibly();
+            checkUsable();
+        }
+        if (pending.remaining() < frameLength) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + frameLength);
+            pending = ByteBuffer.allocateDirect(capacity).put(pending.flip());
+        }
+        return pending.putInt(length).putInt(0);
+    }
+
+    /**
+     * Fills in the checksum of the record just written and hands it to the flusher. Must hold the lock.
+     */
+    private void commit(int length) {
+        int payloadStart = pending.position() - length;
+        checksum.reset();
+        checksum.update(pending.slice(payloadStart, length));
+        pending.putInt(payloadStart - 4, (int) checksum.getValue());
+
+        boolean wasEmpty = pending.position() == FRAME_BYTES + length;
+        appendedBytes += FRAME_BYTES + length;
+        if (wasEmpty || syncCommit || pending.position() >= fsyncBatchBytes) {
+            flushRequested.signal();
+        }
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log in " + directory + " failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log in " + directory + " is closed");
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel target;
+            long batchEnd;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    flushRequested.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return; // Closed and drained
+                }
+                // Collect more records for the same fsync, unless the batch is full or a writer is waiting
+                long deadline = System.nanoTime() + fsyncIntervalNanos;
+                long remaining;
+                while (!closed && !syncCommit && !flushImmediately && pending.position() < fsyncBatchBytes
+                        && (remaining = deadline - System.nanoTime()) > 0) {
+                    flushRequested.awaitNanos(remaining);
+                }
+                batch = pending;
+                pending = spare;
+                target = channel;
+                batchEnd = appendedBytes;
+            } catch (InterruptedException e) {
+                continue;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = write(target, batch.flip());
+            batch.clear();
+
+            lock.lock();
+            try {
+                spare = batch;
+                flushedBytes = batchEnd;
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private IOException write(FileChannel target, ByteBuffer batch) {
+        try {
+            while (batch.hasRemaining()) {
+                target.write(batch);
+            }
+            target.force(false);
+            return null;
+        } catch (IOException e) {
+            log.error("Failed to write {} byte(s) to write-ahead log in {}", batch.limit(), directory, e);
+            return e;
+        }
+    }
+
+    private long replaySegment(FileChannel segment, Path path, PersonRepository target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES).flip();
+        long readPosition = HEADER_BYTES;
+        long validEnd = HEADER_BYTES;
+        long records = 0;
+        long[] ids = new long[16];
+
+        while (true) {
+            int available = buffer.remaining();
+            int length = available >= FRAME_BYTES ? buffer.getInt(buffer.position()) : 0;
+            if (length > MAX_RECORD_BYTES) {
+                break; // Corrupt frame
+            }
+            if (available < FRAME_BYTES || (length > 0 && available < FRAME_BYTES + length)) {
+                if (length > buffer.capacity() - FRAME_BYTES) {
+                    buffer = ByteBuffer.allocateDirect(FRAME_BYTES + length).put(buffer).flip();
+                }
+                buffer.compact();
+                int read = segment.read(buffer, readPosition);
+                buffer.flip();
+                if (read <= 0) {
+                    break; // End of file, possibly with a torn record
+                }
+                readPosition += read;
+                continue;
+            }
+
+            int start = buffer.position();
+            ByteBuffer payload = buffer.slice(start + FRAME_BYTES, Math.max(length, 0));
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            if (length <= 0 || (int) checksum.getValue() != buffer.getInt(start + 4)) {
+                break; // Corrupt record; everything after it is unreliable
+            }
+            ids = apply(payload, target, ids);
+            buffer.position(start + FRAME_BYTES + length);
+            validEnd += FRAME_BYTES + length;
+            records++;
+        }
+
+        long size = segment.size();
+        if (validEnd < size) {
+            log.warn("Truncating {} byte(s) of torn or corrupt records at the end of {}", size - validEnd, path);
+            segment.truncate(validEnd);
+        }
+        segment.position(validEnd);
+        return records;
+    }
+
+    /**
+     * Opens a segment, writing the header if it is new, and positions it at its end.
+     */
+    private static FileChannel openSegment(Path directory, long generation) throws IOException {
+        Path path = segmentPath(directory, generation);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (channel.size() < HEADER_BYTES) {
+                // New segment, or a crash while the header of a new segment was written
+                channel.truncate(0);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            } else {
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                    throw new IllegalStateException("Not a person write-ahead log (version "
+                            + FORMAT_VERSION + "): " + path);
+                }
+            }
+            channel.position(channel.size());
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Path segmentPath(Path directory, long generation) {
+        return directory.resolve("persons-%020d.wal".formatted(generation));
+    }
+
+    /**
+     * @return the generations of the segments in the directory, ascending
+     */
+    private static List<Long> listGenerations(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Applies one record to the repository.
+     *
+     * @return the scratch array for IDs, grown if needed
+     */
+    private static long[] apply(ByteBuffer payload, PersonRepository target, long[] ids) {
+        byte type = payload.get();
+        if (type == DELETE) {
+            int count = payload.getInt();
+            Long[] deleted = new Long[count];
+            for (int i = 0; i < count; i++) {
+                deleted[i] = payload.getLong();
+            }
+            target.deleteByIds(List.of(deleted));
+            return ids;
+        }
+        if (type != SAVE) {
+            throw new IllegalStateException("Unknown write-ahead log record type " + type);
+        }
+
+        Person person = new Person(payload.getLong());
+        int flags = payload.get();
+        if ((flags & HAS_BIRTH_DATE) != 0) {
+            person.setBirthDate(LocalDate.ofEpochDay(payload.getLong()));
+        }
+        if ((flags & HAS_PARENT1) != 0) {
+            person.setParent1Id(payload.getLong());
+        }
+        if ((flags & HAS_PARENT2) != 0) {
+            person.setParent2Id(payload.getLong());
+        }
+        if ((flags & HAS_PARTNER) != 0) {
+            person.setPartnerId(payload.getLong());
+        }
+        int childCount = payload.getInt();
+        if (childCount > 0) {
+            if (childCount > ids.length) {
+                ids = new long[Math.max(childCount, ids.length * 2)];
+            }
+            for (int i = 0; i < childCount; i++) {
+                ids[i] = payload.getLong();
+            }
+            // Written in ascending order from a ChildIdSet, so the region is sorted and distinct
+            person.setChildrenIds(ChildIdSet.copyOf(ids, 0, childCount));
+        }
+        if ((flags & HAS_NAME) != 0) {
+            byte[] name = new byte[payload.getInt()];
+            payload.get(name);
+            person.setName(new String(name, StandardCharsets.UTF_8));
+        }
+        target.save(person);
+        return ids;
+    }
+}
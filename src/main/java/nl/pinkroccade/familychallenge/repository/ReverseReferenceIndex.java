@@ -0,0 +1,85 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reverse index from a person ID to the persons that reference it as parent1, parent2, partner or child.
+ *
+ * <p>Persons are mutated in place before they are saved, so the index keeps its own copy of the
+ * references it last indexed for every person. On update only the difference between the indexed
+ * and the current references is applied.</p>
+ *
+ * <p>Referenced IDs do not need to exist: forward references are indexed as well.</p>
+ *
+ * <p>Thread-safe without a global lock: updates of one person are serialized by the concurrent map entry of its
+ * indexed references, and changes to the referrers of one ID by the entry of that ID.</p>
+ */
+public class ReverseReferenceIndex {
+
+    /* referenced ID -> IDs of persons referencing it */
+    private final ConcurrentMap<Long, Set<Long>> referrers = new ConcurrentHashMap<>();
+
+    /* person ID -> IDs it referenced when last indexed */
+    private final ConcurrentMap<Long, Set<Long>> indexedReferences = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the indexed references of a person.
+     *
+     * @param id            the referencing person
+     * @param referencedIds all IDs the person currently references
+     */
+    public void update(Long id, Set<Long> referencedIds) {
+        indexedReferences.compute(id, (key, indexed) -> {
+            Set<Long> previous = indexed != null ? indexed : Set.of();
+            for (Long referencedId : previous) {
+                if (!referencedIds.contains(referencedId)) {
+                    unlink(referencedId, id);
+                }
+            }
+            for (Long referencedId : referencedIds) {
+                if (!previous.contains(referencedId)) {
+                    link(referencedId, id);
+                }
+            }
+            return referencedIds.isEmpty() ? null : Set.copyOf(referencedIds);
+        });
+    }
+
+    /**
+     * Removes all references made by a person. References made by others to this person are kept,
+     * since those persons still hold the ID until they are cleaned up.
+     */
+    public void remove(Long id) {
+        update(id, Set.of());
+    }
+
+    /**
+     * @return a copy of the IDs of persons referencing the given ID
+     */
+    public Set<Long> referrersOf(Long id) {
+        Set<Long> found = id != null ? referrers.get(id) : null;
+        return found != null ? Set.copyOf(found) : Set.of();
+    }
+
+    public void clear() {
+        referrers.clear();
+        indexedReferences.clear();
+    }
+
+    private void link(Long referencedId, Long referrerId) {
+        referrers.compute(referencedId, (key, found) -> {
+            Set<Long> updated = found != null ? found : ConcurrentHashMap.newKeySet();
+            updated.add(referrerId);
+            return updated;
+        });
+    }
+
+    private void unlink(Long referencedId, Long referrerId) {
+        referrers.computeIfPresent(referencedId, (key, found) -> {
+            found.remove(referrerId);
+            return found.isEmpty() ? null : found;
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Birth date index of {@link ColumnarPersonRepository}, from an epoch day to the slots of the persons born on it.
+ *
+ * <p>The slots born on the same day form a doubly linked list kept in two slot-indexed {@code int} columns, so
+ * a slot is unlinked in constant time; the head of each day is found through a {@link LongIntHashMap}.
+ * Not thread-safe; the repository guards it with its lock.</p>
+ */
+final class SlotBirthDateIndex {
+
+    /* Also what the heads map returns for a day without births */
+    private static final int NO_SLOT = LongIntHashMap.NO_VALUE;
+
+    /* epoch day -> first slot born on it */
+    private final LongIntHashMap heads;
+
+    /* Neighbours of each slot in the list of its birth day */
+    private int[] nextSlots;
+    private int[] previousSlots;
+
+    SlotBirthDateIndex(int capacity) {
+        heads = new LongIntHashMap(capacity / 8);
+        nextSlots = new int[capacity];
+        previousSlots = new int[capacity];
+    }
+
+    /**
+     * Grows the slot columns along with those of the repository.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > nextSlots.length) {
+            nextSlots = Arrays.copyOf(nextSlots, capacity);
+            previousSlots = Arrays.copyOf(previousSlots, capacity);
+        }
+    }
+
+    void add(long birthDay, int slot) {
+        int head = heads.get(birthDay);
+        nextSlots[slot] = head;
+        previousSlots[slot] = NO_SLOT;
+        if (head != NO_SLOT) {
+            previousSlots[head] = slot;
+        }
+        heads.put(birthDay, slot);
+    }
+
+    /**
+     * Removes a slot added with the given birth day.
+     */
+    void remove(long birthDay, int slot) {
+        int next = nextSlots[slot];
+        int previous = previousSlots[slot];
+        if (next != NO_SLOT) {
+            previousSlots[next] = previous;
+        }
+        if (previous != NO_SLOT) {
+            nextSlots[previous] = next;
+        } else if (next != NO_SLOT) {
+            heads.put(birthDay, next);
+        } else {
+            heads.remove(birthDay);
+        }
+    }
+
+    /**
+     * @return the number of distinct birth days
+     */
+    int dayCount() {
+        return heads.size();
+    }
+
+    /**
+     * Passes every slot born on the given day to the action.
+     */
+    void forEachBornOn(long birthDay, IntConsumer action) {
+        for (int slot = heads.get(birthDay); slot != NO_SLOT; slot = nextSlots[slot]) {
+            action.accept(slot);
+        }
+    }
+
+    void clear() {
+        heads.clear();
+    }
+}
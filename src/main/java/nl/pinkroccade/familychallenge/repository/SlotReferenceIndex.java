@@ -0,0 +1,92 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Reverse reference index of {@link ColumnarPersonRepository}, from a referenced ID to the slots of the persons
+ * referencing it.
+ *
+ * <p>Entries live in two parallel {@code int} columns and are chained per referenced ID; the head of each chain
+ * is found through a {@link LongIntHashMap}. A slot referencing the same ID twice, for instance as both
+ * parents, has an entry for each reference. Removed entries are reused by later additions.
+ * Not thread-safe; the repository guards it with its lock.</p>
+ */
+final class SlotReferenceIndex {
+
+    /* Also what the heads map returns for an ID without references */
+    private static final int NO_ENTRY = LongIntHashMap.NO_VALUE;
+
+    /* referenced ID -> first entry of its chain */
+    private final LongIntHashMap heads;
+
+    /* Entries: referencing slot and next entry of the same chain, or of the free list */
+    private int[] entrySlots;
+    private int[] entryNext;
+    private int   entryCount;
+    private int   freeEntry = NO_ENTRY;
+
+    SlotReferenceIndex(int initialCapacity) {
+        heads = new LongIntHashMap(initialCapacity);
+        entrySlots = new int[initialCapacity];
+        entryNext = new int[initialCapacity];
+    }
+
+    void add(long referencedId, int slot) {
+        int entry = allocateEntry();
+        entrySlots[entry] = slot;
+        entryNext[entry] = heads.get(referencedId);
+        heads.put(referencedId, entry);
+    }
+
+    /**
+     * Removes one reference from the slot to the ID, if indexed.
+     */
+    void remove(long referencedId, int slot) {
+        int previous = NO_ENTRY;
+        for (int entry = heads.get(referencedId); entry != NO_ENTRY; entry = entryNext[entry]) {
+            if (entrySlots[entry] == slot) {
+                int next = entryNext[entry];
+                if (previous != NO_ENTRY) {
+                    entryNext[previous] = next;
+                } else if (next != NO_ENTRY) {
+                    heads.put(referencedId, next);
+                } else {
+                    heads.remove(referencedId);
+                }
+                entryNext[entry] = freeEntry;
+                freeEntry = entry;
+                return;
+            }
+            previous = entry;
+        }
+    }
+
+    /**
+     * Passes every slot referencing the ID to the action, once per reference.
+     */
+    void forEachReferrer(long referencedId, IntConsumer action) {
+        for (int entry = heads.get(referencedId); entry != NO_ENTRY; entry = entryNext[entry]) {
+            action.accept(entrySlots[entry]);
+        }
+    }
+
+    void clear() {
+        heads.clear();
+        entryCount = 0;
+        freeEntry = NO_ENTRY;
+    }
+
+    private int allocateEntry() {
+        if (freeEntry != NO_ENTRY) {
+            int entry = freeEntry;
+            freeEntry = entryNext[entry];
+            return entry;
+        }
+        if (entryCount == entrySlots.length) {
+            entrySlots = Arrays.copyOf(entrySlots, entrySlots.length * 2);
+            entryNext = Arrays.copyOf(entryNext, entryNext.length * 2);
+        }
+        return entryCount++;
+    }
+}
@@ -0,0 +1,202 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * Makes a {@link PersonRepository} durable by recording its mutations in a {@link PersonWriteAheadLog}.
+ *
+ * <p>On construction the latest {@link PersonSnapshot} in the log directory, if any, is restored into the
+ * (empty) delegate and only the log segments written after it are replayed, restoring the graph and the
+ * ignored IDs. The match set stored with the snapshot is available from {@link #getRestoredMatches()}.
+ * Afterwards every successful save and every delete is applied to the delegate and appended to the log under
+ * one lock, so the log order always matches the order in which mutations became visible. Both steps are
+ * in-memory; writing and syncing the log happens in the background. In sync-commit mode the caller then
+ * waits for the sync after releasing the lock, so concurrent writers keep appending and share one fsync.</p>
+ *
+ * <p>Reads are passed through unchanged.</p>
+ */
+public class WriteAheadLoggedPersonRepository implements PersonRepository, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLoggedPersonRepository.class);
+
+    private final PersonRepository    delegate;
+    private final PersonWriteAheadLog writeAheadLog;
+    private final Path                snapshotFile;
+    private final MatchSetSnapshot    restoredMatches;
+
+    private final ReentrantLock writeLock    = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    public WriteAheadLoggedPersonRepository(PersonRepository delegate, PersonWriteAheadLog writeAheadLog)
+            throws IOException {
+        this.delegate = delegate;
+        this.writeAheadLog = writeAheadLog;
+        this.snapshotFile = writeAheadLog.getDirectory().resolve(PersonSnapshot.FILE_NAME);
+
+        long started = System.nanoTime();
+        PersonSnapshot snapshot = PersonSnapshot.load(snapshotFile);
+        long fromGeneration = 0;
+        if (snapshot != null) {
+            delegate.restore(snapshot.persons(), snapshot.ignoredIds());
+            fromGeneration = snapshot.logGeneration();
+            restoredMatches = new MatchSetSnapshot(LongStream.of(snapshot.matchIds()).boxed().toList(),
+                    snapshot.matchesEvaluatedOn(), delegate.currentVersion());
+            log.info("Restored {} person(s) from snapshot in {} ms", snapshot.persons().count(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } else {
+            restoredMatches = null;
+        }
+        long records = writeAheadLog.replay(delegate, fromGeneration);
+        writeAheadLog.deleteSegmentsBefore(fromGeneration);
+        log.info("Replayed {} write-ahead log record(s) into {}, ready after {} ms", records,
+                delegate.getClass().getSimpleName(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * @return the match set stored with the restored snapshot, reflecting the repository as of its version;
+     *         empty if there was no snapshot
+     */
+    public Optional<MatchSetSnapshot> getRestoredMatches() {
+        return Optional.ofNullable(restoredMatches);
+    }
+
+    /**
+     * Writes a snapshot of the repository and the match set, then drops the log segments it covers.
+     *
+     * <p>The log is cut first and the match set is requested afterwards, so it reflects at least every
+     * mutation before the cut. Persons and ignored IDs are copied while writes continue; a mutation racing
+     * with the copy is also in the log after the cut, and replaying it on restore yields its final state,
+     * since every record carries the complete person.</p>
+     *
+     * @param matches supplies the current match set
+     */
+    public void snapshot(Supplier<MatchSetSnapshot> matches) throws IOException {
+        snapshotLock.lock();
+        try {
+            long started = System.nanoTime();
+            long generation;
+            writeLock.lock();
+            try {
+                generation = writeAheadLog.rotate();
+            } finally {
+                writeLock.unlock();
+            }
+
+            MatchSetSnapshot matchSet = matches.get();
+            PersonColumns persons = delegate.exportColumns();
+            PersonSnapshot.write(snapshotFile, generation, persons, delegate.getIgnoredIds(), matchSet.ids(),
+                    matchSet.evaluatedOn());
+            // Only after the snapshot and its rename are on disk, or a crash could lose both
+            writeAheadLog.deleteSegmentsBefore(generation);
+            log.info("Wrote snapshot of {} person(s) in {} ms", persons.count(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Person> save(Person person) {
+        Optional<Person> saved;
+        long position;
+        writeLock.lock();
+        try {
+            saved = delegate.save(person);
+            position = saved.isPresent() ? writeAheadLog.appendSave(saved.get()) : 0;
+        } finally {
+            writeLock.unlock();
+        }
+        writeAheadLog.awaitSynced(position);
+        return saved;
+    }
+
+    @Override
+    public void deleteByIds(List<Long> ids) {
+        long position;
+        writeLock.lock();
+        try {
+            delegate.deleteByIds(ids);
+            position = writeAheadLog.appendDelete(ids);
+        } finally {
+            writeLock.unlock();
+        }
+        writeAheadLog.awaitSynced(position);
+    }
+
+    @Override
+    public Optional<Person> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Collection<Person> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public int count() {
+        return delegate.count();
+    }
+
+    @Override
+    public boolean isIgnored(Long id) {
+        return delegate.isIgnored(id);
+    }
+
+    @Override
+    public Set<Long> getIgnoredIds() {
+        return delegate.getIgnoredIds();
+    }
+
+    @Override
+    public Set<Long> findReferrerIds(Long id) {
+        return delegate.findReferrerIds(id);
+    }
+
+    @Override
+    public Set<Long> findIdsBornBetween(LocalDate after, LocalDate until) {
+        return delegate.findIdsBornBetween(after, until);
+    }
+
+    @Override
+    public long currentVersion() {
+        return delegate.currentVersion();
+    }
+
+    @Override
+    public ChangeSet changesSince(long sinceVersion) {
+        return delegate.changesSince(sinceVersion);
+    }
+
+    @Override
+    public void discardChangesUpTo(long upToVersion) {
+        delegate.discardChangesUpTo(upToVersion);
+    }
+
+    @Override
+    public PersonColumns exportColumns() {
+        return delegate.exportColumns();
+    }
+
+    /**
+     * Syncs the remaining log records and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        writeAheadLog.close();
+    }
+}
@@ -0,0 +1,23 @@
+package nl.pinkroccade.familychallenge.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Triggers {@link PatternMatchingService#rolloverDay()} at midnight, so children turning 18 drop out of
+ * the match set right away instead of on the next request.
+ */
+@Component
+public class DayRolloverScheduler {
+
+    private final PatternMatchingService patternMatchingService;
+
+    public DayRolloverScheduler(PatternMatchingService patternMatchingService) {
+        this.patternMatchingService = patternMatchingService;
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rolloverAtMidnight() {
+        patternMatchingService.rolloverDay();
+    }
+}
@@ -0,0 +1,76 @@
+package nl.pinkroccade.familychallenge.service;
+
+import nl.pinkroccade.familychallenge.dto.ImportStatusDTO;
+
+import java.time.Instant;
+
+/**
+ * Live counters of a single streaming import.
+ *
+ * <p>Written only by the importing request thread and read concurrently by progress requests.
+ * With a single writer, volatile fields are enough: a snapshot may be slightly behind but is never torn.</p>
+ */
+public class ImportProgress {
+
+    enum State { RUNNING, COMPLETED, FAILED }
+
+    private final long    id;
+    private final Instant startedAt = Instant.now();
+
+    private volatile State   state = State.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile long    bytesRead;
+    private volatile long    recordsRead;
+    private volatile long    recordsStored;
+    private volatile long    recordsIgnored;
+    private volatile long    chunksApplied;
+    private volatile String  error;
+
+    ImportProgress(long id) {
+        this.id = id;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    void recordRead(long byteOffset) {
+        bytesRead = byteOffset;
+        recordsRead++;
+    }
+
+    void chunkApplied(int size, int stored) {
+        recordsStored += stored;
+        recordsIgnored += size - stored;
+        chunksApplied++;
+    }
+
+    void completed() {
+        finishedAt = Instant.now();
+        state = State.COMPLETED;
+    }
+
+    void failed(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    public ImportStatusDTO snapshot() {
+        return new ImportStatusDTO(
+                id,
+                state.name(),
+                startedAt,
+                finishedAt,
+                bytesRead,
+                recordsRead,
+                recordsStored,
+                recordsIgnored,
+                chunksApplied,
+                error);
+    }
+}
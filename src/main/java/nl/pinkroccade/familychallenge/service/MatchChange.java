@@ -0,0 +1,23 @@
+package nl.pinkroccade.familychallenge.service;
+
+import java.util.List;
+
+/**
+ * A change of the match set as pushed to the subscribers of the {@link MatchFeed}.
+ *
+ * @param kind       what happened to the match set
+ * @param version    the version of the match set after the change
+ * @param addedIds   IDs of the persons that started matching, ascending; empty unless {@link Kind#CHANGED}
+ * @param removedIds IDs of the persons that stopped matching, ascending; empty unless {@link Kind#CHANGED}
+ */
+public record MatchChange(Kind kind, MatchVersion version, List<Long> addedIds, List<Long> removedIds) {
+
+    public enum Kind {
+        /* First event of a subscription: the version all following changes build on */
+        SUBSCRIBED,
+        /* Persons were added to or removed from the match set */
+        CHANGED,
+        /* The match set was rebuilt or restored without knowing the individual changes */
+        RESET
+    }
+}
@@ -0,0 +1,19 @@
+package nl.pinkroccade.familychallenge.service;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+
+import java.util.List;
+
+/**
+ * Changes of the match set since a client's last seen {@link MatchVersion}.
+ *
+ * <p>Each person that entered or left the match set in between is listed once, according to its current
+ * state, so applying the delta to the client's copy yields the current match set no matter how often the
+ * person flipped.</p>
+ *
+ * @param version    the version the delta brings the client to
+ * @param added      persons whose match status changed and who currently match, ordered by ID
+ * @param removedIds IDs of persons whose match status changed and who no longer match, ascending
+ */
+public record MatchDelta(MatchVersion version, List<Person> added, List<Long> removedIds) {
+}
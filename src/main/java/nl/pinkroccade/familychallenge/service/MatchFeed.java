@@ -0,0 +1,205 @@
+package nl.pinkroccade.familychallenge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the changes of the match set to subscribers, such as the Server-Sent Events of
+ * {@code MatchFeedController}.
+ *
+ * <p>{@link PatternMatchingService} publishes every change while holding its match lock, so the changes arrive
+ * in version order and publishing must never block. Each subscriber therefore gets a queue of
+ * {@code buffer-size} changes, drained into its {@link Sink} by a virtual thread of its own. A subscriber whose
+ * queue is full is dropped rather than waited for: its sink is closed with {@code dropped}, and the client has
+ * to reload the matches and subscribe again. Without subscribers, publishing costs nothing.</p>
+ *
+ * <p>After {@code heartbeat-interval-ms} without changes a subscriber is sent a heartbeat, which keeps idle
+ * connections open and detects clients that went away.</p>
+ */
+@Service
+public class MatchFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchFeed.class);
+
+    /**
+     * Receives the changes of one subscription, always on the subscription's own thread.
+     */
+    public interface Sink {
+
+        void send(MatchChange change) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        /**
+         * Called once when the subscription ends.
+         *
+         * @param dropped whether it ended because the subscriber fell more than the buffer behind
+         */
+        void close(boolean dropped);
+    }
+
+    private final int                bufferSize;
+    private final int                maxSubscribers;
+    private final long               heartbeatIntervalMs;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger      subscriberCount = new AtomicInteger();
+    private final Counter            droppedCounter;
+
+    public MatchFeed(FamilyChallengeProperties properties, MeterRegistry meterRegistry) {
+        FamilyChallengeProperties.MatchFeed settings = properties.getMatchFeed();
+        this.bufferSize = Math.max(1, settings.getBufferSize());
+        this.maxSubscribers = settings.isEnabled() ? settings.getMaxSubscribers() : 0;
+        this.heartbeatIntervalMs = Math.max(1, settings.getHeartbeatIntervalMs());
+        Gauge.builder("family.feed.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Subscribers of the match change feed")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("family.feed.dropped")
+                .description("Subscribers of the match change feed dropped for falling behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ends all subscriptions as soon as shutdown starts; the web server's graceful shutdown would otherwise wait
+     * for their never-ending responses.
+     */
+    @EventListener(ContextClosedEvent.class)
+    void closeAll() {
+        subscriptions.forEach(Subscription::cancel);
+    }
+
+    /**
+     * @return whether anyone is subscribed
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Starts a subscription whose first change is {@link MatchChange.Kind#SUBSCRIBED} with the given version.
+     * Use {@link PatternMatchingService#subscribe(Sink)}, which passes the version the next change builds on.
+     *
+     * @return the subscription, or empty if the feed is disabled or already has {@code max-subscribers}
+     */
+    Optional<Subscription> subscribe(Sink sink, MatchVersion version) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return Optional.empty();
+        }
+        Subscription subscription = new Subscription(sink);
+        subscription.queue.add(new MatchChange(MatchChange.Kind.SUBSCRIBED, version, List.of(), List.of()));
+        subscription.thread = Thread.ofVirtual().name("match-feed").unstarted(subscription::run);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return Optional.of(subscription);
+    }
+
+    /**
+     * Publishes persons added to and removed from the match set.
+     *
+     * @param version the version of the match set after the change
+     */
+    void publishChanged(MatchVersion version, Collection<Long> addedIds, Collection<Long> removedIds) {
+        if (subscriptions.isEmpty() || (addedIds.isEmpty() && removedIds.isEmpty())) {
+            return;
+        }
+        publish(new MatchChange(MatchChange.Kind.CHANGED, version,
+                addedIds.stream().sorted().toList(), removedIds.stream().sorted().toList()));
+    }
+
+    /**
+     * Publishes that the match set was replaced as a whole, starting the given version.
+     */
+    void publishReset(MatchVersion version) {
+        if (!subscriptions.isEmpty()) {
+            publish(new MatchChange(MatchChange.Kind.RESET, version, List.of(), List.of()));
+        }
+    }
+
+    private void publish(MatchChange change) {
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.queue.offer(change)) {
+                log.info("Dropping match feed subscriber more than {} changes behind", bufferSize);
+                droppedCounter.increment();
+                subscription.end(true);
+            }
+        }
+    }
+
+    /**
+     * A subscriber of the feed.
+     */
+    public final class Subscription {
+
+        private final BlockingQueue<MatchChange> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final Sink                       sink;
+
+        private volatile boolean ended;
+        private volatile boolean dropped;
+        private Thread           thread;
+
+        private Subscription(Sink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Ends the subscription, for instance because the client disconnected.
+         */
+        public void cancel() {
+            end(false);
+        }
+
+        private void end(boolean drop) {
+            if (subscriptions.remove(this)) {
+                subscriberCount.decrementAndGet();
+                dropped = drop;
+                ended = true;
+                if (Thread.currentThread() != thread) {
+                    thread.interrupt();
+                }
+            }
+        }
+
+        private void run() {
+            try {
+                while (!ended) {
+                    MatchChange change = queue.poll(heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+                    if (ended) {
+                        break;
+                    }
+                    if (change != null) {
+                        sink.send(change);
+                    } else {
+                        sink.heartbeat();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // IllegalStateException: the sink was closed by the disconnecting client in the meantime
+                log.debug("Match feed subscriber disconnected: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                // Ended by cancel() or for falling behind
+            } finally {
+                end(false);
+                // An interrupt arriving during a send would also fail the close
+                Thread.interrupted();
+                sink.close(dropped);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package nl.pinkroccade.familychallenge.service;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded history of the persons added to or removed from the match set, numbered by {@link MatchVersion}.
+ *
+ * <p>The n-th change of an epoch is stored at index {@code n % capacity} of a ring, so only the IDs are kept
+ * and the oldest changes are overwritten. Not thread-safe; {@link PatternMatchingService} guards it with its
+ * match lock.</p>
+ */
+final class MatchFlipLog {
+
+    private final long[] ids;
+
+    private long epoch;
+    private long version;
+
+    MatchFlipLog(int capacity) {
+        this.ids = new long[Math.max(0, capacity)];
+        reset();
+    }
+
+    /**
+     * Records that the given person entered or left the match set.
+     */
+    void record(long id) {
+        if (ids.length > 0) {
+            ids[(int) (version % ids.length)] = id;
+        }
+        version++;
+    }
+
+    /**
+     * Starts a new epoch, invalidating all versions handed out before.
+     */
+    void reset() {
+        epoch = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        version = 0;
+    }
+
+    MatchVersion current() {
+        return new MatchVersion(epoch, version);
+    }
+
+    /**
+     * Returns the IDs of the persons that flipped after the given version.
+     *
+     * @return the IDs, ascending, or {@code null} if the version is from another epoch or no longer retained
+     */
+    SortedSet<Long> flippedSince(MatchVersion since) {
+        if (since.epoch() != epoch || since.version() < 0 || since.version() > version || version - since.version() > ids.length) {
+            return null;
+        }
+        SortedSet<Long> flipped = new TreeSet<>();
+        for (long change = since.version(); change < version; change++) {
+            flipped.add(ids[(int) (change % ids.length)]);
+        }
+        return flipped;
+    }
+}
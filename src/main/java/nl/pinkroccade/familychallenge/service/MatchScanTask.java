@@ -0,0 +1,61 @@
+package nl.pinkroccade.familychallenge.service;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Fork/join task evaluating the pattern over a range of a person snapshot.
+ *
+ * <p>Ranges larger than the chunk size are split in half; results are concatenated left to right,
+ * so the output keeps the order of the snapshot regardless of how the work was scheduled.</p>
+ *
+ * <p>Each leaf range gets its own matcher for the persons in it, so a matcher may keep per-thread state such
+ * as a reusable lookup context, or look up the relatives of all these persons up front.</p>
+ */
+@SuppressWarnings("serial") // Serializable through ForkJoinTask, but never serialized
+class MatchScanTask extends RecursiveTask<List<Long>> {
+
+    private final Person[]          persons;
+    private final int               from;
+    private final int               to;
+    private final int               chunkSize;
+    private final Function<List<Person>, Predicate<Person>> matchers;
+
+    MatchScanTask(Person[] persons, int from, int to, int chunkSize,
+                  Function<List<Person>, Predicate<Person>> matchers) {
+        this.persons = persons;
+        this.from = from;
+        this.to = to;
+        this.chunkSize = chunkSize;
+        this.matchers = matchers;
+    }
+
+    @Override
+    protected List<Long> compute() {
+        if (to - from <= chunkSize) {
+            Predicate<Person> matcher = matchers.apply(Arrays.asList(persons).subList(from, to));
+            List<Long> matches = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (matcher.test(persons[i])) {
+                    matches.add(persons[i].getId());
+                }
+            }
+            return matches;
+        }
+
+        int middle = (from + to) >>> 1;
+        MatchScanTask left = new MatchScanTask(persons, from, middle, chunkSize, matchers);
+        MatchScanTask right = new MatchScanTask(persons, middle, to, chunkSize, matchers);
+        left.fork();
+        List<Long> rightMatches = right.compute();
+        List<Long> matches = left.join();
+        matches.addAll(rightMatches);
+        return matches;
+    }
+}
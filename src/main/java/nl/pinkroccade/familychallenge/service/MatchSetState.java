@@ -0,0 +1,13 @@
+package nl.pinkroccade.familychallenge.service;
+
+/**
+ * Identifies everything a match response depends on: the contents of the repository and the match set.
+ *
+ * <p>Responses built for equal states are identical, so they can be cached with their state and served
+ * again as long as {@link PatternMatchingService#matchState()} still returns an equal one.</p>
+ *
+ * @param repositoryVersion the repository version, advanced by every save and delete
+ * @param matchVersion      the match set version, advanced by every flip
+ */
+public record MatchSetState(long repositoryVersion, MatchVersion matchVersion) {
+}
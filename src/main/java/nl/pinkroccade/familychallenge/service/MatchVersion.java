@@ -0,0 +1,44 @@
+package nl.pinkroccade.familychallenge.service;
+
+/**
+ * Identifies a state of the match set, as exchanged with clients requesting delta responses.
+ *
+ * <p>{@code version} counts the changes (persons added to or removed from the match set) since the set was
+ * last rebuilt or restored. Each rebuild or restore, including the one at startup, starts a new random
+ * {@code epoch}, so versions handed out before it are never mistaken for current ones.</p>
+ *
+ * @param epoch   identifies the match set instance
+ * @param version number of changes within the epoch
+ */
+public record MatchVersion(long epoch, long version) {
+
+    /**
+     * Parses the {@link #toString()} form.
+     *
+     * @throws IllegalArgumentException if the value is not a match version
+     */
+    public static MatchVersion parse(String value) {
+        int separator = value.indexOf('-');
+        long epoch;
+        long version;
+        try {
+            epoch = Long.parseUnsignedLong(value.substring(0, Math.max(0, separator)), 16);
+            version = Long.parseLong(value.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed match version: " + value);
+        }
+        // Epochs are drawn from the non-negative longs and versions count up from zero
+        if (epoch < 0 || version < 0) {
+            throw new IllegalArgumentException("Malformed match version: " + value);
+        }
+        return new MatchVersion(epoch, version);
+    }
+
+    /**
+     * @return {@code <epoch as hex>-<version>}
+     */
+    @Override
+    public String toString() {
+        return Long.toHexString(epoch) + "-" + version;
+    }
+}
@@ -1,14 +1,37 @@
 package nl.pinkroccade.familychallenge.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
 import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.ChangeSet;
+import nl.pinkroccade.familychallenge.repository.MatchSetSnapshot;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
+import nl.pinkroccade.familychallenge.service.strategy.age.AgeCutoff;
 import nl.pinkroccade.familychallenge.service.strategy.age.AgeValidationStrategy;
 import nl.pinkroccade.familychallenge.service.strategy.children.ChildCountStrategy;
 import nl.pinkroccade.familychallenge.service.strategy.partner.PartnerValidationStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Service to detect if a person matches the three-kid family pattern.
@@ -24,68 +47,540 @@ import java.util.Set;
  * <p><b>Strategy-based Design (ADR-04):</b></p>
  * <p>Uses three pluggable strategies to handle requirement ambiguities.
  * Strategies are configured in application.properties.</p>
+ *
+ * <p><b>Incremental matching:</b></p>
+ * <p>The current match set is kept between requests. Before answering, the service drains the IDs the
+ * repository changed since the last evaluation (see {@link PersonRepository#changesSince(long)}) and
+ * re-evaluates only the persons depending on them instead of the whole repository.</p>
+ *
+ * <p>Evaluations read the stored person versions, which writers replace rather than change in place, so
+ * matching runs in parallel with writes without locking and never sees a half-updated person. A request
+ * changing several persons may be observed halfway; every person it saves is logged as a change, though, so
+ * all persons depending on it are evaluated again once its last save is visible.</p>
+ *
+ * <p>Age checks use the thresholds of {@link AgeCutoff}. When the day changes, {@link #rolloverDay()}
+ * re-evaluates only the parents of children who turned 18 (or whose birth date is no longer in the future)
+ * and reports the persons whose match status flipped.</p>
+ *
+ * <p>Full re-scans ({@link #rebuildMatches()}) are still needed on a cold start without a snapshot
+ * (see {@link #restoreMatches(MatchSetSnapshot)}).
+ * With {@code family-challenge.matching-parallelism} above 1 they run on a dedicated, bounded
+ * {@link ForkJoinPool}.</p>
+ *
+ * <p>Every change of the match set is counted in a {@link MatchVersion}. A client that saw the matches at
+ * some version can ask for only the persons added or removed since then ({@link #matchesChangedSince}),
+ * as long as the changes are still within the last {@code family-challenge.match-delta-history}.</p>
+ *
+ * <p>The same changes are pushed to the subscribers of the {@link MatchFeed} as soon as they are detected,
+ * together with the version they lead to. A rebuild or restore, whose individual changes are unknown, is
+ * pushed as a reset.</p>
+ *
+ * <p>In a sharded deployment the repository only stores the persons of this instance, and the match set only
+ * holds those. Partners and children stored elsewhere are looked up from their owners, for all persons of a
+ * refresh, or of a chunk of a rebuild, at once (see {@link PersonRepository#findAllById}). When they change, their
+ * owner reports it ({@link #relativesChanged(Collection)}) and the persons here referencing them are
+ * re-evaluated with the next refresh. A day rollover rebuilds the match set instead, since the children turning
+ * 18 may be stored anywhere.</p>
+ *
+ * <p>Updates of the match set are serialized by a {@link ReentrantLock} rather than a monitor: on Java 21 a
+ * virtual thread blocked on a monitor pins its carrier thread, and every request refreshes the matches.
+ * Concurrent refreshes are combined: a caller whose changes were picked up by a refresh that ran meanwhile
+ * returns without refreshing again, so under load one refresh serves all writers that queued behind it.</p>
  */
 @Service
 public class PatternMatchingService {
 
+    private static final Logger log = LoggerFactory.getLogger(PatternMatchingService.class);
+
+    /* Smallest range worth forking a task for */
+    private static final int MIN_SCAN_CHUNK = 1024;
+
+    /* Persons whose relatives are looked up together by a sequential scan when sharded */
+    private static final int SHARDED_SCAN_BATCH = 1024;
+
     private final PersonRepository          repository;
     private final PartnerValidationStrategy partnerValidationStrategy;
     private final ChildCountStrategy        childCountStrategy;
     private final AgeValidationStrategy     ageValidationStrategy;
+    private final AgeCutoff                 ageCutoff;
+
+    /* Dedicated pool for full re-scans; null when scanning sequentially */
+    private final ForkJoinPool scanPool;
+
+    /* Sorted by ID so responses have a deterministic order */
+    private final NavigableSet<Long> matchedIds = new ConcurrentSkipListSet<>();
+
+    /* Last repository version whose changes are reflected in the match set; read without the lock to skip
+       refreshes that another caller already covered */
+    private volatile long evaluatedVersion;
+
+    /* Persons added to or removed from the match set, numbering its versions */
+    private final MatchFlipLog flipLog;
+
+    /* Serializes updates of the match set, evaluatedVersion and flipLog */
+    private final ReentrantLock matchLock = new ReentrantLock();
+
+    /* Persons stored on other instances that changed since the last refresh; only used when sharded */
+    private final Set<Long> changedRelativeIds = ConcurrentHashMap.newKeySet();
+
+    /* Relatives may be stored on other instances: they are looked up in batches, and a day rollover rebuilds */
+    private final boolean sharded;
+
+    private final MatchFeed matchFeed;
+    private final Timer     findMatchesTimer;
 
     public PatternMatchingService(
             PersonRepository repository,
             PartnerValidationStrategy partnerValidationStrategy,
             ChildCountStrategy childCountStrategy,
-            AgeValidationStrategy ageValidationStrategy) {
+            AgeValidationStrategy ageValidationStrategy,
+            AgeCutoff ageCutoff,
+            FamilyChallengeProperties properties,
+            MatchFeed matchFeed,
+            MeterRegistry meterRegistry) {
         this.repository = repository;
         this.partnerValidationStrategy = partnerValidationStrategy;
         this.childCountStrategy = childCountStrategy;
         this.ageValidationStrategy = ageValidationStrategy;
+        this.ageCutoff = ageCutoff;
+
+        int parallelism = properties.getMatchingParallelism();
+        this.scanPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.flipLog = new MatchFlipLog(properties.getMatchDeltaHistory());
+        this.sharded = properties.getShard().isEnabled();
+        this.matchFeed = matchFeed;
+        this.findMatchesTimer = Timer.builder("family.matches.find")
+                .description("Refreshing and materializing the matches")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdownScanPool() {
+        if (scanPool != null) {
+            scanPool.shutdown();
+        }
     }
 
     /**
-     * Finds all people who match the three-kid family pattern.
-     * Time complexity: O(n * k) where n = total people, k = children per person
+     * Returns all people who currently match the three-kid family pattern, ordered by ID.
+     * Time complexity: O(m) where m = number of matches
      *
      * @return List of people who match the pattern
      */
     public List<Person> findMatches() {
-        return repository.findAll().stream()
-                .filter(this::matchesPattern)
-                .toList();
+        return findMatchesTimer.record(() -> {
+            bringUpToDate();
+            return lookUp(matchedIds).toList();
+        });
+    }
+
+    /**
+     * Brings the match set up to date and returns the matches with an ID above {@code afterId}, ordered by ID.
+     *
+     * <p>Persons are looked up one at a time while the stream is consumed, so the caller can write them out
+     * without holding the whole list. The stream is weakly consistent: matches that change while it is
+     * consumed may or may not be included.</p>
+     *
+     * @param afterId the ID to continue after, or {@code null} to start at the first match
+     * @return the matches, lazily
+     */
+    public Stream<Person> streamMatches(Long afterId) {
+        findMatchesTimer.record(this::bringUpToDate);
+        return lookUp(afterId != null ? matchedIds.tailSet(afterId, false) : matchedIds);
+    }
+
+    /**
+     * Brings the match set up to date and returns its version.
+     *
+     * <p>Matches streamed afterwards reflect at least this version, so a client that stores them with it
+     * receives any later change in its next delta.</p>
+     *
+     * @return the current match version
+     */
+    public MatchVersion matchVersion() {
+        matchLock.lock();
+        try {
+            bringUpToDate();
+            return flipLog.current();
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Brings the match set up to date and returns the state of the repository and match set it reflects.
+     *
+     * <p>The repository version is read first, so two equal states guarantee that neither any person nor
+     * the match set changed in between: every mutation advances the repository version, and every flip not
+     * caused by a mutation, such as a day rollover, advances the match version.</p>
+     *
+     * @return the current state
+     */
+    public MatchSetState matchState() {
+        long repositoryVersion = repository.currentVersion();
+        return new MatchSetState(repositoryVersion, matchVersion());
+    }
+
+    /**
+     * Brings the match set up to date and returns the persons added to or removed from it since the given
+     * version.
+     *
+     * @param since the version the client last saw
+     * @return the changes, or empty if the version is unknown or older than the retained history, in which
+     *         case the client needs the complete match set
+     */
+    public Optional<MatchDelta> matchesChangedSince(MatchVersion since) {
+        return findMatchesTimer.record(() -> {
+            matchLock.lock();
+            try {
+                bringUpToDate();
+                Set<Long> flippedIds = flipLog.flippedSince(since);
+                if (flippedIds == null) {
+                    return Optional.empty();
+                }
+                List<Person> added = new ArrayList<>();
+                List<Long> removedIds = new ArrayList<>();
+                for (Long id : flippedIds) {
+                    // A person that flipped back is reported in its current state, which the client already has
+                    Person person = matchedIds.contains(id) ? repository.findById(id).orElse(null) : null;
+                    if (person != null) {
+                        added.add(person);
+                    } else {
+                        removedIds.add(id);
+                    }
+                }
+                return Optional.of(new MatchDelta(flipLog.current(), added, removedIds));
+            } finally {
+                matchLock.unlock();
+            }
+        });
+    }
+
+    private void bringUpToDate() {
+        // Normally done by the midnight schedule; checked here in case it has not run yet
+        if (ageCutoff.isStale()) {
+            rolloverDay();
+        }
+        refreshMatches();
+    }
+
+    private Stream<Person> lookUp(Set<Long> ids) {
+        return ids.stream()
+                .map(repository::findById)
+                .flatMap(Optional::stream);
+    }
+
+    /**
+     * Returns the size of the match set as of the last refresh.
+     * Time complexity: O(m) where m = number of matches
+     *
+     * @return the number of matching persons
+     */
+    public int getMatchCount() {
+        return matchedIds.size();
+    }
+
+    /**
+     * Brings the match set up to date with all repository changes since the last evaluation.
+     *
+     * <p>A person's match status only depends on its own record and the records it references
+     * (partner and children). So for every changed person, the person itself and everyone referencing
+     * it (see {@link PersonRepository#findReferrerIds(Long)}) is re-evaluated. For a changed relative stored
+     * on another instance, only the persons referencing it are.</p>
+     *
+     * <p>Returns at once if the changes made before the call are already evaluated, possibly by another caller
+     * that held the match lock meanwhile.</p>
+     */
+    public void refreshMatches() {
+        long changedVersion = repository.currentVersion();
+        if (isEvaluated(changedVersion)) {
+            return;
+        }
+        matchLock.lock();
+        try {
+            if (isEvaluated(changedVersion)) {
+                return;
+            }
+            ChangeSet changes = repository.changesSince(evaluatedVersion);
+
+            Set<Long> affectedIds = new HashSet<>();
+            for (Long changedId : changes.ids()) {
+                affectedIds.add(changedId);
+                affectedIds.addAll(repository.findReferrerIds(changedId));
+            }
+            // Drained before the evaluation, so a change reported meanwhile is evaluated again next time
+            for (Iterator<Long> relativeIds = changedRelativeIds.iterator(); relativeIds.hasNext(); ) {
+                affectedIds.addAll(repository.findReferrerIds(relativeIds.next()));
+                relativeIds.remove();
+            }
+            updateMatches(affectedIds);
+
+            evaluatedVersion = changes.version();
+            repository.discardChangesUpTo(evaluatedVersion);
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    private boolean isEvaluated(long changedVersion) {
+        return evaluatedVersion >= changedVersion && changedRelativeIds.isEmpty();
+    }
+
+    /**
+     * Records that persons stored on another instance changed, so the persons here referencing them are
+     * re-evaluated with the next refresh.
+     *
+     * @param ids the IDs of the changed persons
+     */
+    public void relativesChanged(Collection<Long> ids) {
+        changedRelativeIds.addAll(ids);
+        if (matchFeed.hasSubscribers()) {
+            // Otherwise the resulting changes would only be pushed with the next request refreshing the matches
+            refreshMatches();
+        }
+    }
+
+    /**
+     * Subscribes to the changes of the match set from now on (see {@link MatchFeed}).
+     *
+     * @param sink receives the changes, starting with the current version
+     * @return the subscription, or empty if the feed is disabled or has no room for another subscriber
+     */
+    public Optional<MatchFeed.Subscription> subscribe(MatchFeed.Sink sink) {
+        matchLock.lock();
+        try {
+            // Under the match lock, so no change falls between the version and the subscription
+            return matchFeed.subscribe(sink, flipLog.current());
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the age thresholds to the new day and updates the match set for the resulting age changes.
+     *
+     * <p>Only children born in the day range that just passed the 18-year cutoff, and children whose
+     * birth date was in the future until now, can change their age status. Their parents (the persons
+     * referencing them) are re-evaluated; nobody else is affected.</p>
+     *
+     * @return IDs of the persons whose match status flipped, empty if the day has not changed
+     */
+    public Set<Long> rolloverDay() {
+        matchLock.lock();
+        try {
+            // Apply pending changes first, so the flips only reflect the new day
+            refreshMatches();
+
+            AgeCutoff.Day previous = ageCutoff.rollover();
+            if (previous == null) {
+                return Set.of();
+            }
+            AgeCutoff.Day current = ageCutoff.current();
+
+            if (sharded) {
+                // Children turning 18 on other instances are not reported here, so everyone is re-evaluated
+                Set<Long> before = Set.copyOf(matchedIds);
+                rebuildMatches();
+                Set<Long> flippedIds = new HashSet<>(before);
+                flippedIds.addAll(matchedIds);
+                flippedIds.removeIf(id -> before.contains(id) && matchedIds.contains(id));
+                log.info("Day rollover to {}: rebuilt matches, match status flipped for {}", current.date(),
+                        flippedIds);
+                return flippedIds;
+            }
+
+            Set<Long> ageChangedIds = new HashSet<>();
+            ageChangedIds.addAll(repository.findIdsBornBetween(previous.adultCutoff(), current.adultCutoff()));
+            ageChangedIds.addAll(repository.findIdsBornBetween(previous.date(), current.date()));
+
+            Set<Long> affectedIds = new HashSet<>();
+            for (Long childId : ageChangedIds) {
+                affectedIds.add(childId);
+                affectedIds.addAll(repository.findReferrerIds(childId));
+            }
+
+            Set<Long> flippedIds = updateMatches(affectedIds);
+            log.info("Day rollover to {}: {} person(s) changed age status, match status flipped for {}",
+                    current.date(), ageChangedIds.size(), flippedIds);
+            return flippedIds;
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Re-evaluates the given persons and updates the match set accordingly.
+     * Unknown or deleted IDs are removed from the match set.
+     * Time complexity: O(a * k) where a = affected people, k = children per person
+     *
+     * @param affectedIds IDs of persons whose match status may have changed
+     * @return IDs of the persons that were added to or removed from the match set
+     */
+    private Set<Long> updateMatches(Collection<Long> affectedIds) {
+        Set<Long> flippedIds = new HashSet<>();
+        List<Long> addedIds = new ArrayList<>();
+        List<Long> removedIds = new ArrayList<>();
+        Map<Long, Person> persons = repository.findAllById(affectedIds);
+        Predicate<Person> matcher = newMatcher(persons.values());
+        for (Long id : affectedIds) {
+            Person person = persons.get(id);
+            boolean matches = person != null && matcher.test(person);
+            boolean flipped = matches ? matchedIds.add(id) : matchedIds.remove(id);
+            if (flipped) {
+                flippedIds.add(id);
+                flipLog.record(id);
+                (matches ? addedIds : removedIds).add(id);
+            }
+        }
+        matchFeed.publishChanged(flipLog.current(), addedIds, removedIds);
+        return flippedIds;
+    }
+
+    /**
+     * Rebuilds the match set from scratch by evaluating every person in the repository.
+     * Time complexity: O(n * k / p) where n = total people, k = children per person, p = parallelism
+     */
+    public void rebuildMatches() {
+        matchLock.lock();
+        try {
+            long version = repository.currentVersion();
+            Set<Long> rebuilt = new ConcurrentSkipListSet<>(scanAll());
+
+            matchedIds.retainAll(rebuilt);
+            matchedIds.addAll(rebuilt);
+
+            // Changes made during the scan are newer than the version read up front and get drained next time
+            evaluatedVersion = version;
+            // The individual flips are not known, so earlier versions can no longer be answered with a delta
+            flipLog.reset();
+            matchFeed.publishReset(flipLog.current());
+            repository.discardChangesUpTo(version);
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Brings the match set up to date and returns a copy of it, to be stored in a snapshot.
+     *
+     * @return the matches, ordered by ID, with the day they were evaluated on
+     */
+    public MatchSetSnapshot snapshotMatches() {
+        matchLock.lock();
+        try {
+            refreshMatches();
+            return new MatchSetSnapshot(List.copyOf(matchedIds), ageCutoff.current().date(), evaluatedVersion);
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the match set with one restored from a snapshot, instead of re-scanning the repository.
+     * Repository changes after the snapshot's version are picked up by the next refresh as usual.
+     * A snapshot evaluated on another day may be outdated by age changes, so the matches are rebuilt instead.
+     *
+     * @param matches the restored matches
+     */
+    public void restoreMatches(MatchSetSnapshot matches) {
+        matchLock.lock();
+        try {
+            if (!matches.evaluatedOn().equals(ageCutoff.current().date())) {
+                log.info("Match set snapshot was evaluated on {}, rebuilding", matches.evaluatedOn());
+                rebuildMatches();
+                return;
+            }
+            matchedIds.clear();
+            matchedIds.addAll(matches.ids());
+            evaluatedVersion = matches.version();
+            flipLog.reset();
+            matchFeed.publishReset(flipLog.current());
+            repository.discardChangesUpTo(evaluatedVersion);
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Evaluates every person in the repository and returns the IDs of the matches.
+     */
+    private List<Long> scanAll() {
+        if (scanPool == null && !sharded) {
+            return repository.findAll().stream()
+                    .filter(newMatcher())
+                    .map(Person::getId)
+                    .toList();
+        }
+        if (scanPool == null) {
+            List<Person> persons = List.copyOf(repository.findAll());
+            List<Long> matches = new ArrayList<>();
+            for (int from = 0; from < persons.size(); from += SHARDED_SCAN_BATCH) {
+                List<Person> batch = persons.subList(from, Math.min(from + SHARDED_SCAN_BATCH, persons.size()));
+                Predicate<Person> matcher = newMatcher(batch);
+                batch.stream().filter(matcher).map(Person::getId).forEach(matches::add);
+            }
+            return matches;
+        }
+
+        // Snapshot the store so it can be split into index ranges
+        Person[] persons = repository.findAll().toArray(Person[]::new);
+        int chunkSize = Math.max(MIN_SCAN_CHUNK, persons.length / (scanPool.getParallelism() * 4));
+        return scanPool.invoke(new MatchScanTask(persons, 0, persons.length, chunkSize, this::newMatcher));
+    }
+
+    /**
+     * Returns a matcher for one thread, reusing a single {@link MatchContext} for all persons it tests.
+     */
+    private Predicate<Person> newMatcher() {
+        MatchContext context = new MatchContext(repository);
+        return person -> matchesPattern(context.reset(person));
+    }
+
+    /**
+     * Returns a matcher for one thread about to test the given persons. When sharded, their partners and
+     * children are looked up in one batch up front instead of one at a time.
+     */
+    private Predicate<Person> newMatcher(Collection<Person> persons) {
+        if (!sharded) {
+            return newMatcher();
+        }
+        Set<Long> relativeIds = new HashSet<>();
+        for (Person person : persons) {
+            if (person.getPartnerId() != null) {
+                relativeIds.add(person.getPartnerId());
+            }
+            for (int i = 0; i < person.getChildCount(); i++) {
+                relativeIds.add(person.getChildIdAt(i));
+            }
+        }
+        MatchContext context = new MatchContext(repository, repository.findAllById(relativeIds));
+        return person -> matchesPattern(context.reset(person));
     }
 
     /**
      * Checks if a person matches the pattern using configured strategies.
+     * The partner and each child are looked up at most once, in the context shared by all strategies.
      *
-     * @param person The person to check
+     * @param context the person to check
      * @return true if person matches the pattern
      */
-    private boolean matchesPattern(Person person) {
+    private boolean matchesPattern(MatchContext context) {
         // DECISION: ADR-04 #3 (confirmed) - Delegated to PartnerValidationStrategy
         // Must have a valid partner according to configured strategy
-        if (!partnerValidationStrategy.hasValidPartner(person, repository)) {
+        if (!partnerValidationStrategy.hasValidPartner(context)) {
             return false;
         }
 
-        Long partnerId = person.getPartnerId();
-
         // DECISION: ADR-04 #2 (confirmed) - Delegated to ChildCountStrategy
-        // Must have valid children according to configured strategy
-        ChildCountStrategy.ValidationResult childValidation =
-                childCountStrategy.validateChildren(person, partnerId, repository);
-
-        if (!childValidation.valid()) {
+        // Must have valid children according to configured strategy; if so, all children are valid
+        if (!childCountStrategy.hasValidChildren(context)) {
             return false;
         }
 
-        Set<Long> validChildrenIds = childValidation.validChildrenIds();
-
         // DECISION: ADR-04 #4 (OTI - chosen) - Delegated to AgeValidationStrategy
         // At least one child must be under 18 according to configured strategy
-        for (Long childId : validChildrenIds) {
-            Person child = repository.findById(childId).orElse(null);
+        for (int i = 0; i < context.childCount(); i++) {
+            Person child = context.child(i);
             if (child != null && ageValidationStrategy.isUnder18(child)) {
                 return true; // Found at least one child under 18
             }
@@ -94,4 +589,3 @@ public class PatternMatchingService {
         return false; // No child under 18 found
     }
 }
-
@@ -0,0 +1,163 @@
+package nl.pinkroccade.familychallenge.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.dto.ImportStatusDTO;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import nl.pinkroccade.familychallenge.mapper.PersonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service for importing large newline-delimited JSON uploads with bounded memory.
+ *
+ * <p>The body is read with the Jackson streaming parser, one record at a time. Records are mapped to
+ * {@link Person} and handed to {@link PersonService#importPersons(List)} in chunks of
+ * {@code family-challenge.import-chunk-size}. The next record is only read once the current chunk has
+ * been applied, so a slow store throttles the upload through TCP flow control and memory use stays
+ * at one chunk regardless of the upload size.</p>
+ *
+ * <p>The progress of running and recently finished imports is kept for {@link #getImports()}.</p>
+ */
+@Service
+public class PersonImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonImportService.class);
+
+    /* Number of finished imports kept for progress requests */
+    private static final int FINISHED_IMPORTS_KEPT = 16;
+
+    private final PersonService personService;
+    private final ObjectReader  recordReader;
+    private final ObjectMapper  objectMapper;
+    private final int           chunkSize;
+
+    private final AtomicLong            importSequence = new AtomicLong();
+    private final Deque<ImportProgress> imports        = new ConcurrentLinkedDeque<>();
+
+    public PersonImportService(
+            PersonService personService,
+            ObjectMapper objectMapper,
+            FamilyChallengeProperties properties) {
+        this.personService = personService;
+        this.objectMapper = objectMapper;
+        this.recordReader = objectMapper.readerFor(PersonRequestDTO.class);
+        this.chunkSize = Math.max(1, properties.getImportChunkSize());
+    }
+
+    /**
+     * Imports all records of the NDJSON stream.
+     *
+     * <p>A malformed record or a record without an ID stops the import with an
+     * {@link IllegalArgumentException}. Every record before it is applied first, including those of the
+     * unfinished chunk, so the import stops exactly at that record; the error names its line and the number of
+     * records applied, and a client can resume the upload from there.</p>
+     *
+     * @param body the upload, one JSON person per line
+     * @return the final progress of the import
+     */
+    public ImportStatusDTO importNdjson(InputStream body) throws IOException {
+        ImportProgress progress = register();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            List<Person> chunk = new ArrayList<>(chunkSize);
+            PersonRequestDTO record;
+            while ((record = readRecord(parser, chunk, progress)) != null) {
+                chunk.add(PersonMapper.toDomain(record));
+                progress.recordRead(parser.currentLocation().getByteOffset());
+
+                if (chunk.size() == chunkSize) {
+                    applyChunk(chunk, progress);
+                }
+            }
+            applyChunk(chunk, progress);
+            progress.completed();
+            log.info("Import {} completed: {} record(s)", progress.getId(), progress.snapshot().recordsRead());
+            return progress.snapshot();
+        } catch (RuntimeException | IOException e) {
+            progress.failed(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * @return progress of the running and the most recently finished imports, oldest first
+     */
+    public List<ImportStatusDTO> getImports() {
+        return imports.stream().map(ImportProgress::snapshot).toList();
+    }
+
+    /**
+     * Reads the next record. If it is malformed or has no ID, the records read before it are applied first.
+     *
+     * @param chunk the records read but not applied yet
+     * @return the record, or {@code null} at the end of the upload
+     * @throws IllegalArgumentException if the record is malformed or has no ID
+     */
+    private PersonRequestDTO readRecord(JsonParser parser, List<Person> chunk, ImportProgress progress)
+            throws IOException {
+        String problem;
+        JsonProcessingException cause = null;
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                problem = "Expected a JSON object per line, found " + token;
+            } else {
+                PersonRequestDTO record = recordReader.readValue(parser);
+                if (record.id() != null) {
+                    return record;
+                }
+                problem = "Person ID is required";
+            }
+        } catch (JsonProcessingException e) {
+            problem = "Malformed NDJSON record: " + e.getOriginalMessage();
+            cause = e;
+        }
+        int line = parser.currentLocation().getLineNr();
+        applyChunk(chunk, progress);
+        throw new IllegalArgumentException(problem + " (line " + line + "; the " + progress.snapshot().recordsRead()
+                + " record(s) before it were applied)", cause);
+    }
+
+    private void applyChunk(List<Person> chunk, ImportProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int stored = personService.importPersons(chunk);
+        progress.chunkApplied(chunk.size(), stored);
+        chunk.clear();
+    }
+
+    private ImportProgress register() {
+        ImportProgress progress = new ImportProgress(importSequence.incrementAndGet());
+        imports.addLast(progress);
+
+        // Forget the oldest finished imports; running ones are always kept
+        long finished = imports.stream().filter(p -> !p.isRunning()).count();
+        for (ImportProgress candidate : imports) {
+            if (finished <= FINISHED_IMPORTS_KEPT) {
+                break;
+            }
+            if (!candidate.isRunning() && imports.remove(candidate)) {
+                finished--;
+            }
+        }
+        return progress;
+    }
+}
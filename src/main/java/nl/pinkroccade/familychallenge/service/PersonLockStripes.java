@@ -0,0 +1,87 @@
+package nl.pinkroccade.familychallenge.service;
+
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks striped by person ID, guarding the read-modify-write cycles on related persons.
+ *
+ * <p>A request locks the stripes of every person it reads and rewrites, so requests touching the same family
+ * run one after the other, while unrelated families hash to different stripes and run in parallel. Stripes
+ * are always acquired in ascending index order, so two requests can never wait for each other in a cycle.</p>
+ *
+ * <p>The number of stripes is {@code family-challenge.lock-stripes}, rounded up to a power of two. Two IDs
+ * sharing a stripe only cost some parallelism, never correctness.</p>
+ */
+@Component
+public class PersonLockStripes {
+
+    private final ReentrantLock[] locks;
+    private final int             mask;
+
+    public PersonLockStripes(FamilyChallengeProperties properties) {
+        int stripes = Integer.highestOneBit(Math.max(1, properties.getLockStripes() - 1)) << 1;
+        this.locks = new ReentrantLock[stripes];
+        this.mask = stripes - 1;
+        Arrays.setAll(locks, i -> new ReentrantLock());
+    }
+
+    /**
+     * Locks the stripes of the given IDs, waiting as long as needed. {@code null} IDs are skipped.
+     *
+     * @param ids the IDs of the persons about to be read and rewritten
+     * @return the held stripes, to be released with {@link Held#close()}
+     */
+    public Held lock(Collection<Long> ids) {
+        int[] stripes = new int[ids.size()];
+        int count = 0;
+        for (Long id : ids) {
+            if (id != null) {
+                stripes[count++] = stripeOf(id);
+            }
+        }
+        Arrays.sort(stripes, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || stripes[i] != stripes[distinct - 1]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            locks[stripes[i]].lock();
+        }
+        return new Held(stripes, distinct);
+    }
+
+    private int stripeOf(long id) {
+        // Spread sequential IDs over all stripes
+        long mixed = id * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    /**
+     * Stripes held by one thread, released in reverse order of acquisition.
+     */
+    public final class Held implements AutoCloseable {
+
+        private final int[] stripes;
+        private final int   count;
+
+        private Held(int[] stripes, int count) {
+            this.stripes = stripes;
+            this.count = count;
+        }
+
+        @Override
+        public void close() {
+            for (int i = count - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+}
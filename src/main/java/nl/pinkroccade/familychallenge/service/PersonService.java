@@ -1,18 +1,29 @@
 package nl.pinkroccade.familychallenge.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.dto.MatchDeltaDTO;
 import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
 import nl.pinkroccade.familychallenge.dto.PersonResponseDTO;
+import nl.pinkroccade.familychallenge.dto.ShardLinkDTO;
 import nl.pinkroccade.familychallenge.mapper.PersonMapper;
+import nl.pinkroccade.familychallenge.repository.FamilyComponentIndex;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
 import nl.pinkroccade.familychallenge.service.strategy.cleanup.DataCleanupStrategy;
+import nl.pinkroccade.familychallenge.shard.ShardRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.stream.Stream;
 
 /**
  * Service for processing person records and managing relationships.
@@ -23,6 +34,19 @@ import java.util.Set;
  *   <li>Uses {@link DataCleanupStrategy} for reference cleanup of deleted/ignored persons</li>
  *   <li>Delegates pattern matching to {@link PatternMatchingService} (uses 3 configurable strategies)</li>
  * </ul>
+ *
+ * <p><b>Concurrency:</b> saving a person rewrites its parents, children and partner as well. Each of these
+ * read-modify-write cycles runs under the {@link PersonLockStripes} of all persons involved, so concurrent
+ * requests for the same family cannot lose each other's links, while unrelated families proceed in parallel.</p>
+ *
+ * <p>The families formed by these links are tracked in a {@link FamilyComponentIndex}.</p>
+ *
+ * <p><b>Sharding:</b> in a sharded deployment (see {@link ShardRouter}) a record is saved and repaired by the
+ * instance owning it. Relatives owned by other instances are repaired by their owners, once the local locks
+ * are released, so two instances repairing each other's persons never wait for each other. The other instances
+ * are told about the saved persons in the same way: once the locks are released, in one batch for all saves of
+ * the request and of the requests writing concurrently. Deletes are applied on every instance, and the matches
+ * are collected from all of them.</p>
  */
 @Service
 public class PersonService {
@@ -32,124 +56,462 @@ public class PersonService {
     private final PersonRepository       repository;
     private final PatternMatchingService patternMatchingService;
     private final DataCleanupStrategy    dataCleanupStrategy;
+    private final PersonLockStripes      lockStripes;
+    private final FamilyComponentIndex   familyIndex;
+    private final ShardRouter            shardRouter;
+
+    private final Timer processTimer;
+    private final Timer deleteTimer;
+    private final Timer repairTimer;
 
     public PersonService(
             PersonRepository repository,
             PatternMatchingService patternMatchingService,
-            DataCleanupStrategy dataCleanupStrategy) {
+            DataCleanupStrategy dataCleanupStrategy,
+            PersonLockStripes lockStripes,
+            FamilyComponentIndex familyIndex,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry) {
         this.repository = repository;
         this.patternMatchingService = patternMatchingService;
         this.dataCleanupStrategy = dataCleanupStrategy;
+        this.lockStripes = lockStripes;
+        this.familyIndex = familyIndex;
+        this.shardRouter = shardRouter;
+        this.processTimer = Timer.builder("family.person.process")
+                .description("Applying a single person record, including the match refresh unless refreshed per batch")
+                .register(meterRegistry);
+        this.deleteTimer = Timer.builder("family.person.delete")
+                .description("Deleting persons, including reference cleanup and matching")
+                .register(meterRegistry);
+        this.repairTimer = Timer.builder("family.person.repair")
+                .description("Repairing the bidirectional relationships of a saved person")
+                .register(meterRegistry);
     }
 
     /**
      * Processes a person record: saves it, repairs bidirectional integrity, and finds matches.
      *
+     * <p>Matching only re-evaluates the persons depending on the records changed by this request
+     * (see {@link PatternMatchingService#refreshMatches()}).</p>
+     *
      * @param request The person data from the request
      * @return List of people matching the pattern (may be empty)
      */
     public List<PersonResponseDTO> processPerson(PersonRequestDTO request) {
-        if (repository.isIgnored(request.id())) {
-            log.debug("Person ID {} is ignored, skipping", request.id());
-            return findAndConvertMatches();
+        applyPerson(request);
+        return findAndConvertMatches();
+    }
+
+    /**
+     * Saves a person record, repairs bidirectional integrity and refreshes the match set, without
+     * materializing the matches; read them with {@link #streamMatches(Long)}.
+     *
+     * @param request The person data from the request
+     */
+    public void applyPerson(PersonRequestDTO request) {
+        processTimer.record(() -> {
+            if (ingest(PersonMapper.toDomain(request), repository.getIgnoredIds())) {
+                patternMatchingService.refreshMatches();
+            }
+        });
+    }
+
+    /**
+     * Saves a person record and repairs bidirectional integrity without refreshing the match set, for callers
+     * refreshing once for many records (see {@link PersonWriteQueue}). Timed like {@link #applyPerson}, but
+     * without the refresh, which the caller times per batch.
+     *
+     * @param request The person data from the request
+     * @return true if the record was stored, false if it was ignored
+     */
+    public boolean ingestPerson(PersonRequestDTO request) {
+        return processTimer.record(() -> ingest(PersonMapper.toDomain(request), repository.getIgnoredIds()));
+    }
+
+    /**
+     * Processes a batch of person records: saves each one and repairs bidirectional integrity,
+     * then evaluates matches once for the whole batch.
+     *
+     * <p>Records are applied in order as they are read, so a large batch never has to be held in memory.
+     * A record without an ID aborts the batch with an {@link IllegalArgumentException}; the records
+     * before it stay applied and are evaluated by the next request.</p>
+     *
+     * @param requests the person records, in order
+     * @return List of people matching the pattern (may be empty)
+     */
+    public List<PersonResponseDTO> processPersons(Iterable<PersonRequestDTO> requests) {
+        applyPersons(requests);
+        return findAndConvertMatches();
+    }
+
+    /**
+     * Applies a batch of person records like {@link #processPersons(Iterable)}, without materializing
+     * the matches; read them with {@link #streamMatches(Long)}.
+     *
+     * @param requests the person records, in order
+     */
+    public void applyPersons(Iterable<PersonRequestDTO> requests) {
+        Set<Long> ignoredIds = repository.getIgnoredIds();
+        int count = 0;
+        for (PersonRequestDTO request : requests) {
+            if (request.id() == null) {
+                throw new IllegalArgumentException("Person ID is required (record " + (count + 1) + ")");
+            }
+            ingest(PersonMapper.toDomain(request), ignoredIds);
+            count++;
         }
+        log.debug("Ingested batch of {} person(s)", count);
 
-        Person person = PersonMapper.toDomain(request);
+        patternMatchingService.refreshMatches();
+    }
 
-        // DECISION: ADR-04 #7 (Implementation detail) - Delegated to DataCleanupStrategy
-        // Clean up any references to ignored IDs before saving
-        dataCleanupStrategy.cleanupReferences(person, repository.getIgnoredIds());
+    /**
+     * Imports a chunk of already mapped persons: saves each one, repairs bidirectional integrity
+     * and refreshes the match set, without materializing the matches.
+     *
+     * <p>Refreshing per chunk keeps the repository change log, and so the memory used by an import,
+     * bounded by the chunk size rather than the size of the upload.</p>
+     *
+     * @param persons the persons to import, in order
+     * @return the number of persons stored; the others were ignored
+     */
+    public int importPersons(List<Person> persons) {
+        Set<Long> ignoredIds = repository.getIgnoredIds();
+        int stored = 0;
+        for (Person person : persons) {
+            if (ingest(person, ignoredIds)) {
+                stored++;
+            }
+        }
 
-        Optional<Person> saved = repository.save(person);
-        if (saved.isEmpty()) {
-            log.warn("Failed to save person ID {}", request.id());
-            return List.of();
+        patternMatchingService.refreshMatches();
+        return stored;
+    }
+
+    /**
+     * Saves a single person record and repairs bidirectional integrity, without evaluating matches.
+     *
+     * @return true if the record was stored, false if it was ignored
+     */
+    private boolean ingest(Person person, Set<Long> ignoredIds) {
+        if (repository.isIgnored(person.getId())) {
+            log.debug("Person ID {} is ignored, skipping", person.getId());
+            return false;
+        }
+        if (!shardRouter.owns(person.getId())) {
+            return shardRouter.ingest(person);
         }
 
-        // DECISION: ADR-04 #6 (OTI - chosen) - Partner relationships are bidirectional
-        repairBidirectionalIntegrity(saved.get());
+        // The person and every relative whose record the repair below may rewrite
+        Set<Long> involvedIds = person.getReferencedIds();
+        involvedIds.add(person.getId());
 
-        return findAndConvertMatches();
+        List<ShardLinkDTO> remoteLinks = new ArrayList<>();
+        try (PersonLockStripes.Held held = lockStripes.lock(involvedIds)) {
+            // DECISION: ADR-04 #7 (Implementation detail) - Delegated to DataCleanupStrategy
+            // Clean up any references to ignored IDs before saving
+            dataCleanupStrategy.cleanupReferences(person, ignoredIds);
+
+            // An unchanged record is not saved again, so it does not advance the repository version and
+            // invalidate everything derived from it
+            Optional<Person> existing = repository.findById(person.getId());
+            Optional<Person> stored = existing.filter(previous -> previous.hasSameContentAs(person));
+            if (stored.isPresent()) {
+                log.debug("Person ID {} is unchanged, skipping save", person.getId());
+            } else if (existing.isPresent()
+                    && !person.getReferencedIds().containsAll(existing.get().getReferencedIds())) {
+                // A dropped relative may split the family
+                familyIndex.markStale();
+            }
+            Optional<Person> saved = stored.isPresent() ? stored : repository.save(person);
+            if (saved.isEmpty()) {
+                log.warn("Failed to save person ID {}", person.getId());
+                return false;
+            }
+
+            // DECISION: ADR-04 #6 (OTI - chosen) - Partner relationships are bidirectional
+            // Also for an unchanged record: relatives may have been saved since, and the repair only saves
+            // the ones actually missing a link
+            repairTimer.record(() -> repairBidirectionalIntegrity(saved.get(), remoteLinks));
+        }
+        remoteLinks.forEach(shardRouter::link);
+        shardRouter.sendQueuedChanges();
+        return true;
     }
 
     /**
      * Repairs bidirectional integrity for a person's relationships.
      * If A says B is child, ensure B lists A as parent.
      * If A says B is partner, ensure B lists A as partner.
+     * The repair only adds links, so the person and its relatives end up in one family.
+     * Links to relatives owned by another instance are collected in {@code remoteLinks} instead.
      */
-    private void repairBidirectionalIntegrity(Person person) {
+    private void repairBidirectionalIntegrity(Person person, List<ShardLinkDTO> remoteLinks) {
         Long personId = person.getId();
+        familyIndex.link(person);
 
         // Repair parent-child relationships
         if (person.getParent1Id() != null) {
-            addChildToParent(person.getParent1Id(), personId);
+            repair(new ShardLinkDTO(ShardLinkDTO.Kind.CHILD, person.getParent1Id(), personId), remoteLinks);
         }
         if (person.getParent2Id() != null) {
-            addChildToParent(person.getParent2Id(), personId);
+            repair(new ShardLinkDTO(ShardLinkDTO.Kind.CHILD, person.getParent2Id(), personId), remoteLinks);
         }
 
         // Repair child relationships (add person as parent to children)
         if (person.getChildrenIds() != null) {
             for (Long childId : person.getChildrenIds()) {
-                addParentToChild(childId, personId);
+                repair(new ShardLinkDTO(ShardLinkDTO.Kind.PARENT, childId, personId), remoteLinks);
             }
         }
 
         // Repair partner relationship (bidirectional)
         if (person.getPartnerId() != null) {
-            repository.findById(person.getPartnerId()).ifPresent(partner -> {
-                if (!personId.equals(partner.getPartnerId())) {
-                    partner.setPartnerId(personId);
-                    repository.save(partner);
-                }
-            });
+            repair(new ShardLinkDTO(ShardLinkDTO.Kind.PARTNER, person.getPartnerId(), personId), remoteLinks);
+        }
+    }
+
+    private void repair(ShardLinkDTO link, List<ShardLinkDTO> remoteLinks) {
+        if (shardRouter.owns(link.personId())) {
+            addLink(link);
+        } else {
+            remoteLinks.add(link);
+        }
+    }
+
+    /**
+     * Adds a relationship to a person owned by this instance, on behalf of another instance repairing the
+     * relationships of a person it saved.
+     *
+     * @param link the relationship to add
+     */
+    public void applyLink(ShardLinkDTO link) {
+        if (!shardRouter.owns(link.personId())) {
+            throw new IllegalArgumentException("Person ID " + link.personId() + " is owned by another instance");
+        }
+        try (PersonLockStripes.Held held = lockStripes.lock(List.of(link.personId()))) {
+            addLink(link);
+        }
+        shardRouter.sendQueuedChanges();
+    }
+
+    private void addLink(ShardLinkDTO link) {
+        switch (link.kind()) {
+            case CHILD -> addChildToParent(link.personId(), link.relativeId());
+            case PARENT -> addParentToChild(link.personId(), link.relativeId());
+            case PARTNER -> addPartner(link.personId(), link.relativeId());
         }
     }
 
     private void addChildToParent(Long parentId, Long childId) {
         repository.findById(parentId).ifPresent(parent -> {
-            if (!parent.getChildrenIds().contains(childId)) {
-                parent.addChild(childId);
-                repository.save(parent);
+            if (!parent.containsChild(childId)) {
+                repository.save(parent.copy().withChild(childId));
+            }
+        });
+    }
+
+    private void addPartner(Long partnerId, Long personId) {
+        repository.findById(partnerId).ifPresent(partner -> {
+            if (!personId.equals(partner.getPartnerId())) {
+                repository.save(partner.copy().withPartnerId(personId));
             }
         });
     }
 
     private void addParentToChild(Long childId, Long parentId) {
         repository.findById(childId).ifPresent(child -> {
-            boolean needsSave = false;
-
             // Add as parent1 if empty, otherwise as parent2 if empty
             if (child.getParent1Id() == null) {
-                child.setParent1Id(parentId);
-                needsSave = true;
+                repository.save(child.copy().withParent1Id(parentId));
             } else if (child.getParent2Id() == null && !parentId.equals(child.getParent1Id())) {
-                child.setParent2Id(parentId);
-                needsSave = true;
-            }
-
-            if (needsSave) {
-                repository.save(child);
+                repository.save(child.copy().withParent2Id(parentId));
             }
         });
     }
 
     /**
      * Deletes persons by their IDs and cleans up references to them.
+     * In a sharded deployment every other instance does the same for its own persons.
      *
      * @param ids the IDs of persons to delete
      */
     public void deletePersons(List<Long> ids) {
-        // First delete from repository (removes from store and marks as ignored)
-        repository.deleteByIds(ids);
+        deleteTimer.record(() -> delete(ids));
+        shardRouter.publishDeletes(ids);
+    }
 
-        // DECISION: ADR-04 #7 (Implementation detail) - Delegated to DataCleanupStrategy
-        // Clean up references in all remaining persons
+    /**
+     * Deletes persons on this instance only, on behalf of the instance the delete was requested from.
+     *
+     * @param ids the IDs of persons to delete
+     */
+    public void deletePersonsLocally(List<Long> ids) {
+        deleteTimer.record(() -> delete(ids));
+    }
+
+    private void delete(List<Long> ids) {
         Set<Long> idsToCleanup = Set.copyOf(ids);
-        repository.findAll().forEach(person -> {
-            dataCleanupStrategy.cleanupReferences(person, idsToCleanup);
-            repository.save(person);
-        });
+
+        // Only persons referencing a deleted ID need their references cleaned up. A new referrer may appear
+        // until the deleted IDs are locked, so the referrers are looked up again until all are covered.
+        Set<Long> lockedIds = new HashSet<>(idsToCleanup);
+        while (true) {
+            Set<Long> referrerIds = findReferrerIds(idsToCleanup);
+            lockedIds.addAll(referrerIds);
+            try (PersonLockStripes.Held held = lockStripes.lock(lockedIds)) {
+                referrerIds = findReferrerIds(idsToCleanup);
+                if (!lockedIds.containsAll(referrerIds)) {
+                    continue;
+                }
+
+                // First delete from repository (removes from store and marks as ignored)
+                repository.deleteByIds(ids);
+
+                // DECISION: ADR-04 #7 (Implementation detail) - Delegated to DataCleanupStrategy
+                // Clean up references in the remaining persons that point to a deleted ID
+                referrerIds.forEach(referrerId -> repository.findById(referrerId).ifPresent(stored -> {
+                    Person person = stored.copy();
+                    dataCleanupStrategy.cleanupReferences(person, idsToCleanup);
+                    repository.save(person);
+                }));
+                break;
+            }
+        }
+        familyIndex.markStale();
+        shardRouter.sendQueuedChanges();
+
+        patternMatchingService.refreshMatches();
+    }
+
+    private Set<Long> findReferrerIds(Set<Long> ids) {
+        Set<Long> referrerIds = new HashSet<>();
+        ids.forEach(id -> referrerIds.addAll(repository.findReferrerIds(id)));
+        referrerIds.removeAll(ids);
+        return referrerIds;
+    }
+
+    /**
+     * Returns the current matches with an ID above {@code afterId}, converted one at a time as the
+     * stream is consumed (see {@link PatternMatchingService#streamMatches(Long)}).
+     * In a sharded deployment these are only the matches stored on this instance.
+     *
+     * @param afterId the ID to continue after, or {@code null} to start at the first match
+     * @return the matches ordered by ID, lazily
+     */
+    public Stream<PersonResponseDTO> streamMatches(Long afterId) {
+        return patternMatchingService.streamMatches(afterId).map(PersonMapper::toResponseDTO);
+    }
+
+    /**
+     * Returns the current matches with an ID above {@code afterId} of all instances.
+     *
+     * <p>Without sharding this is {@link #streamMatches(Long)}. Otherwise every instance contributes up to
+     * {@code limit + 1} matches, so the caller can tell whether another page follows, and the merged matches
+     * are materialized.</p>
+     *
+     * @param afterId the ID to continue after, or {@code null} to start at the first match
+     * @param limit   the number of matches the caller needs, or {@code null} for all of them
+     * @return the matches ordered by ID; at least {@code limit + 1} if that many exist
+     */
+    public Stream<PersonResponseDTO> streamMatches(Long afterId, Integer limit) {
+        if (!shardRouter.isEnabled()) {
+            return streamMatches(afterId);
+        }
+        Integer fetchLimit = limit != null ? limit + 1 : null;
+        List<PersonResponseDTO> matches = new ArrayList<>();
+        try (Stream<PersonResponseDTO> local = streamMatches(afterId)) {
+            (fetchLimit != null ? local.limit(fetchLimit) : local).forEach(matches::add);
+        }
+        for (String peer : shardRouter.peers()) {
+            matches.addAll(shardRouter.fetchMatches(peer, afterId, fetchLimit));
+        }
+        matches.sort(Comparator.comparing(PersonResponseDTO::id));
+        return matches.stream();
+    }
+
+    /**
+     * @return whether persons are partitioned over several instances, so the matches have no common version
+     */
+    public boolean isSharded() {
+        return shardRouter.isEnabled();
+    }
+
+    /**
+     * Returns a person owned by this instance, for another instance evaluating its relatives.
+     *
+     * @param id the person ID
+     * @return the person, or empty if it is not stored here
+     */
+    public Optional<PersonResponseDTO> findOwnedPerson(Long id) {
+        return shardRouter.owns(id)
+                ? repository.findById(id).map(PersonMapper::toResponseDTO)
+                : Optional.empty();
+    }
+
+    /**
+     * Reads several persons, only if stored on this instance.
+     *
+     * @param ids the person IDs
+     * @return the persons among them stored here
+     */
+    public List<PersonResponseDTO> findOwnedPersons(List<Long> ids) {
+        return repository.findAllById(ids.stream().filter(shardRouter::owns).toList()).values().stream()
+                .map(PersonMapper::toResponseDTO)
+                .toList();
+    }
+
+    /**
+     * Records that persons owned by another instance changed (see
+     * {@link PatternMatchingService#relativesChanged(java.util.Collection)}).
+     *
+     * @param ids the IDs of the changed persons
+     */
+    public void relativesChanged(List<Long> ids) {
+        patternMatchingService.relativesChanged(ids);
+    }
+
+    /**
+     * Brings the matches up to date and returns the state they reflect
+     * (see {@link PatternMatchingService#matchState()}).
+     *
+     * @return the current match set state
+     */
+    public MatchSetState matchState() {
+        return patternMatchingService.matchState();
+    }
+
+    /**
+     * Returns the persons added to or removed from the matches since the given version.
+     *
+     * @param since the version the client last saw
+     * @return the changes, or empty if the client needs the complete matches instead
+     */
+    public Optional<MatchDeltaDTO> findMatchDelta(MatchVersion since) {
+        return patternMatchingService.matchesChangedSince(since)
+                .map(delta -> new MatchDeltaDTO(
+                        delta.version().toString(),
+                        delta.added().stream().map(PersonMapper::toResponseDTO).toList(),
+                        delta.removedIds()));
+    }
+
+    /**
+     * Returns the family of a person: everyone connected to it through parent, partner and child links.
+     *
+     * @param id the person ID
+     * @return the IDs in the family, ascending, including relatives referenced but not posted yet; empty if
+     *         the ID is unknown
+     */
+    public List<Long> findFamilyIds(Long id) {
+        return familyIndex.findComponent(id);
+    }
+
+    /**
+     * @return the number of families per family size, by ascending size
+     */
+    public SortedMap<Integer, Integer> familySizeHistogram() {
+        return familyIndex.sizeHistogram();
     }
 
     private List<PersonResponseDTO> findAndConvertMatches() {
@@ -0,0 +1,183 @@
+package nl.pinkroccade.familychallenge.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies single person records on one writer thread, fed through a bounded queue.
+ *
+ * <p>Only active with {@code family-challenge.single-writer.enabled}; otherwise {@link #apply(PersonRequestDTO)}
+ * applies the record on the calling thread, like before. When active, request threads enqueue their record and
+ * wait for it to be applied. The writer takes whatever is queued, up to {@code max-batch} records, applies them
+ * in order, refreshes the match set once for all of them and then releases the waiting requests. Under load
+ * the refresh is thus shared by many requests, and the person lock stripes and match lock are never
+ * contended by POSTs. Batches, imports and deletes still run on their request threads and stay serialized
+ * against the writer by those locks.</p>
+ *
+ * <p>The queue holds {@code queue-capacity} records; when it is full, request threads wait for space, so a
+ * burst slows clients down instead of growing memory. On shutdown the queued records are still applied; records
+ * left behind by a writer that stopped for any other reason fail instead of waiting forever.</p>
+ *
+ * <p>Meant for a write-ahead log without {@code sync-commit}: with it, the writer waits for the fsync of
+ * every record on its own, while request threads would share one fsync.</p>
+ */
+@Service
+public class PersonWriteQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonWriteQueue.class);
+
+    /* How often an idle writer checks whether it should stop */
+    private static final long IDLE_POLL_MS = 100;
+
+    private final PersonService          personService;
+    private final PatternMatchingService patternMatchingService;
+    private final boolean                enabled;
+    private final int                    maxBatch;
+    private final BlockingQueue<Write>   queue;
+    private final Timer                  batchTimer;
+
+    private volatile boolean closed;
+    private Thread           writer;
+
+    public PersonWriteQueue(
+            PersonService personService,
+            PatternMatchingService patternMatchingService,
+            FamilyChallengeProperties properties,
+            MeterRegistry meterRegistry) {
+        FamilyChallengeProperties.SingleWriter settings = properties.getSingleWriter();
+        this.personService = personService;
+        this.patternMatchingService = patternMatchingService;
+        this.enabled = settings.isEnabled();
+        this.maxBatch = Math.max(1, settings.getMaxBatch());
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity()));
+        this.batchTimer = Timer.builder("family.writer.batch")
+                .description("Applying a batch of queued person records, including the match refresh")
+                .register(meterRegistry);
+        Gauge.builder("family.writer.queue", queue, BlockingQueue::size)
+                .description("Person records waiting for the writer thread")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            writer = Thread.ofPlatform().name("person-writer").daemon().start(this::run);
+            log.info("Single writer started (queue capacity {}, max batch {})",
+                    queue.remainingCapacity(), maxBatch);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        closed = true;
+        if (writer != null) {
+            writer.join();
+        }
+    }
+
+    /**
+     * Saves a person record, repairs bidirectional integrity and refreshes the match set, like
+     * {@link PersonService#applyPerson(PersonRequestDTO)}, on the writer thread if enabled.
+     *
+     * @param request the person data from the request
+     * @throws IllegalStateException if the writer has been stopped
+     */
+    public void apply(PersonRequestDTO request) {
+        if (!enabled) {
+            personService.applyPerson(request);
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Person writer is shutting down");
+        }
+
+        Write write = new Write(request, new CompletableFuture<>());
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for space in the write queue", e);
+        }
+        // The writer may have drained the queue for the last time between the check above and the put
+        if (closed && queue.remove(write)) {
+            throw new IllegalStateException("Person writer is shutting down");
+        }
+        try {
+            write.done().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(maxBatch);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                try {
+                    Write first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                    batchTimer.record(() -> applyBatch(batch));
+                } catch (InterruptedException e) {
+                    // Only stop() ends the writer, after the queue has been drained
+                    Thread.interrupted();
+                } finally {
+                    batch.clear();
+                }
+            }
+            log.info("Single writer stopped");
+        } finally {
+            // Normally empty; after an unexpected failure the waiting requests must not hang
+            closed = true;
+            List<Write> leftover = new ArrayList<>();
+            queue.drainTo(leftover);
+            leftover.forEach(write -> write.done().completeExceptionally(
+                    new IllegalStateException("Person writer stopped")));
+        }
+    }
+
+    private void applyBatch(List<Write> batch) {
+        List<Write> applied = new ArrayList<>(batch.size());
+        for (Write write : batch) {
+            try {
+                personService.ingestPerson(write.request());
+                applied.add(write);
+            } catch (Throwable e) {
+                write.done().completeExceptionally(e);
+            }
+        }
+
+        try {
+            patternMatchingService.refreshMatches();
+        } catch (Throwable e) {
+            applied.forEach(write -> write.done().completeExceptionally(e));
+            return;
+        }
+        applied.forEach(write -> write.done().complete(null));
+    }
+
+    private record Write(PersonRequestDTO request, CompletableFuture<Void> done) {
+    }
+}
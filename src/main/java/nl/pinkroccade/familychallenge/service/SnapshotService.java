@@ -0,0 +1,66 @@
+package nl.pinkroccade.familychallenge.service;
+
+import jakarta.annotation.PreDestroy;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.repository.WriteAheadLoggedPersonRepository;
+import nl.pinkroccade.familychallenge.shard.ShardedPersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Takes periodic snapshots of a durable repository and seeds the match set on startup.
+ *
+ * <p>Only active when the write-ahead log is enabled. On startup the match set stored with the restored
+ * snapshot is handed to {@link PatternMatchingService}; without a snapshot, a replayed log is followed by a
+ * full rebuild. Snapshots are written every {@code family-challenge.wal.snapshot-interval-ms} and on
+ * shutdown, so a restart only replays the log written since.</p>
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final WriteAheadLoggedPersonRepository repository;
+    private final PatternMatchingService           patternMatchingService;
+
+    public SnapshotService(PersonRepository repository, PatternMatchingService patternMatchingService) {
+        PersonRepository local = repository instanceof ShardedPersonRepository sharded
+                ? sharded.getDelegate()
+                : repository;
+        this.repository = local instanceof WriteAheadLoggedPersonRepository durable ? durable : null;
+        this.patternMatchingService = patternMatchingService;
+
+        if (this.repository != null) {
+            this.repository.getRestoredMatches().ifPresentOrElse(
+                    patternMatchingService::restoreMatches,
+                    () -> {
+                        if (repository.currentVersion() > 0) {
+                            patternMatchingService.rebuildMatches();
+                        }
+                    });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${family-challenge.wal.snapshot-interval-ms:600000}",
+            initialDelayString = "${family-challenge.wal.snapshot-interval-ms:600000}")
+    public void takeSnapshot() {
+        if (repository == null) {
+            return;
+        }
+        try {
+            repository.snapshot(patternMatchingService::snapshotMatches);
+        } catch (IOException | RuntimeException e) {
+            // The log still holds everything; the next attempt replaces the previous snapshot
+            log.error("Failed to write snapshot", e);
+        }
+    }
+
+    @PreDestroy
+    void snapshotOnShutdown() {
+        takeSnapshot();
+    }
+}
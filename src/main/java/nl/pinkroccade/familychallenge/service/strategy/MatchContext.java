@@ -0,0 +1,132 @@
+package nl.pinkroccade.familychallenge.service.strategy;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The person under evaluation together with its partner and children, each looked up at most once.
+ *
+ * <p>All matching strategies of one evaluation share the context, so a child resolved while counting
+ * children is not looked up again for its age, and the partner is looked up once for every strategy that
+ * needs it. Lookups happen lazily on first access; a person that fails the partner check never has its
+ * children resolved.</p>
+ *
+ * <p>One context is meant to be reused for many evaluations by calling {@link #reset(Person)}; it only
+ * allocates when a person has more children than any before. Not thread-safe: use one context per thread.</p>
+ *
+ * <p>When lookups are expensive, for instance because relatives are stored on other instances, the partners
+ * and children of all persons about to be evaluated can be looked up in advance and passed in instead.</p>
+ */
+public final class MatchContext {
+
+    private static final int INITIAL_CHILDREN = 4;
+
+    private final PersonRepository repository;
+
+    /* Relatives looked up in advance, or null to look them up in the repository */
+    private final Map<Long, Person> relatives;
+
+    private Person person;
+
+    private Person  partner;
+    private boolean partnerResolved;
+
+    private Person[]  children         = new Person[INITIAL_CHILDREN];
+    private boolean[] childrenResolved = new boolean[INITIAL_CHILDREN];
+    private int       childCount;
+
+    public MatchContext(PersonRepository repository) {
+        this(repository, null);
+    }
+
+    /**
+     * @param repository the repository, for strategies looking up persons themselves
+     * @param relatives  the partners and children of the persons to evaluate, by ID; a relative not in it is
+     *                   not stored
+     */
+    public MatchContext(PersonRepository repository, Map<Long, Person> relatives) {
+        this.repository = repository;
+        this.relatives = relatives;
+    }
+
+    /**
+     * Starts the evaluation of another person, dropping everything resolved for the previous one.
+     *
+     * @param person the person to evaluate
+     * @return this context
+     */
+    public MatchContext reset(Person person) {
+        Arrays.fill(children, 0, childCount, null);
+        Arrays.fill(childrenResolved, 0, childCount, false);
+        this.person = person;
+        this.partner = null;
+        this.partnerResolved = false;
+        this.childCount = person.getChildCount();
+        if (childCount > children.length) {
+            children = new Person[childCount];
+            childrenResolved = new boolean[childCount];
+        }
+        return this;
+    }
+
+    /**
+     * @return the person under evaluation
+     */
+    public Person person() {
+        return person;
+    }
+
+    /**
+     * @return the repository the partner and children are looked up in
+     */
+    public PersonRepository repository() {
+        return repository;
+    }
+
+    /**
+     * @return the partner ID of the person, or {@code null} if it has none
+     */
+    public Long partnerId() {
+        return person.getPartnerId();
+    }
+
+    /**
+     * @return the partner, or {@code null} if the person has none or it is not in the repository
+     */
+    public Person partner() {
+        if (!partnerResolved) {
+            Long partnerId = person.getPartnerId();
+            partner = partnerId != null ? lookUp(partnerId) : null;
+            partnerResolved = true;
+        }
+        return partner;
+    }
+
+    /**
+     * @return the number of children the person lists
+     */
+    public int childCount() {
+        return childCount;
+    }
+
+    /**
+     * @param index the position of the child, in ascending ID order
+     * @return the child, or {@code null} if it is not in the repository
+     */
+    public Person child(int index) {
+        Objects.checkIndex(index, childCount);
+        if (!childrenResolved[index]) {
+            children[index] = lookUp(person.getChildIdAt(index));
+            childrenResolved[index] = true;
+        }
+        return children[index];
+    }
+
+    private Person lookUp(Long id) {
+        return relatives != null ? relatives.get(id) : repository.findById(id).orElse(null);
+    }
+}
@@ -0,0 +1,91 @@
+package nl.pinkroccade.familychallenge.service.strategy.age;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Holds the age thresholds for the current day, computed once per day instead of per evaluation.
+ *
+ * <p>A person is under 18 when born after {@link Day#adultCutoff()} (today minus 18 years). This equals
+ * {@code Period.between(birthDate, today).getYears() < 18}, including for birthdays on February 29,
+ * but reduces every check to an epoch-day comparison without clock reads or allocations.</p>
+ *
+ * <p>The thresholds only change on {@link #rollover()}, which is triggered at midnight by
+ * {@link nl.pinkroccade.familychallenge.service.PatternMatchingService#rolloverDay()} so that the
+ * match set is updated for the children turning 18.</p>
+ */
+@Component
+public class AgeCutoff {
+
+    public static final int ADULT_AGE = 18;
+
+    private final Clock clock;
+
+    private volatile Day day;
+
+    public AgeCutoff() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public AgeCutoff(Clock clock) {
+        this.clock = clock;
+        this.day = dayOf(LocalDate.now(clock));
+    }
+
+    /**
+     * The thresholds of a single day.
+     *
+     * @param date               the day the thresholds apply to
+     * @param adultCutoff        persons born on or before this date are 18 or older
+     * @param today              {@code date} as epoch day
+     * @param adultCutoffDay     {@code adultCutoff} as epoch day
+     * @param nextRolloverMillis the instant the next day starts, in epoch milliseconds
+     */
+    public record Day(LocalDate date, LocalDate adultCutoff, long today, long adultCutoffDay, long nextRolloverMillis) {
+
+        /**
+         * @return true if a person born on the given epoch day is younger than 18; future dates count as minor
+         */
+        public boolean isMinor(long birthDay) {
+            return birthDay > adultCutoffDay;
+        }
+
+        public boolean isInFuture(long birthDay) {
+            return birthDay > today;
+        }
+    }
+
+    public Day current() {
+        return day;
+    }
+
+    /**
+     * @return true if the current day has ended and {@link #rollover()} is due
+     */
+    public boolean isStale() {
+        return clock.millis() >= day.nextRolloverMillis();
+    }
+
+    /**
+     * Moves the thresholds to the current date of the clock.
+     *
+     * @return the thresholds that were active before, or {@code null} if the day has not changed
+     */
+    public synchronized Day rollover() {
+        Day previous = day;
+        LocalDate today = LocalDate.now(clock);
+        if (today.equals(previous.date())) {
+            return null;
+        }
+        day = dayOf(today);
+        return previous;
+    }
+
+    private Day dayOf(LocalDate date) {
+        LocalDate adultCutoff = date.minusYears(ADULT_AGE);
+        long nextRolloverMillis = date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return new Day(date, adultCutoff, date.toEpochDay(), adultCutoff.toEpochDay(), nextRolloverMillis);
+    }
+}
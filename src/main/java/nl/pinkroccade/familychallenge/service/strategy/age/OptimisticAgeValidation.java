@@ -1,10 +1,10 @@
 package nl.pinkroccade.familychallenge.service.strategy.age;
 
 import nl.pinkroccade.familychallenge.domain.Person;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
-import java.time.Period;
 
 /**
  * Optimistic age validation strategy.
@@ -20,6 +20,18 @@ import java.time.Period;
 @Component("optimisticAgeValidation")
 public class OptimisticAgeValidation implements AgeValidationStrategy {
 
+    private final AgeCutoff ageCutoff;
+
+    /* Standalone use: the thresholds stay at the day of construction */
+    public OptimisticAgeValidation() {
+        this(new AgeCutoff());
+    }
+
+    @Autowired
+    public OptimisticAgeValidation(AgeCutoff ageCutoff) {
+        this.ageCutoff = ageCutoff;
+    }
+
     @Override
     public boolean isUnder18(Person person) {
         // ALTERNATIVE: ADR-04 #4 (NOT chosen) - Optimistic interpretation
@@ -30,13 +42,14 @@ public class OptimisticAgeValidation implements AgeValidationStrategy {
             return true; // Unknown age - assume under 18
         }
 
-        LocalDate now = LocalDate.now();
-        if (birthDate.isAfter(now)) {
+        AgeCutoff.Day day = ageCutoff.current();
+        long birthDay = birthDate.toEpochDay();
+        if (day.isInFuture(birthDay)) {
             // Birth date in future is invalid - but be optimistic
             return true;
         }
 
-        return Period.between(birthDate, now).getYears() < 18;
+        return day.isMinor(birthDay);
     }
 }
 
@@ -1,10 +1,10 @@
 package nl.pinkroccade.familychallenge.service.strategy.age;
 
 import nl.pinkroccade.familychallenge.domain.Person;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
-import java.time.Period;
 
 /**
  * Pessimistic age validation strategy.
@@ -20,6 +20,18 @@ import java.time.Period;
 @Component("pessimisticAgeValidation")
 public class PessimisticAgeValidation implements AgeValidationStrategy {
 
+    private final AgeCutoff ageCutoff;
+
+    /* Standalone use: the thresholds stay at the day of construction */
+    public PessimisticAgeValidation() {
+        this(new AgeCutoff());
+    }
+
+    @Autowired
+    public PessimisticAgeValidation(AgeCutoff ageCutoff) {
+        this.ageCutoff = ageCutoff;
+    }
+
     @Override
     public boolean isUnder18(Person person) {
         // DECISION: ADR-04 #4 (OTI - chosen) - Pessimistic interpretation
@@ -29,13 +41,14 @@ public class PessimisticAgeValidation implements AgeValidationStrategy {
             return false; // Unknown age - don't assume under 18
         }
 
-        LocalDate now = LocalDate.now();
-        if (birthDate.isAfter(now)) {
+        AgeCutoff.Day day = ageCutoff.current();
+        long birthDay = birthDate.toEpochDay();
+        if (day.isInFuture(birthDay)) {
             // Birth date in future is invalid - treat as unknown age
             return false;
         }
 
-        return Period.between(birthDate, now).getYears() < 18;
+        return day.isMinor(birthDay);
     }
 }
 
@@ -2,6 +2,7 @@ package nl.pinkroccade.familychallenge.service.strategy.children;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
 
 import java.util.Set;
 
@@ -33,6 +34,20 @@ public interface ChildCountStrategy {
      */
     ValidationResult validateChildren(Person person, Long partnerId, PersonRepository repository);
 
+    /**
+     * Validates the children of the person under evaluation against its partner, sharing lookups with the
+     * other strategies and without allocating a result.
+     *
+     * <p>If valid, all children of the person count as valid children, as with both implementations of
+     * {@link #validateChildren(Person, Long, PersonRepository)}. The default delegates to that method.</p>
+     *
+     * @param context the person under evaluation
+     * @return true if the children meet the pattern requirements
+     */
+    default boolean hasValidChildren(MatchContext context) {
+        return validateChildren(context.person(), context.partnerId(), context.repository()).valid();
+    }
+
     /**
      * Result of child count validation.
      */
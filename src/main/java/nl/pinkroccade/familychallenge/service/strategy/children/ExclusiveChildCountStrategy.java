@@ -2,6 +2,7 @@ package nl.pinkroccade.familychallenge.service.strategy.children;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
 import org.springframework.stereotype.Component;
 
 import java.util.HashSet;
@@ -65,11 +66,33 @@ public class ExclusiveChildCountStrategy implements ChildCountStrategy {
         return new ValidationResult(true, validChildren);
     }
 
+    @Override
+    public boolean hasValidChildren(MatchContext context) {
+        // ALTERNATIVE: ADR-04 #2 (NOT chosen) - Exclusive interpretation, as in validateChildren
+        if (context.childCount() != 3) {
+            return false;
+        }
+
+        Long personId = context.person().getId();
+        Long partnerId = context.partnerId();
+        for (int i = 0; i < 3; i++) {
+            Person child = context.child(i);
+            if (child == null || !isParentOf(personId, child) || !isParentOf(partnerId, child)) {
+                return false;
+            }
+        }
+
+        // EXCLUSIVE check: Partner must ONLY have these 3 children
+        Person partner = context.partner();
+        return partner == null
+                || partner.getChildCount() == 3 && partner.getChildrenIds().equals(context.person().getChildrenIds());
+    }
+
     /**
      * Checks if personId is listed as parent1 or parent2 of the child.
      */
     private boolean isParentOf(Long personId, Person child) {
-        return personId.equals(child.getParent1Id()) || personId.equals(child.getParent2Id());
+        return child.hasParent(personId);
     }
 }
 
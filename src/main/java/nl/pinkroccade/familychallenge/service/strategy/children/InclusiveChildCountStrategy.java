@@ -2,6 +2,7 @@ package nl.pinkroccade.familychallenge.service.strategy.children;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
 import org.springframework.stereotype.Component;
 
 import java.util.HashSet;
@@ -58,11 +59,29 @@ public class InclusiveChildCountStrategy implements ChildCountStrategy {
         return new ValidationResult(true, validChildren);
     }
 
+    @Override
+    public boolean hasValidChildren(MatchContext context) {
+        // DECISION: ADR-04 #2 (confirmed) - Inclusive interpretation, as in validateChildren
+        if (context.childCount() != 3) {
+            return false;
+        }
+
+        Long personId = context.person().getId();
+        Long partnerId = context.partnerId();
+        for (int i = 0; i < 3; i++) {
+            Person child = context.child(i);
+            if (child == null || !isParentOf(personId, child) || !isParentOf(partnerId, child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks if personId is listed as parent1 or parent2 of the child.
      */
     private boolean isParentOf(Long personId, Person child) {
-        return personId.equals(child.getParent1Id()) || personId.equals(child.getParent2Id());
+        return child.hasParent(personId);
     }
 }
 
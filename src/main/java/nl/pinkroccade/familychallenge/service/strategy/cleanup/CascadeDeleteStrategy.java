@@ -3,8 +3,8 @@ package nl.pinkroccade.familychallenge.service.strategy.cleanup;
 import nl.pinkroccade.familychallenge.domain.Person;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Cascade delete cleanup strategy.
@@ -36,11 +36,14 @@ public class CascadeDeleteStrategy implements DataCleanupStrategy {
         }
 
         // Clean up children references
-        if (person.getChildrenIds() != null && !person.getChildrenIds().isEmpty()) {
-            Set<Long> cleanedChildren = person.getChildrenIds().stream()
-                    .filter(childId -> !ignoredIds.contains(childId))
-                    .collect(Collectors.toSet());
-            person.setChildrenIds(cleanedChildren);
+        // Checked without boxing first, so the common case of no ignored children allocates nothing
+        for (int i = 0; i < person.getChildCount(); i++) {
+            if (ignoredIds.contains(person.getChildIdAt(i))) {
+                Set<Long> kept = new HashSet<>(person.getChildrenIds());
+                kept.removeIf(ignoredIds::contains);
+                person.setChildrenIds(kept);
+                return;
+            }
         }
     }
 }
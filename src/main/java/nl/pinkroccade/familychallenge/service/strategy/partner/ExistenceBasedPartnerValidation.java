@@ -2,6 +2,7 @@ package nl.pinkroccade.familychallenge.service.strategy.partner;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
 import org.springframework.stereotype.Component;
 
 /**
@@ -28,6 +29,12 @@ public class ExistenceBasedPartnerValidation implements PartnerValidationStrateg
         }
         return repository.findById(partnerId).isPresent();
     }
+
+    @Override
+    public boolean hasValidPartner(MatchContext context) {
+        // ALTERNATIVE: ADR-04 #3 (NOT chosen) - Existence-based interpretation
+        return context.partner() != null;
+    }
 }
 
 
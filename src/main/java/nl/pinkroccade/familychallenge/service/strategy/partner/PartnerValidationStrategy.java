@@ -2,6 +2,7 @@ package nl.pinkroccade.familychallenge.service.strategy.partner;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
 
 /**
  * Strategy for validating partner relationships in pattern matching.
@@ -29,5 +30,17 @@ public interface PartnerValidationStrategy {
      * @return true if the person has a valid partner according to this strategy
      */
     boolean hasValidPartner(Person person, PersonRepository repository);
+
+    /**
+     * Validates the partner of the person under evaluation, sharing lookups with the other strategies.
+     * The default delegates to {@link #hasValidPartner(Person, PersonRepository)}; implementations that
+     * look up the partner use {@link MatchContext#partner()} instead.
+     *
+     * @param context the person under evaluation
+     * @return true if the person has a valid partner according to this strategy
+     */
+    default boolean hasValidPartner(MatchContext context) {
+        return hasValidPartner(context.person(), context.repository());
+    }
 }
 
@@ -0,0 +1,74 @@
+package nl.pinkroccade.familychallenge.shard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * IDs of changed persons waiting to be sent to the other instances.
+ *
+ * <p>Changes are queued while the writer holds its locks and sent once it released them. A writer sending
+ * finds the changes of every writer queued meanwhile and sends them all in one batch; a writer whose changes
+ * were sent by another returns without sending. Sends are serialized by a {@link ReentrantLock} rather than a
+ * monitor, since the writers may be virtual threads. A failed send keeps its IDs queued for the next one.</p>
+ */
+final class PendingChanges {
+
+    private final Set<Long>  ids    = ConcurrentHashMap.newKeySet();
+    private final AtomicLong queued = new AtomicLong();
+
+    private final Consumer<List<Long>> sender;
+    private final ReentrantLock        sendLock = new ReentrantLock();
+
+    /* Number of queue calls whose IDs were sent; guarded by sendLock */
+    private long sent;
+
+    /**
+     * @param sender sends a batch of changed IDs to the other instances, throwing if that failed
+     */
+    PendingChanges(Consumer<List<Long>> sender) {
+        this.sender = sender;
+    }
+
+    void queue(Collection<Long> changedIds) {
+        ids.addAll(changedIds);
+        // Counted after adding, so a send covering this count also finds the IDs
+        queued.incrementAndGet();
+    }
+
+    /**
+     * Sends every change queued so far, unless another caller did meanwhile.
+     */
+    void send() {
+        long awaited = queued.get();
+        sendLock.lock();
+        try {
+            if (sent >= awaited) {
+                return;
+            }
+            long covered = queued.get();
+            List<Long> batch = new ArrayList<>();
+            for (Iterator<Long> pending = ids.iterator(); pending.hasNext(); ) {
+                batch.add(pending.next());
+                pending.remove();
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    sender.accept(batch);
+                } catch (RuntimeException e) {
+                    ids.addAll(batch);
+                    throw e;
+                }
+            }
+            sent = covered;
+        } finally {
+            sendLock.unlock();
+        }
+    }
+}
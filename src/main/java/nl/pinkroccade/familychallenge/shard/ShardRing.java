@@ -0,0 +1,81 @@
+package nl.pinkroccade.familychallenge.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring assigning every person ID to one of a fixed list of nodes.
+ *
+ * <p>Each node is placed on the ring at {@code virtualNodes} pseudo-random points; an ID belongs to the first
+ * node point at or after its own hash, wrapping around. Adding or removing a node therefore only moves the
+ * IDs next to its points, about {@code 1 / nodes} of all IDs, and the many points per node keep the shares
+ * even. The placement only depends on the node names, so every node computes the same ring.</p>
+ */
+public final class ShardRing {
+
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+    private final List<String>               nodes;
+
+    /**
+     * @param nodes        the node names, without duplicates
+     * @param virtualNodes the number of points per node
+     */
+    public ShardRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A shard ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        this.nodes = List.copyOf(nodes);
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // A colliding point keeps the first node, on every node alike
+                points.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * @param id a person ID
+     * @return the node owning the ID
+     */
+    public String ownerOf(long id) {
+        Map.Entry<Long, String> point = points.ceilingEntry(mix(id));
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+
+    /**
+     * @return all nodes, in configuration order
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, mixed so that similar names end up far apart.
+     */
+    private static long hash(String name) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3 finalizer, spreading sequential IDs over the whole ring.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
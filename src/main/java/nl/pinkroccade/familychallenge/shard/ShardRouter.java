@@ -0,0 +1,251 @@
+package nl.pinkroccade.familychallenge.shard;
+
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import nl.pinkroccade.familychallenge.dto.PersonResponseDTO;
+import nl.pinkroccade.familychallenge.dto.ShardLinkDTO;
+import nl.pinkroccade.familychallenge.mapper.PersonMapper;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Knows which instance owns which person and calls the other instances over their internal HTTP API
+ * ({@code /internal/v1/shard}, see {@code ShardController}).
+ *
+ * <p>Only active with {@code family-challenge.shard.enabled}; otherwise this instance owns every person and
+ * none of the calls are made. Owners are assigned by a {@link ShardRing} over
+ * {@code family-challenge.shard.nodes}, which must list the same base URLs on every instance.</p>
+ *
+ * <p>Calls are synchronous and fail with a {@link org.springframework.web.client.RestClientException} if an
+ * instance cannot be reached within {@code family-challenge.shard.timeout-ms}. Change notifications are the
+ * exception: saves only queue them ({@link #queueChanges(Collection)}), and the writer sends them in batches
+ * once it released its locks ({@link #sendQueuedChanges()}).</p>
+ */
+@Component
+public class ShardRouter {
+
+    private static final String BASE_PATH = "/internal/v1/shard";
+
+    /* Most persons read from an instance in one request */
+    private static final int FETCH_BATCH = 500;
+
+    private static final ParameterizedTypeReference<List<PersonResponseDTO>> PERSON_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<List<PersonRequestDTO>> PERSON_RECORD_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final ShardRing  ring;
+    private final String     self;
+    private final RestClient restClient;
+
+    private final PendingChanges pendingChanges = new PendingChanges(this::sendChanges);
+
+    public ShardRouter(FamilyChallengeProperties properties, RestClient.Builder restClientBuilder) {
+        FamilyChallengeProperties.Shard shard = properties.getShard();
+        if (!shard.isEnabled()) {
+            this.ring = null;
+            this.self = null;
+            this.restClient = null;
+            return;
+        }
+        if (!shard.getNodes().contains(shard.getSelf())) {
+            throw new IllegalStateException("family-challenge.shard.self " + shard.getSelf()
+                    + " is not one of family-challenge.shard.nodes " + shard.getNodes());
+        }
+        this.ring = new ShardRing(shard.getNodes(), shard.getVirtualNodes());
+        this.self = shard.getSelf();
+
+        Duration timeout = Duration.ofMillis(shard.getTimeoutMs());
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().connectTimeout(timeout).build());
+        requestFactory.setReadTimeout(timeout);
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+    }
+
+    /**
+     * @return whether persons are partitioned over several instances
+     */
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * @param id a person ID
+     * @return whether the person is stored on this instance; always true when not sharded
+     */
+    public boolean owns(Long id) {
+        return ring == null || self.equals(ring.ownerOf(id));
+    }
+
+    /**
+     * @return the base URLs of all instances except this one
+     */
+    public List<String> peers() {
+        return ring == null ? List.of() : ring.nodes().stream().filter(node -> !node.equals(self)).toList();
+    }
+
+    /**
+     * Lets the owner save a person record and repair its relationships.
+     *
+     * @return true if the record was stored, false if it was ignored
+     */
+    public boolean ingest(Person person) {
+        Boolean stored = restClient.post()
+                .uri(ownerOf(person.getId()) + BASE_PATH + "/people")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(PersonMapper.toResponseDTO(person))
+                .retrieve()
+                .body(Boolean.class);
+        return Boolean.TRUE.equals(stored);
+    }
+
+    /**
+     * Lets the owner of {@link ShardLinkDTO#personId()} add the relationship.
+     */
+    public void link(ShardLinkDTO link) {
+        restClient.post()
+                .uri(ownerOf(link.personId()) + BASE_PATH + "/links")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(link)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    /**
+     * Reads a person from its owner.
+     *
+     * @return the stored person, or empty if the owner does not store it
+     */
+    public Optional<Person> fetch(Long id) {
+        ResponseEntity<PersonRequestDTO> person = restClient.get()
+                .uri(ownerOf(id) + BASE_PATH + "/people/{id}", id)
+                .retrieve()
+                .onStatus(status -> status.isSameCodeAs(HttpStatus.NOT_FOUND), (request, response) -> {
+                })
+                .toEntity(PersonRequestDTO.class);
+        if (person.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND) || person.getBody() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(PersonMapper.toDomain(person.getBody()));
+    }
+
+    /**
+     * Reads several persons from their owners, with one request per owner for up to {@value #FETCH_BATCH} of
+     * them.
+     *
+     * @param ids IDs of persons stored on other instances
+     * @return the persons their owners store, by ID
+     */
+    public Map<Long, Person> fetchAll(Collection<Long> ids) {
+        Map<String, List<Long>> idsByOwner = new HashMap<>();
+        for (Long id : ids) {
+            idsByOwner.computeIfAbsent(ownerOf(id), owner -> new ArrayList<>()).add(id);
+        }
+        Map<Long, Person> persons = new HashMap<>();
+        idsByOwner.forEach((owner, ownedIds) -> {
+            for (int from = 0; from < ownedIds.size(); from += FETCH_BATCH) {
+                List<PersonRequestDTO> fetched = restClient.post()
+                        .uri(owner + BASE_PATH + "/people/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(ownedIds.subList(from, Math.min(from + FETCH_BATCH, ownedIds.size())))
+                        .retrieve()
+                        .body(PERSON_RECORD_LIST);
+                if (fetched != null) {
+                    fetched.forEach(person -> persons.put(person.id(), PersonMapper.toDomain(person)));
+                }
+            }
+        });
+        return persons;
+    }
+
+    /**
+     * Queues the notification that persons stored here changed, to be sent by {@link #sendQueuedChanges()}.
+     * Makes no call, so it may be used while holding locks.
+     */
+    public void queueChanges(Collection<Long> ids) {
+        pendingChanges.queue(ids);
+    }
+
+    /**
+     * Tells every other instance about the persons changed here since the last send, so they re-evaluate the
+     * persons referencing them. The changes queued by concurrent writers are sent along in the same batch.
+     * Returns once the changes queued before the call reached every instance.
+     */
+    public void sendQueuedChanges() {
+        if (isEnabled()) {
+            pendingChanges.send();
+        }
+    }
+
+    /**
+     * Deletes persons on every other instance, which each clean up the references of their own persons.
+     */
+    public void publishDeletes(List<Long> ids) {
+        for (String peer : peers()) {
+            restClient.post()
+                    .uri(peer + BASE_PATH + "/deletions")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(ids)
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    }
+
+    /**
+     * Reads the current matches of another instance.
+     *
+     * @param peer    the base URL of the instance
+     * @param afterId the ID to continue after, or {@code null} to start at the first match
+     * @param limit   the maximum number of matches to return, or {@code null} for all of them
+     * @return the matches stored on that instance, ordered by ID
+     */
+    public List<PersonResponseDTO> fetchMatches(String peer, Long afterId, Integer limit) {
+        URI uri = UriComponentsBuilder.fromUriString(peer + BASE_PATH + "/matches")
+                .queryParamIfPresent("after", Optional.ofNullable(afterId))
+                .queryParamIfPresent("limit", Optional.ofNullable(limit))
+                .build()
+                .toUri();
+        List<PersonResponseDTO> matches = restClient.get()
+                .uri(uri)
+                .retrieve()
+                .body(PERSON_LIST);
+        return matches != null ? matches : List.of();
+    }
+
+    private void sendChanges(List<Long> ids) {
+        for (String peer : peers()) {
+            restClient.post()
+                    .uri(peer + BASE_PATH + "/changes")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(ids)
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    }
+
+    private String ownerOf(Long id) {
+        if (ring == null) {
+            throw new IllegalStateException("Not sharded");
+        }
+        return ring.ownerOf(id);
+    }
+}
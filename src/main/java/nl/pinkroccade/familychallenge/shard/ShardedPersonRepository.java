@@ -0,0 +1,143 @@
+package nl.pinkroccade.familychallenge.shard;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.ChangeSet;
+import nl.pinkroccade.familychallenge.repository.PersonColumns;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Gives the persons of this instance a view of the persons stored on the others in a sharded deployment.
+ *
+ * <p>Persons owned by this instance, according to the {@link ShardRouter}, are stored in the delegate. Looking
+ * up any other person reads it from its owner, so matching can resolve partners and children wherever they
+ * are stored; ignored IDs are known on every instance and never looked up. {@link #findAllById(Collection)}
+ * reads the persons of each other instance in batches. Every save is queued to be published to the other
+ * instances, which re-evaluate their persons referencing the saved one; the writer sends the queued changes
+ * once it released its locks (see {@link ShardRouter#sendQueuedChanges()}).</p>
+ *
+ * <p>Saving a person owned by another instance is a programming error: the service routes those records and
+ * relationship repairs to their owner instead. Everything else, including the change log, the reverse
+ * references and the ignored IDs, reflects this instance only.</p>
+ */
+public class ShardedPersonRepository implements PersonRepository {
+
+    private final PersonRepository delegate;
+    private final ShardRouter      router;
+
+    public ShardedPersonRepository(PersonRepository delegate, ShardRouter router) {
+        this.delegate = delegate;
+        this.router = router;
+    }
+
+    /**
+     * @return the repository holding the persons of this instance
+     */
+    public PersonRepository getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Optional<Person> save(Person person) {
+        if (!router.owns(person.getId())) {
+            throw new IllegalStateException("Person " + person.getId() + " is stored on another instance");
+        }
+        Optional<Person> saved = delegate.save(person);
+        // Queued once the new version is visible, so a re-evaluation triggered by it reads that version
+        saved.ifPresent(stored -> router.queueChanges(List.of(stored.getId())));
+        return saved;
+    }
+
+    @Override
+    public Optional<Person> findById(Long id) {
+        if (id == null || router.owns(id)) {
+            return delegate.findById(id);
+        }
+        return delegate.isIgnored(id) ? Optional.empty() : router.fetch(id);
+    }
+
+    @Override
+    public Map<Long, Person> findAllById(Collection<Long> ids) {
+        Map<Long, Person> persons = new HashMap<>();
+        List<Long> remoteIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (router.owns(id)) {
+                delegate.findById(id).ifPresent(person -> persons.put(id, person));
+            } else if (!delegate.isIgnored(id)) {
+                remoteIds.add(id);
+            }
+        }
+        if (!remoteIds.isEmpty()) {
+            persons.putAll(router.fetchAll(remoteIds));
+        }
+        return persons;
+    }
+
+    @Override
+    public Collection<Person> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public int count() {
+        return delegate.count();
+    }
+
+    @Override
+    public void deleteByIds(List<Long> ids) {
+        delegate.deleteByIds(ids);
+    }
+
+    @Override
+    public boolean isIgnored(Long id) {
+        return delegate.isIgnored(id);
+    }
+
+    @Override
+    public Set<Long> getIgnoredIds() {
+        return delegate.getIgnoredIds();
+    }
+
+    @Override
+    public Set<Long> findReferrerIds(Long id) {
+        return delegate.findReferrerIds(id);
+    }
+
+    @Override
+    public Set<Long> findIdsBornBetween(LocalDate after, LocalDate until) {
+        return delegate.findIdsBornBetween(after, until);
+    }
+
+    @Override
+    public long currentVersion() {
+        return delegate.currentVersion();
+    }
+
+    @Override
+    public ChangeSet changesSince(long sinceVersion) {
+        return delegate.changesSince(sinceVersion);
+    }
+
+    @Override
+    public void discardChangesUpTo(long upToVersion) {
+        delegate.discardChangesUpTo(upToVersion);
+    }
+
+    @Override
+    public PersonColumns exportColumns() {
+        return delegate.exportColumns();
+    }
+
+    @Override
+    public void restore(PersonColumns persons, Set<Long> ignoredIds) {
+        delegate.restore(persons, ignoredIds);
+    }
+}
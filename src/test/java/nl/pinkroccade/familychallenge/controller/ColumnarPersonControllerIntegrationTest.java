@@ -0,0 +1,13 @@
+package nl.pinkroccade.familychallenge.controller;
+
+import nl.pinkroccade.familychallenge.repository.ColumnarPersonRepository;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the {@link PersonControllerIntegrationTest} scenarios against {@link ColumnarPersonRepository}.
+ */
+@TestPropertySource(properties = {
+        "family-challenge.repository=nl.pinkroccade.familychallenge.repository.ColumnarPersonRepository"
+})
+class ColumnarPersonControllerIntegrationTest extends PersonControllerIntegrationTest {
+}
@@ -0,0 +1,96 @@
+package nl.pinkroccade.familychallenge.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.pinkroccade.familychallenge.util.TestDataLoader;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "family-challenge.partner-validation=nl.pinkroccade.familychallenge.service.strategy.partner.ReferenceBasedPartnerValidation",
+        "family-challenge.child-count=nl.pinkroccade.familychallenge.service.strategy.children.ExclusiveChildCountStrategy",
+        "family-challenge.age-validation=nl.pinkroccade.familychallenge.service.strategy.age.PessimisticAgeValidation",
+        "family-challenge.cascade-delete=nl.pinkroccade.familychallenge.service.strategy.cleanup.CascadeDeleteStrategy",
+        "family-challenge.match-feed.enabled=true",
+        "family-challenge.match-feed.max-subscribers=1"
+})
+class MatchFeedIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void feedShouldPushMatchChangesOfPostsAndDeletes() throws Exception {
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        HttpResponse<Stream<String>> feed = httpClient.send(
+                HttpRequest.newBuilder(uri("/api/v1/people/matches/feed")).build(),
+                HttpResponse.BodyHandlers.ofLines());
+        assertThat(feed.statusCode()).isEqualTo(200);
+        assertThat(feed.headers().firstValue("Content-Type")).hasValueSatisfying(
+                type -> assertThat(type).startsWith("text/event-stream"));
+        Thread.ofVirtual().start(() -> feed.body().forEach(lines::add));
+
+        JsonNode subscribed = nextEvent(lines, "subscribed");
+        assertThat(subscribed.get("added")).isEmpty();
+
+        // Only one subscriber is allowed
+        assertThat(httpClient.send(HttpRequest.newBuilder(uri("/api/v1/people/matches/feed")).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode()).isEqualTo(503);
+
+        for (JsonNode person : TestDataLoader.load("happy-path-match.json").get("requests")) {
+            send(HttpRequest.newBuilder(uri("/api/v1/people"))
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(person))));
+        }
+        JsonNode added = nextEvent(lines, "matches");
+        assertThat(added.get("added")).extracting(JsonNode::asLong).containsExactly(1L, 2L);
+        assertThat(added.get("removed")).isEmpty();
+
+        send(HttpRequest.newBuilder(uri("/api/v1/people"))
+                .method("DELETE", HttpRequest.BodyPublishers.ofString("[12]")));
+        JsonNode removed = nextEvent(lines, "matches");
+        assertThat(removed.get("removed")).extracting(JsonNode::asLong).containsExactly(1L, 2L);
+        assertThat(removed.get("version").asText()).isNotEqualTo(added.get("version").asText());
+    }
+
+    private JsonNode nextEvent(BlockingQueue<String> lines, String name) throws Exception {
+        String line;
+        while ((line = lines.poll(5, TimeUnit.SECONDS)) != null) {
+            if (line.equals("event:" + name)) {
+                String data = lines.poll(5, TimeUnit.SECONDS);
+                assertThat(data).startsWith("data:");
+                return objectMapper.readTree(data.substring("data:".length()));
+            }
+        }
+        throw new AssertionError("No " + name + " event received");
+    }
+
+    private void send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<Void> response = httpClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(response.statusCode()).isIn(200, 444);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -3,7 +3,9 @@ package nl.pinkroccade.familychallenge.controller;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import nl.pinkroccade.familychallenge.repository.ColumnarPersonRepository;
 import nl.pinkroccade.familychallenge.repository.InMemoryPersonRepository;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
 import nl.pinkroccade.familychallenge.util.TestDataLoader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,10 +14,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.json.JsonCompareMode;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,12 +46,20 @@ class PersonControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    /* The repository selected by family-challenge.repository */
+    @Autowired
+    private PersonRepository repository;
+
     @Autowired
-    private InMemoryPersonRepository repository;
+    private InMemoryPersonRepository inMemoryRepository;
+
+    @Autowired
+    private ColumnarPersonRepository columnarRepository;
 
     @BeforeEach
     void setUp() {
-        repository.clear();
+        inMemoryRepository.clear();
+        columnarRepository.clear();
     }
 
     @Test
@@ -192,6 +211,388 @@ class PersonControllerIntegrationTest {
                 .andExpect(status().is(444));
     }
 
+    @Test
+    void postChildUpdateShouldRemovePreviousMatch() throws Exception {
+        JsonNode scenario = TestDataLoader.load("happy-path-match.json");
+        JsonNode requests = scenario.get("requests");
+
+        for (JsonNode request : requests) {
+            PersonRequestDTO dto = objectMapper.treeToValue(request, PersonRequestDTO.class);
+
+            mockMvc.perform(post("/api/v1/people")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(dto)));
+        }
+
+        // Re-post the children as adults - the parents must drop out once no child is under 18
+        for (long childId : new long[]{10L, 11L, 12L}) {
+            String adultChild = """
+                    {
+                        "id": %d,
+                        "birthDate": "1990-01-01",
+                        "parent1": {"id": 1},
+                        "parent2": {"id": 2}
+                    }
+                    """.formatted(childId);
+
+            ResultActions result = mockMvc.perform(post("/api/v1/people")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(adultChild));
+
+            if (childId == 12L) {
+                result.andExpect(status().is(444));
+            } else {
+                result.andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(2));
+            }
+        }
+    }
+
+    @Test
+    void deleteChildShouldCleanupParentsAndRemoveMatch() throws Exception {
+        JsonNode scenario = TestDataLoader.load("happy-path-match.json");
+        JsonNode requests = scenario.get("requests");
+
+        for (JsonNode request : requests) {
+            PersonRequestDTO dto = objectMapper.treeToValue(request, PersonRequestDTO.class);
+
+            mockMvc.perform(post("/api/v1/people")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(dto)));
+        }
+
+        mockMvc.perform(delete("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[12]"))
+                .andExpect(status().isOk());
+
+        assertThat(repository.findById(1L).orElseThrow().getChildrenIds()).containsExactlyInAnyOrder(10L, 11L);
+        assertThat(repository.findById(2L).orElseThrow().getChildrenIds()).containsExactlyInAnyOrder(10L, 11L);
+
+        // Re-posting the deleted child is silently ignored and the parents no longer match
+        PersonRequestDTO deletedChild = objectMapper.treeToValue(requests.get(4), PersonRequestDTO.class);
+        mockMvc.perform(post("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deletedChild)))
+                .andExpect(status().is(444));
+    }
+
+    @Test
+    void familyShouldFollowLinksAndSplitAfterDelete() throws Exception {
+        mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                TestDataLoader.load("happy-path-match.json").get("requests"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": 20, \"children\": [{\"id\": 21}]}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/people/11/family"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[1, 2, 10, 11, 12]", JsonCompareMode.STRICT));
+        mockMvc.perform(get("/api/v1/people/21/family"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[20, 21]", JsonCompareMode.STRICT));
+        mockMvc.perform(get("/api/v1/people/families"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"2\": 1, \"5\": 1}", JsonCompareMode.STRICT));
+
+        mockMvc.perform(delete("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk());
+
+        // Without their parents the children are no longer related
+        mockMvc.perform(get("/api/v1/people/11/family"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[11]", JsonCompareMode.STRICT));
+        mockMvc.perform(get("/api/v1/people/1/family"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void postBatchArrayShouldReturnMatchesOnce() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+
+        mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    @Test
+    void matchesShouldBePagedWithNextLink() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+
+        String next = mockMvc.perform(post("/api/v1/people/batch").param("limit", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(header().string("Link", "<http://localhost/api/v1/people/matches?after=1&limit=1>; rel=\"next\""))
+                .andReturn().getResponse().getHeader("Link");
+
+        mockMvc.perform(get(next.substring(1, next.indexOf('>'))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(header().doesNotExist("Link"));
+
+        mockMvc.perform(get("/api/v1/people/matches").param("after", "2"))
+                .andExpect(status().is(444));
+        mockMvc.perform(get("/api/v1/people/matches").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void postWithInvalidLimitShouldNotStoreAnything() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+        long version = repository.currentVersion();
+
+        mockMvc.perform(post("/api/v1/people").param("limit", "0")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests.get(0))))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/people/batch").param("limit", "20000")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/people/batch").param("limit", "0")
+                        .contentType("application/x-ndjson")
+                        .content(objectMapper.writeValueAsString(requests.get(0)) + "\n"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(repository.count()).isZero();
+        assertThat(repository.currentVersion()).isEqualTo(version);
+    }
+
+    @Test
+    void postWithMalformedMatchVersionShouldNotStoreAnything() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+        long version = repository.currentVersion();
+
+        mockMvc.perform(post("/api/v1/people").header("Match-Version", "garbage")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests.get(0))))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/people/batch").header("Match-Version", "garbage")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/people/batch").header("Match-Version", "garbage")
+                        .contentType("application/x-ndjson")
+                        .content(objectMapper.writeValueAsString(requests.get(0)) + "\n"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(repository.count()).isZero();
+        assertThat(repository.currentVersion()).isEqualTo(version);
+    }
+
+    @Test
+    void negativeMatchVersionShouldBeRejected() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+        String version = mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Match-Version");
+        String epoch = version.substring(0, version.indexOf('-'));
+
+        mockMvc.perform(post("/api/v1/people").header("Match-Version", epoch + "--2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests.get(0))))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/people").header("Match-Version", "ffffffffffffffff-0")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests.get(0))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void matchVersionShouldReturnOnlyChangesSince() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+
+        String version = mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Match-Delta"))
+                .andReturn().getResponse().getHeader("Match-Version");
+
+        mockMvc.perform(delete("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[12]"))
+                .andExpect(status().isOk());
+
+        String next = mockMvc.perform(get("/api/v1/people/matches").header("Match-Version", version))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Match-Delta", "true"))
+                .andExpect(jsonPath("$.added.length()").value(0))
+                .andExpect(jsonPath("$.removed[0]").value(1))
+                .andExpect(jsonPath("$.removed[1]").value(2))
+                .andReturn().getResponse().getHeader("Match-Version");
+        assertThat(next).isNotEqualTo(version);
+
+        // An unknown version gets the complete matches
+        mockMvc.perform(get("/api/v1/people/matches").header("Match-Version", "0-0"))
+                .andExpect(status().is(444))
+                .andExpect(header().string("Match-Version", next));
+        mockMvc.perform(get("/api/v1/people/matches").header("Match-Version", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void unchangedAndIgnoredPostsShouldNotAdvanceRepositoryVersion() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+        String matches = mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(delete("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[99]"))
+                .andExpect(status().isOk());
+        long version = repository.currentVersion();
+
+        // Child 10 as stored, and an ignored person: both are answered from the cached response
+        for (String request : List.of(objectMapper.writeValueAsString(requests.get(2)), "{\"id\": 99}")) {
+            mockMvc.perform(post("/api/v1/people")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(request))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(matches, JsonCompareMode.STRICT));
+        }
+        assertThat(repository.currentVersion()).isEqualTo(version);
+
+        // A real change is reflected right away
+        mockMvc.perform(post("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id": 1, "name": "Renamed", "birthDate": "1980-05-15", "partner": {"id": 2},
+                                 "children": [{"id": 10}, {"id": 11}, {"id": 12}]}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Renamed"));
+        assertThat(repository.currentVersion()).isGreaterThan(version);
+    }
+
+    @Test
+    void postBatchNdjsonShouldReturnMatches() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+        StringBuilder ndjson = new StringBuilder();
+        for (JsonNode request : requests) {
+            ndjson.append(objectMapper.writeValueAsString(request)).append('\n');
+        }
+
+        mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void postBatchWithoutMatchesShouldReturn444() throws Exception {
+        JsonNode requests = TestDataLoader.load("no-partner.json").get("requests");
+
+        mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().is(444));
+    }
+
+    @Test
+    void postBatchNdjsonWithMalformedRecordShouldReturn400() throws Exception {
+        String ndjson = """
+                {"id": 1, "name": "Valid"}
+                {"id": 2, "name": 
+                """;
+
+        mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isBadRequest());
+
+        assertThat(repository.findById(1L)).isPresent();
+    }
+
+    @Test
+    void postBatchWithoutIdShouldReturn400() throws Exception {
+        mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"No ID\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importNdjsonShouldApplyAllRecordsAndReportProgress() throws Exception {
+        JsonNode requests = TestDataLoader.load("happy-path-match.json").get("requests");
+        StringBuilder ndjson = new StringBuilder();
+        for (JsonNode request : requests) {
+            ndjson.append(objectMapper.writeValueAsString(request)).append('\n');
+        }
+
+        mockMvc.perform(post("/api/v1/people/import")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.recordsRead").value(requests.size()))
+                .andExpect(jsonPath("$.recordsStored").value(requests.size()));
+
+        mockMvc.perform(get("/api/v1/people/import"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[-1].state").value("COMPLETED"));
+
+        // The imported family is matched like any other
+        mockMvc.perform(post("/api/v1/people/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void importNdjsonWithoutIdShouldReturn400AndReportFailure() throws Exception {
+        mockMvc.perform(post("/api/v1/people/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"name\": \"No ID\"}\n"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/people/import"))
+                .andExpect(jsonPath("$[-1].state").value("FAILED"));
+    }
+
+    @Test
+    void importNdjsonShouldApplyRecordsBeforeMalformedOne() throws Exception {
+        mockMvc.perform(post("/api/v1/people/import")
+                        .contentType("application/x-ndjson")
+                        .content("""
+                                {"id": 1, "name": "Parent", "children": [{"id": 2}]}
+                                {"id": 2, "name": "Child"}
+                                {"id": 3 "name": "Missing comma"}
+                                {"id": 4, "name": "Never read"}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("line 3")))
+                .andExpect(jsonPath("$.message").value(containsString("the 2 record(s) before it were applied")));
+
+        // The records before the malformed one were applied, although their chunk was not full
+        mockMvc.perform(get("/api/v1/people/import"))
+                .andExpect(jsonPath("$[-1].state").value("FAILED"))
+                .andExpect(jsonPath("$[-1].recordsStored").value(2));
+        mockMvc.perform(get("/api/v1/people/1/family"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[1, 2]", JsonCompareMode.STRICT));
+    }
+
     @Test
     void postPersonWithoutIdShouldReturn400() throws Exception {
         String invalidJson = """
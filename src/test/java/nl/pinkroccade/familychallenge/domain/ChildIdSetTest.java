@@ -0,0 +1,108 @@
+package nl.pinkroccade.familychallenge.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ChildIdSet}.
+ */
+class ChildIdSetTest {
+
+    @Test
+    void addShouldIgnoreDuplicatesAndKeepAscendingOrder() {
+        ChildIdSet set = new ChildIdSet();
+        set.add(12L);
+        set.add(10L);
+        set.add(12L);
+        set.add(11L);
+
+        assertThat(set).containsExactly(10L, 11L, 12L);
+        assertThat(set.get(2)).isEqualTo(12L);
+    }
+
+    @Test
+    void copyOfListShouldDropDuplicates() {
+        ChildIdSet set = ChildIdSet.copyOf(List.of(3L, 1L, 2L, 1L));
+        assertThat(set).hasSize(3).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void copyOfShouldNotShareState() {
+        ChildIdSet original = ChildIdSet.copyOf(Set.of(1L, 2L));
+        ChildIdSet copy = ChildIdSet.copyOf(original);
+        copy.add(3L);
+
+        assertThat(original).hasSize(2);
+        assertThat(copy).hasSize(3);
+    }
+
+    @Test
+    void removeShouldShiftRemainingIds() {
+        ChildIdSet set = ChildIdSet.copyOf(List.of(1L, 2L, 3L, 4L, 5L));
+        set.remove(2L);
+        set.remove(Long.valueOf(4L));
+
+        assertThat(set).containsExactly(1L, 3L, 5L);
+        assertThat(set.contains(2L)).isFalse();
+    }
+
+    @Test
+    void iteratorRemoveShouldRemoveCurrentElement() {
+        ChildIdSet set = ChildIdSet.copyOf(List.of(1L, 2L, 3L));
+        Iterator<Long> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == 2L) {
+                iterator.remove();
+            }
+        }
+
+        assertThat(set).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void shouldBeEqualToOtherSetsWithSameIds() {
+        ChildIdSet set = ChildIdSet.copyOf(List.of(3L, 1L, 2L));
+
+        assertThat(set).isEqualTo(new HashSet<>(List.of(1L, 2L, 3L)));
+        assertThat(new HashSet<>(List.of(1L, 2L, 3L))).isEqualTo(set);
+        assertThat(set.hashCode()).isEqualTo(Set.of(1L, 2L, 3L).hashCode());
+    }
+
+    @Test
+    void largeSetShouldUseBinarySearch() {
+        ChildIdSet set = new ChildIdSet();
+        for (long id = 100; id > 0; id -= 2) {
+            set.add(id);
+        }
+
+        assertThat(set).hasSize(50);
+        assertThat(set.contains(50L)).isTrue();
+        assertThat(set.contains(51L)).isFalse();
+        assertThat(set.get(0)).isEqualTo(2L);
+        assertThat(set.get(49)).isEqualTo(100L);
+    }
+
+    @Test
+    void forEachIdShouldVisitAllIds() {
+        ChildIdSet set = ChildIdSet.copyOf(List.of(7L, 8L));
+        List<Long> visited = new ArrayList<>();
+        set.forEachId(visited::add);
+
+        assertThat(visited).containsExactly(7L, 8L);
+    }
+
+    @Test
+    void nullShouldBeRejected() {
+        ChildIdSet set = new ChildIdSet();
+        assertThatThrownBy(() -> set.add((Long) null)).isInstanceOf(NullPointerException.class);
+        assertThat(set.contains(null)).isFalse();
+    }
+}
@@ -0,0 +1,102 @@
+package nl.pinkroccade.familychallenge.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.dto.PersonReferenceDTO;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import nl.pinkroccade.familychallenge.repository.InMemoryPersonRepository;
+import nl.pinkroccade.familychallenge.service.PersonService;
+import nl.pinkroccade.familychallenge.util.ServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the timers of the services and strategy decorators, and the {@link FamilyChallengeMetrics} gauges.
+ */
+class FamilyChallengeMetricsTest {
+
+    private final SimpleMeterRegistry      registry   = new SimpleMeterRegistry();
+    private final InMemoryPersonRepository repository = new InMemoryPersonRepository();
+
+    private PersonService service;
+
+    @BeforeEach
+    void setUp() {
+        ServiceFixture services = new ServiceFixture(repository, new FamilyChallengeProperties(),
+                Clock.systemDefaultZone(), registry, true);
+        service = services.personService;
+        new FamilyChallengeMetrics(repository, services.patternMatchingService).bindTo(registry);
+    }
+
+    @Test
+    void serviceCallsShouldBeTimed() {
+        service.processPerson(request(1L));
+        service.processPerson(request(2L));
+        service.deletePersons(List.of(2L));
+
+        assertThat(registry.get("family.person.process").timer().count()).isEqualTo(2);
+        assertThat(registry.get("family.person.repair").timer().count()).isEqualTo(2);
+        assertThat(registry.get("family.person.delete").timer().count()).isEqualTo(1);
+        assertThat(registry.get("family.matches.find").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void strategyCallsShouldBeCountedByResult() {
+        repository.save(new Person(10L).withBirthDate(LocalDate.now().minusYears(5)));
+        repository.save(new Person(11L).withBirthDate(LocalDate.now().minusYears(25)));
+        repository.save(new Person(12L).withBirthDate(LocalDate.now().minusYears(30)));
+        service.deletePersons(List.of(99L));
+
+        // Person 1 references the deleted ID 99 and its partner 2 does not exist yet
+        service.processPerson(new PersonRequestDTO(1L, null, null, new PersonReferenceDTO(99L), null,
+                new PersonReferenceDTO(2L), children(10L, 11L, 12L)));
+        service.processPerson(request(3L));
+
+        assertThat(strategyCount("data-cleanup", "CascadeDeleteStrategy", "hit")).isEqualTo(1);
+        assertThat(strategyCount("data-cleanup", "CascadeDeleteStrategy", "miss")).isEqualTo(1);
+        assertThat(strategyCount("partner-validation", "ReferenceBasedPartnerValidation", "hit")).isPositive();
+        assertThat(strategyCount("partner-validation", "ReferenceBasedPartnerValidation", "miss")).isPositive();
+        // All three children list only person 1 as parent, so they are not children with partner 2
+        assertThat(strategyCount("child-count", "InclusiveChildCountStrategy", "miss")).isPositive();
+    }
+
+    @Test
+    void gaugesShouldReportSizes() {
+        service.processPerson(new PersonRequestDTO(1L, null, null, null, null, new PersonReferenceDTO(2L),
+                children(3L, 4L, 5L)));
+        service.processPerson(new PersonRequestDTO(2L, null, null, null, null, new PersonReferenceDTO(1L),
+                children(3L, 4L, 5L)));
+        for (long child = 3L; child <= 5L; child++) {
+            service.processPerson(new PersonRequestDTO(child, null, LocalDate.now().minusYears(child),
+                    new PersonReferenceDTO(1L), new PersonReferenceDTO(2L), null, null));
+        }
+        service.deletePersons(List.of(98L, 99L));
+
+        assertThat(registry.get("family.persons").gauge().value()).isEqualTo(5);
+        assertThat(registry.get("family.persons.ignored").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("family.matches").gauge().value()).isEqualTo(2);
+    }
+
+    private long strategyCount(String strategy, String implementation, String result) {
+        return registry.get(StrategyTimers.METRIC_NAME)
+                .tags("strategy", strategy, "implementation", implementation, "result", result)
+                .timer()
+                .count();
+    }
+
+    private static PersonRequestDTO request(Long id) {
+        return new PersonRequestDTO(id, "Person " + id, null, null, null, null, null);
+    }
+
+    private static List<PersonReferenceDTO> children(Long... ids) {
+        return Set.of(ids).stream().map(PersonReferenceDTO::new).toList();
+    }
+}
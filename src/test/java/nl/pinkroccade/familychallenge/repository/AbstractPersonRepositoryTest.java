@@ -0,0 +1,159 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Behaviour shared by all {@link PersonRepository} implementations.
+ */
+abstract class AbstractPersonRepositoryTest {
+
+    protected PersonRepository repository;
+
+    protected abstract PersonRepository createRepository();
+
+    @BeforeEach
+    void setUp() {
+        repository = createRepository();
+    }
+
+    @Test
+    void saveShouldUpsertById() {
+        repository.save(new Person(1L).withName("Initial").withChildrenIds(Set.of(10L, 11L)));
+        repository.save(new Person(1L).withName("Updated").withBirthDate(LocalDate.of(1980, 1, 1))
+                .withParent1Id(2L).withParent2Id(3L).withPartnerId(4L).withChildrenIds(Set.of(12L)));
+
+        Person found = repository.findById(1L).orElseThrow();
+        assertThat(found.getName()).isEqualTo("Updated");
+        assertThat(found.getBirthDate()).isEqualTo(LocalDate.of(1980, 1, 1));
+        assertThat(found.getParent1Id()).isEqualTo(2L);
+        assertThat(found.getParent2Id()).isEqualTo(3L);
+        assertThat(found.getPartnerId()).isEqualTo(4L);
+        assertThat(found.getChildrenIds()).containsExactly(12L);
+        assertThat(repository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void readVersionShouldNotSeeLaterSavesOrCallerChanges() {
+        Person saved = new Person(1L).withName("First").withChildrenIds(Set.of(10L));
+        repository.save(saved);
+        saved.addChild(11L);
+        Person first = repository.findById(1L).orElseThrow();
+
+        repository.save(first.copy().withName("Second").withChild(12L));
+
+        assertThat(first.getName()).isEqualTo("First");
+        assertThat(first.getChildrenIds()).containsExactly(10L);
+        assertThat(repository.findById(1L).orElseThrow().getChildrenIds()).containsExactly(10L, 12L);
+    }
+
+    @Test
+    void deleteShouldRemovePersonAndIgnoreId() {
+        repository.save(new Person(1L));
+        repository.save(new Person(2L));
+
+        repository.deleteByIds(List.of(1L));
+
+        assertThat(repository.findById(1L)).isEmpty();
+        assertThat(repository.isIgnored(1L)).isTrue();
+        assertThat(repository.findAll()).extracting(Person::getId).containsExactly(2L);
+    }
+
+    @Test
+    void saveAndDeleteShouldBeRecordedAsChanges() {
+        long start = repository.currentVersion();
+
+        repository.save(new Person(1L));
+        repository.save(new Person(2L));
+        repository.deleteByIds(List.of(3L));
+
+        ChangeSet changes = repository.changesSince(start);
+        assertThat(changes.ids()).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(changes.version()).isEqualTo(repository.currentVersion());
+    }
+
+    @Test
+    void changesSinceShouldOnlyReturnNewerChanges() {
+        repository.save(new Person(1L));
+        long seen = repository.currentVersion();
+
+        repository.save(new Person(2L));
+
+        assertThat(repository.changesSince(seen).ids()).containsExactly(2L);
+    }
+
+    @Test
+    void ignoredSaveShouldNotBeRecorded() {
+        repository.deleteByIds(List.of(1L));
+        long seen = repository.currentVersion();
+
+        assertThat(repository.save(new Person(1L))).isEmpty();
+        assertThat(repository.changesSince(seen).ids()).isEmpty();
+    }
+
+    @Test
+    void discardedChangesShouldNotBeReturnedAgain() {
+        repository.save(new Person(1L));
+        long seen = repository.currentVersion();
+        repository.discardChangesUpTo(seen);
+
+        assertThat(repository.changesSince(0).ids()).isEmpty();
+    }
+
+    @Test
+    void findReferrerIdsShouldReturnPersonsReferencingId() {
+        repository.save(new Person(1L).withPartnerId(2L).withChildrenIds(Set.of(10L)));
+        repository.save(new Person(2L).withPartnerId(1L).withChildrenIds(Set.of(10L)));
+        repository.save(new Person(10L).withParent1Id(1L).withParent2Id(2L));
+
+        assertThat(repository.findReferrerIds(10L)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(repository.findReferrerIds(1L)).containsExactlyInAnyOrder(2L, 10L);
+    }
+
+    @Test
+    void findReferrerIdsShouldFollowInPlaceUpdates() {
+        Person person = new Person(1L).withPartnerId(2L);
+        repository.save(person);
+
+        person.setPartnerId(3L);
+        repository.save(person);
+
+        assertThat(repository.findReferrerIds(2L)).isEmpty();
+        assertThat(repository.findReferrerIds(3L)).containsExactly(1L);
+    }
+
+    @Test
+    void findReferrerIdsShouldDropReferencesOfDeletedPerson() {
+        repository.save(new Person(1L).withPartnerId(2L));
+        repository.save(new Person(2L).withPartnerId(1L));
+
+        repository.deleteByIds(List.of(1L));
+
+        assertThat(repository.findReferrerIds(2L)).isEmpty();
+        assertThat(repository.findReferrerIds(1L)).containsExactly(2L);
+    }
+
+    @Test
+    void findIdsBornBetweenShouldFollowUpdatesAndDeletes() {
+        repository.save(new Person(1L).withBirthDate(LocalDate.of(2008, 2, 28)));
+        repository.save(new Person(2L).withBirthDate(LocalDate.of(2008, 2, 29)));
+        repository.save(new Person(3L).withBirthDate(LocalDate.of(2008, 3, 1)));
+        repository.save(new Person(4L));
+
+        assertThat(repository.findIdsBornBetween(LocalDate.of(2008, 2, 28), LocalDate.of(2008, 3, 1)))
+                .containsExactlyInAnyOrder(2L, 3L);
+
+        repository.save(new Person(3L).withBirthDate(LocalDate.of(2010, 1, 1)));
+        repository.deleteByIds(List.of(2L));
+
+        assertThat(repository.findIdsBornBetween(LocalDate.of(2008, 2, 27), LocalDate.of(2008, 3, 1)))
+                .containsExactly(1L);
+    }
+}
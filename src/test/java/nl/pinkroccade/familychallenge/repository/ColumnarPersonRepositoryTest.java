@@ -0,0 +1,164 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ColumnarPersonRepository}.
+ */
+class ColumnarPersonRepositoryTest extends AbstractPersonRepositoryTest {
+
+    @Override
+    protected PersonRepository createRepository() {
+        return new ColumnarPersonRepository();
+    }
+
+    @Test
+    void findByIdShouldReturnDetachedCopy() {
+        repository.save(new Person(1L).withPartnerId(2L));
+
+        repository.findById(1L).orElseThrow().setPartnerId(3L);
+
+        assertThat(repository.findById(1L).orElseThrow().getPartnerId()).isEqualTo(2L);
+    }
+
+    @Test
+    void growingChildListShouldKeepOtherPersonsIntact() {
+        repository.save(new Person(1L).withChildrenIds(Set.of(10L)));
+        repository.save(new Person(2L).withChildrenIds(Set.of(20L, 21L)));
+
+        // Outgrows its region repeatedly, forcing relocation and compaction
+        for (int count = 2; count <= 50; count++) {
+            Set<Long> children = LongStream.range(100, 100 + count).boxed().collect(Collectors.toSet());
+            repository.save(new Person(1L).withChildrenIds(children));
+        }
+
+        assertThat(repository.findById(1L).orElseThrow().getChildrenIds()).hasSize(50);
+        assertThat(repository.findById(2L).orElseThrow().getChildrenIds()).containsExactlyInAnyOrder(20L, 21L);
+    }
+
+    @Test
+    void manyPersonsShouldGrowColumnsAndReuseFreedSlots() {
+        LongStream.range(0, 5_000).forEach(id -> repository.save(new Person(id).withParent1Id(id + 1)));
+        repository.deleteByIds(LongStream.range(0, 2_500).boxed().toList());
+        LongStream.range(10_000, 12_500).forEach(id -> repository.save(new Person(id)));
+
+        assertThat(repository.findAll()).hasSize(5_000);
+        assertThat(repository.findById(4_999L).orElseThrow().getParent1Id()).isEqualTo(5_000L);
+        assertThat(repository.findById(1_000L)).isEmpty();
+        assertThat(repository.findById(12_499L)).isPresent();
+    }
+
+    @Test
+    void childlessPersonInReusedSlotShouldSurviveCompaction() {
+        LongStream.range(0, 2_000).forEach(id -> repository.save(
+                new Person(id).withChildrenIds(Set.of(10_000 + id * 3, 10_001 + id * 3, 10_002 + id * 3))));
+        repository.deleteByIds(LongStream.range(0, 1_999).boxed().toList());
+
+        // Reuses a slot near the end of the child region, then a growing child list compacts the region
+        repository.save(new Person(5_000L));
+        repository.save(new Person(1_999L).withChildrenIds(Set.of(1L, 2L, 3L, 4L)));
+
+        assertThat(repository.findById(5_000L).orElseThrow().getChildrenIds()).isEmpty();
+        assertThat(repository.findById(1_999L).orElseThrow().getChildrenIds()).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void reservedIdShouldBeRejected() {
+        assertThatThrownBy(() -> repository.save(new Person(Long.MIN_VALUE)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(repository.findAll()).isEmpty();
+        assertThat(repository.changesSince(0).ids()).isEmpty();
+    }
+
+    @Test
+    void clearShouldRecordRemovedPersonsAsChanges() {
+        ColumnarPersonRepository columnar = (ColumnarPersonRepository) repository;
+        columnar.save(new Person(1L).withChildrenIds(Set.of(10L, 11L)));
+        long seen = columnar.currentVersion();
+
+        columnar.clear();
+        columnar.save(new Person(2L).withChildrenIds(Set.of(20L)));
+
+        assertThat(columnar.changesSince(seen).ids()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(columnar.findAll()).extracting(Person::getId).containsExactly(2L);
+        assertThat(columnar.findById(2L).orElseThrow().getChildrenIds()).containsExactly(20L);
+        assertThat(columnar.findReferrerIds(10L)).isEmpty();
+    }
+
+    @Test
+    void restoreShouldIndexReferencesAndBirthDatesFromColumns() {
+        PersonColumns columns = PersonColumns.of(List.of(
+                new Person(1L).withBirthDate(LocalDate.of(1980, 5, 15)).withPartnerId(2L)
+                        .withChildrenIds(Set.of(10L, 11L)),
+                new Person(2L).withBirthDate(LocalDate.of(1982, 3, 20)).withPartnerId(1L),
+                new Person(10L).withBirthDate(LocalDate.of(2010, 1, 1)).withParent1Id(1L).withParent2Id(1L),
+                new Person(11L).withBirthDate(LocalDate.of(2012, 6, 15)).withParent1Id(2L)));
+
+        repository.restore(columns, Set.of(11L));
+
+        assertThat(repository.findReferrerIds(1L)).containsExactlyInAnyOrder(2L, 10L);
+        assertThat(repository.findReferrerIds(2L)).containsExactly(1L);
+        assertThat(repository.findReferrerIds(11L)).containsExactly(1L);
+        assertThat(repository.findIdsBornBetween(LocalDate.of(2000, 1, 1), LocalDate.of(2020, 1, 1)))
+                .containsExactly(10L);
+        assertThat(repository.changesSince(0).ids()).isEmpty();
+
+        // Restored references are replaced like saved ones
+        repository.save(new Person(10L).withParent1Id(2L));
+        assertThat(repository.findReferrerIds(1L)).containsExactly(2L);
+        assertThat(repository.findIdsBornBetween(LocalDate.of(2000, 1, 1), LocalDate.of(2020, 1, 1))).isEmpty();
+    }
+
+    @Test
+    void indexesShouldFollowEveryChangeOfTheColumns() {
+        Random random = new Random(42);
+        LocalDate base = LocalDate.of(2000, 1, 1);
+        for (int round = 0; round < 5_000; round++) {
+            long id = random.nextInt(200);
+            // Deleted IDs stay ignored, so deletes are rare enough to keep most persons around
+            if (random.nextInt(250) == 0) {
+                repository.deleteByIds(List.of(id));
+                continue;
+            }
+            Set<Long> children = LongStream.range(0, random.nextInt(4))
+                    .mapToObj(i -> (long) random.nextInt(250))
+                    .collect(Collectors.toSet());
+            repository.save(new Person(id)
+                    .withBirthDate(random.nextBoolean() ? base.plusDays(random.nextInt(30)) : null)
+                    .withParent1Id(random.nextBoolean() ? (long) random.nextInt(250) : null)
+                    .withParent2Id(random.nextBoolean() ? (long) random.nextInt(250) : null)
+                    .withPartnerId(random.nextBoolean() ? (long) random.nextInt(250) : null)
+                    .withChildrenIds(children));
+        }
+        assertThat(repository.count()).isGreaterThan(150);
+
+        for (long id = 0; id < 250; id++) {
+            long referencedId = id;
+            Set<Long> expected = repository.findAll().stream()
+                    .filter(person -> person.getReferencedIds().contains(referencedId))
+                    .map(Person::getId)
+                    .collect(Collectors.toSet());
+            assertThat(repository.findReferrerIds(id)).as("referrers of %d", id).isEqualTo(expected);
+        }
+        // A short range goes through the index, a long one scans the column
+        for (LocalDate until : List.of(base.plusDays(3), base.plusDays(400))) {
+            Set<Long> expected = repository.findAll().stream()
+                    .filter(person -> person.getBirthDate() != null && person.getBirthDate().isAfter(base)
+                            && !person.getBirthDate().isAfter(until))
+                    .map(Person::getId)
+                    .collect(Collectors.toSet());
+            assertThat(repository.findIdsBornBetween(base, until)).isEqualTo(expected);
+        }
+    }
+}
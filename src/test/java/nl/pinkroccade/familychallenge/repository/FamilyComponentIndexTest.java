@@ -0,0 +1,81 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FamilyComponentIndex}.
+ */
+class FamilyComponentIndexTest {
+
+    private PersonRepository     repository;
+    private FamilyComponentIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryPersonRepository();
+        index = new FamilyComponentIndex(repository);
+    }
+
+    @Test
+    void linksShouldMergeFamiliesIncludingReferencedRelatives() {
+        save(new Person(1L).withPartnerId(2L));
+        save(new Person(10L).withParent1Id(1L));
+        save(new Person(20L).withChildrenIds(Set.of(21L, 22L)));
+        save(new Person(30L));
+
+        assertThat(index.findComponent(10L)).containsExactly(1L, 2L, 10L);
+        assertThat(index.findComponent(22L)).containsExactly(20L, 21L, 22L);
+        assertThat(index.findComponent(99L)).isEmpty();
+        assertThat(index.sizeHistogram()).containsExactly(Map.entry(1, 1), Map.entry(3, 2));
+
+        // A child shared by both families joins them
+        save(new Person(40L).withParent1Id(2L).withParent2Id(20L));
+        assertThat(index.findComponent(30L)).containsExactly(30L);
+        assertThat(index.findComponent(21L)).containsExactly(1L, 2L, 10L, 20L, 21L, 22L, 40L);
+        assertThat(index.componentCount()).isEqualTo(2);
+    }
+
+    @Test
+    void staleIndexShouldBeRebuiltWithoutRemovedLinksAndIgnoredIds() {
+        save(new Person(1L).withChildrenIds(Set.of(10L, 11L)));
+        save(new Person(2L).withPartnerId(1L));
+        assertThat(index.findComponent(2L)).containsExactly(1L, 2L, 10L, 11L);
+
+        // Person 2 drops its partner, and child 11 is deleted while person 1 still references it
+        save(new Person(2L));
+        repository.deleteByIds(List.of(11L));
+        index.markStale();
+
+        assertThat(index.findComponent(2L)).containsExactly(2L);
+        assertThat(index.findComponent(1L)).containsExactly(1L, 10L);
+        assertThat(index.findComponent(11L)).isEmpty();
+
+        // Linking continues incrementally after the rebuild
+        save(new Person(10L).withPartnerId(2L));
+        assertThat(index.findComponent(1L)).containsExactly(1L, 2L, 10L);
+    }
+
+    @Test
+    void indexShouldGrowBeyondInitialCapacity() {
+        // One chain of parents and children, plus as many single persons
+        LongStream.range(1, 5_000).forEach(id -> save(new Person(id).withParent1Id(id - 1)));
+        LongStream.range(10_000, 15_000).forEach(id -> save(new Person(id)));
+
+        assertThat(index.findComponent(2_500L)).hasSize(5_000).startsWith(0L, 1L).endsWith(4_999L);
+        assertThat(index.sizeHistogram()).containsExactly(Map.entry(1, 5_000), Map.entry(5_000, 1));
+    }
+
+    private void save(Person person) {
+        // The first query builds the index; linking before that is left to the build
+        index.link(repository.save(person).orElseThrow());
+    }
+}
@@ -0,0 +1,41 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link IgnoredIdSet}.
+ */
+class IgnoredIdSetTest {
+
+    @Test
+    void repositoryViewShouldBeLiveAndReadOnly() {
+        InMemoryPersonRepository repository = new InMemoryPersonRepository();
+        Set<Long> ignoredIds = repository.getIgnoredIds();
+
+        repository.deleteByIds(List.of(7L, -3L));
+
+        assertThat(ignoredIds).containsExactlyInAnyOrder(7L, -3L);
+        assertThat(ignoredIds.contains(8L)).isFalse();
+        assertThatThrownBy(() -> ignoredIds.add(9L)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(ignoredIds::clear).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void denseRangeShouldStayCompact() {
+        IgnoredIdSet ignoredIds = new IgnoredIdSet();
+        for (long id = 1; id <= 1_000_000; id++) {
+            ignoredIds.ignore(id);
+        }
+
+        assertThat(ignoredIds).hasSize(1_000_000);
+        assertThat(ignoredIds.contains(500_000L)).isTrue();
+        // A ConcurrentHashMap key set needs roughly 50 MB for the same IDs
+        assertThat(ignoredIds.sizeInBytes()).isLessThan(1_000_000);
+    }
+}
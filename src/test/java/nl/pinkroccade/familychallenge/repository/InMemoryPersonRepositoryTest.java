@@ -0,0 +1,35 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link InMemoryPersonRepository}.
+ */
+class InMemoryPersonRepositoryTest extends AbstractPersonRepositoryTest {
+
+    @Override
+    protected PersonRepository createRepository() {
+        return new InMemoryPersonRepository();
+    }
+
+    @Test
+    void storedVersionShouldRejectChanges() {
+        repository.save(new Person(1L).withPartnerId(2L).withChildrenIds(Set.of(10L)));
+        Person stored = repository.findById(1L).orElseThrow();
+
+        assertThatThrownBy(() -> stored.setPartnerId(3L)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> stored.addChild(11L)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> stored.getChildrenIds().remove(10L))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        repository.save(stored.copy().withChild(11L));
+        assertThat(repository.findById(1L).orElseThrow().getChildrenIds()).containsExactly(10L, 11L);
+        assertThat(stored.getChildrenIds()).containsExactly(10L);
+    }
+}
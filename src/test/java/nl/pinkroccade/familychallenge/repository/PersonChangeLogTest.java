@@ -0,0 +1,55 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PersonChangeLog}.
+ */
+class PersonChangeLogTest {
+
+    private final PersonChangeLog changeLog = new PersonChangeLog();
+
+    @Test
+    void changesSinceShouldReturnIdsAfterVersion() {
+        changeLog.record(1L);
+        long seen = changeLog.record(2L);
+        changeLog.record(3L);
+        changeLog.record(2L);
+
+        ChangeSet changes = changeLog.changesSince(seen);
+
+        assertThat(changes.version()).isEqualTo(4);
+        assertThat(changes.ids()).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    @Test
+    void concurrentRecordsShouldBeVisibleOnceRecorded() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int thread = 0; thread < 8; thread++) {
+                long first = thread * 10_000L;
+                futures.add(executor.submit(() -> LongStream.range(first, first + 10_000).forEach(id -> {
+                    long version = changeLog.record(id);
+                    // A writer reads its own change, whatever the others are doing
+                    assertThat(changeLog.currentVersion()).isGreaterThanOrEqualTo(version);
+                })));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        ChangeSet changes = changeLog.changesSince(0);
+        assertThat(changes.version()).isEqualTo(80_000);
+        assertThat(changes.ids()).hasSize(80_000);
+    }
+}
@@ -0,0 +1,187 @@
+package nl.pinkroccade.familychallenge.repository;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link WriteAheadLoggedPersonRepository}, {@link PersonWriteAheadLog} and {@link PersonSnapshot}.
+ */
+class WriteAheadLoggedPersonRepositoryTest extends AbstractPersonRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    protected PersonRepository createRepository() {
+        return open(false);
+    }
+
+    @AfterEach
+    void closeLog() throws IOException {
+        ((WriteAheadLoggedPersonRepository) repository).close();
+    }
+
+    @Test
+    void replayShouldRestorePersonsAndIgnoredIds() throws IOException {
+        repository.save(new Person(1L, "Parent", LocalDate.of(1980, 5, 17), 7L, null, 2L, Set.of(10L, 11L, 12L)));
+        repository.save(new Person(2L).withName("Ünïcödé").withPartnerId(1L));
+        repository.save(new Person(3L));
+        repository.deleteByIds(List.of(3L, 4L));
+        repository.save(new Person(3L)); // Ignored, so not logged either
+
+        PersonRepository restored = reopen(false);
+
+        Person parent = restored.findById(1L).orElseThrow();
+        assertThat(parent.getName()).isEqualTo("Parent");
+        assertThat(parent.getBirthDate()).isEqualTo(LocalDate.of(1980, 5, 17));
+        assertThat(parent.getParent1Id()).isEqualTo(7L);
+        assertThat(parent.getParent2Id()).isNull();
+        assertThat(parent.getPartnerId()).isEqualTo(2L);
+        assertThat(parent.getChildrenIds()).containsExactly(10L, 11L, 12L);
+        assertThat(restored.findById(2L).orElseThrow().getName()).isEqualTo("Ünïcödé");
+        assertThat(restored.findAll()).hasSize(2);
+        assertThat(restored.getIgnoredIds()).containsExactlyInAnyOrder(3L, 4L);
+        assertThat(restored.findReferrerIds(10L)).containsExactly(1L);
+    }
+
+    @Test
+    void replayShouldKeepLastVersionOfEachPerson() throws IOException {
+        LongStream.range(0, 5_000).forEach(id -> repository.save(new Person(id).withName("v1")));
+        LongStream.range(0, 5_000).forEach(id -> repository.save(new Person(id).withName("v2")));
+
+        PersonRepository restored = reopen(false);
+
+        assertThat(restored.findAll()).hasSize(5_000).allMatch(person -> "v2".equals(person.getName()));
+    }
+
+    @Test
+    void tornTailShouldBeTruncatedAndAppendedAfter() throws IOException {
+        repository.save(new Person(1L));
+        repository.save(new Person(2L));
+        ((WriteAheadLoggedPersonRepository) repository).close();
+
+        // Simulate a crash halfway through writing the last record
+        Path logFile = segment(1);
+        long size = Files.size(logFile);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+
+        repository = open(false);
+        assertThat(repository.findAll()).extracting(Person::getId).containsExactly(1L);
+
+        repository.save(new Person(3L));
+        PersonRepository restored = reopen(false);
+        assertThat(restored.findAll()).extracting(Person::getId).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    void syncCommitShouldReturnOnceRecordIsOnDisk() throws IOException {
+        ((WriteAheadLoggedPersonRepository) repository).close();
+        repository = open(true);
+        long sizeBefore = Files.size(segment(1));
+
+        repository.save(new Person(1L).withChildrenIds(Set.of(2L, 3L)));
+
+        assertThat(Files.size(segment(1))).isGreaterThan(sizeBefore);
+    }
+
+    @Test
+    void otherFilesShouldBeRejected() throws IOException {
+        Path other = Files.createDirectory(directory.resolve("other"));
+        Files.writeString(other.resolve("persons-00000000000000000001.wal"), "not a log");
+
+        assertThatThrownBy(() -> PersonWriteAheadLog.open(other, Duration.ofMillis(1), 4096, false))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void snapshotShouldRestorePersonsAndMatchesAndReplayOnlyNewerLog() throws IOException {
+        WriteAheadLoggedPersonRepository durable = (WriteAheadLoggedPersonRepository) repository;
+        durable.save(new Person(1L).withName("Before").withChildrenIds(Set.of(10L, 11L)));
+        durable.save(new Person(2L));
+        durable.deleteByIds(List.of(3L));
+        LocalDate today = LocalDate.of(2026, 10, 17);
+
+        durable.snapshot(() -> new MatchSetSnapshot(List.of(1L), today, 0));
+        durable.save(new Person(1L).withName("After").withChildrenIds(Set.of(10L)));
+        durable.deleteByIds(List.of(2L));
+
+        assertThat(segment(1)).doesNotExist();
+        WriteAheadLoggedPersonRepository restored = (WriteAheadLoggedPersonRepository) reopen(false);
+
+        assertThat(restored.findById(1L).orElseThrow().getName()).isEqualTo("After");
+        assertThat(restored.findById(1L).orElseThrow().getChildrenIds()).containsExactly(10L);
+        assertThat(restored.findAll()).extracting(Person::getId).containsExactly(1L);
+        assertThat(restored.getIgnoredIds()).containsExactlyInAnyOrder(2L, 3L);
+        MatchSetSnapshot matches = restored.getRestoredMatches().orElseThrow();
+        assertThat(matches.ids()).containsExactly(1L);
+        assertThat(matches.evaluatedOn()).isEqualTo(today);
+        // Only the log after the snapshot is newer than the restored match set
+        assertThat(restored.changesSince(matches.version()).ids()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void snapshotShouldRestoreIntoColumnarRepository() throws IOException {
+        repository.save(new Person(1L, null, LocalDate.of(2010, 1, 1), 5L, 6L, null, Set.of(7L, 8L)));
+        repository.save(new Person(2L).withName("Two").withChildrenIds(Set.of(9L)));
+        repository.deleteByIds(List.of(4L));
+        WriteAheadLoggedPersonRepository durable = (WriteAheadLoggedPersonRepository) repository;
+        durable.snapshot(() -> new MatchSetSnapshot(List.of(), LocalDate.now(), 0));
+        durable.close();
+
+        repository = new WriteAheadLoggedPersonRepository(new ColumnarPersonRepository(),
+                PersonWriteAheadLog.open(directory, Duration.ofMillis(1), 4096, false));
+
+        Person first = repository.findById(1L).orElseThrow();
+        assertThat(first.getBirthDate()).isEqualTo(LocalDate.of(2010, 1, 1));
+        assertThat(first.getParent2Id()).isEqualTo(6L);
+        assertThat(first.getChildrenIds()).containsExactly(7L, 8L);
+        assertThat(repository.findById(2L).orElseThrow().getName()).isEqualTo("Two");
+        assertThat(repository.isIgnored(4L)).isTrue();
+        assertThat(repository.findReferrerIds(9L)).containsExactly(2L);
+        assertThat(repository.findIdsBornBetween(LocalDate.of(2009, 12, 31), LocalDate.of(2010, 1, 1)))
+                .containsExactly(1L);
+
+        // Restored columns keep growing like regular ones
+        repository.save(new Person(2L).withChildrenIds(Set.of(9L, 10L, 11L)));
+        LongStream.range(100, 2_000).forEach(id -> repository.save(new Person(id)));
+        assertThat(repository.findById(2L).orElseThrow().getChildrenIds()).containsExactly(9L, 10L, 11L);
+        assertThat(repository.findAll()).hasSize(1_902);
+    }
+
+    private Path segment(long generation) {
+        return directory.resolve("persons-%020d.wal".formatted(generation));
+    }
+
+    private PersonRepository reopen(boolean syncCommit) throws IOException {
+        ((WriteAheadLoggedPersonRepository) repository).close();
+        repository = open(syncCommit);
+        return repository;
+    }
+
+    private PersonRepository open(boolean syncCommit) {
+        try {
+            return new WriteAheadLoggedPersonRepository(new InMemoryPersonRepository(),
+                    PersonWriteAheadLog.open(directory, Duration.ofMillis(1), 4096, syncCommit));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package nl.pinkroccade.familychallenge.service;
+
+import nl.pinkroccade.familychallenge.domain.Person;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchScanTaskTest {
+
+    @Test
+    void splitScanShouldReturnMatchesInSnapshotOrder() {
+        Person[] persons = LongStream.rangeClosed(1, 5_000).mapToObj(Person::new).toArray(Person[]::new);
+        List<Long> expected = LongStream.rangeClosed(1, 5_000).filter(id -> id % 3 == 0).boxed().toList();
+
+        try (ForkJoinPool pool = new ForkJoinPool(4)) {
+            List<Long> matches = pool.invoke(
+                    new MatchScanTask(persons, 0, persons.length, 16, chunk -> person -> person.getId() % 3 == 0));
+
+            assertThat(matches).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void emptySnapshotShouldReturnNoMatches() {
+        List<Long> matches = new MatchScanTask(new Person[0], 0, 0, 16, chunk -> person -> true).compute();
+
+        assertThat(matches).isEmpty();
+    }
+}
@@ -0,0 +1,227 @@
+package nl.pinkroccade.familychallenge.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.InMemoryPersonRepository;
+import nl.pinkroccade.familychallenge.repository.MatchSetSnapshot;
+import nl.pinkroccade.familychallenge.util.MutableClock;
+import nl.pinkroccade.familychallenge.util.ServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the day rollover, match set restore, match deltas and match feed of {@link PatternMatchingService}.
+ */
+class PatternMatchingServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+
+    private final MutableClock             clock      = new MutableClock(TODAY);
+    private final InMemoryPersonRepository repository = new InMemoryPersonRepository();
+
+    private PatternMatchingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = createService(new FamilyChallengeProperties());
+    }
+
+    private PatternMatchingService createService(FamilyChallengeProperties properties) {
+        return new ServiceFixture(repository, properties, clock, new SimpleMeterRegistry(), false)
+                .patternMatchingService;
+    }
+
+    @Test
+    void rolloverShouldReportParentsWhoseYoungestChildTurns18() {
+        // Family 1/2: youngest child turns 18 tomorrow; family 11/12: youngest child stays a minor
+        saveFamily(1L, TODAY.minusYears(18).plusDays(1));
+        saveFamily(11L, TODAY.minusYears(10));
+        assertThat(service.findMatches()).extracting(Person::getId).containsExactly(1L, 2L, 11L, 12L);
+
+        clock.setDate(TODAY.plusDays(1));
+
+        assertThat(service.rolloverDay()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(service.findMatches()).extracting(Person::getId).containsExactly(11L, 12L);
+        assertThat(service.rolloverDay()).isEmpty();
+    }
+
+    @Test
+    void findMatchesShouldRollOverWhenScheduleHasNotRun() {
+        saveFamily(1L, TODAY.minusYears(18).plusDays(1));
+        assertThat(service.findMatches()).hasSize(2);
+
+        clock.setDate(TODAY.plusDays(1));
+
+        assertThat(service.findMatches()).isEmpty();
+    }
+
+    @Test
+    void restoredMatchesShouldOnlyBeRefreshedForLaterChanges() {
+        saveFamily(1L, TODAY.minusYears(10));
+        saveFamily(11L, TODAY.minusYears(10));
+        long snapshotVersion = repository.currentVersion();
+        repository.deleteByIds(List.of(13L));
+
+        // Stale on purpose: 1 and 2 did not match, which only a re-scan would notice
+        service.restoreMatches(new MatchSetSnapshot(List.of(11L, 12L), TODAY, snapshotVersion));
+
+        assertThat(service.findMatches()).extracting(Person::getId).isEmpty();
+    }
+
+    @Test
+    void restoredMatchesFromAnotherDayShouldBeRebuilt() {
+        saveFamily(1L, TODAY.minusYears(10));
+
+        service.restoreMatches(new MatchSetSnapshot(List.of(), TODAY.minusDays(1), repository.currentVersion()));
+
+        assertThat(service.findMatches()).extracting(Person::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void deltaShouldListFlipsSinceVersionUntilRebuild() {
+        saveFamily(1L, TODAY.minusYears(10));
+        MatchVersion before = service.matchVersion();
+        saveFamily(11L, TODAY.minusYears(10));
+        repository.deleteByIds(List.of(3L));
+
+        MatchDelta delta = service.matchesChangedSince(before).orElseThrow();
+        assertThat(delta.added()).extracting(Person::getId).containsExactly(11L, 12L);
+        assertThat(delta.removedIds()).containsExactly(1L, 2L);
+        assertThat(delta.version()).isEqualTo(service.matchVersion());
+        assertThat(service.matchesChangedSince(delta.version()).orElseThrow().added()).isEmpty();
+
+        service.rebuildMatches();
+        assertThat(service.matchesChangedSince(delta.version())).isEmpty();
+        assertThat(MatchVersion.parse(service.matchVersion().toString())).isEqualTo(service.matchVersion());
+    }
+
+    @Test
+    void deltaShouldBeUnavailableOnceHistoryIsOverwritten() {
+        FamilyChallengeProperties properties = new FamilyChallengeProperties();
+        properties.setMatchDeltaHistory(2);
+        service = createService(properties);
+        MatchVersion empty = service.matchVersion();
+
+        saveFamily(1L, TODAY.minusYears(10));
+        MatchVersion first = service.matchVersion();
+        saveFamily(11L, TODAY.minusYears(10));
+
+        assertThat(service.matchesChangedSince(empty)).isEmpty();
+        assertThat(service.matchesChangedSince(first).orElseThrow().added())
+                .extracting(Person::getId).containsExactly(11L, 12L);
+    }
+
+    @Test
+    void feedShouldPushChangesAfterSubscribedVersion() throws InterruptedException {
+        service = createService(feedProperties(16));
+        saveFamily(1L, TODAY.minusYears(10));
+        service.refreshMatches();
+        RecordingSink sink = new RecordingSink();
+
+        MatchFeed.Subscription subscription = service.subscribe(sink).orElseThrow();
+        saveFamily(11L, TODAY.minusYears(10));
+        repository.deleteByIds(List.of(3L));
+        service.refreshMatches();
+        service.rebuildMatches();
+
+        MatchChange subscribed = sink.next();
+        assertThat(subscribed.kind()).isEqualTo(MatchChange.Kind.SUBSCRIBED);
+        MatchChange changed = sink.next();
+        assertThat(changed.kind()).isEqualTo(MatchChange.Kind.CHANGED);
+        assertThat(changed.addedIds()).containsExactly(11L, 12L);
+        assertThat(changed.removedIds()).containsExactly(1L, 2L);
+        assertThat(changed.version().version()).isEqualTo(subscribed.version().version() + 4);
+        assertThat(sink.next().kind()).isEqualTo(MatchChange.Kind.RESET);
+
+        subscription.cancel();
+        assertThat(sink.closed.poll(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void slowSubscriberShouldBeDropped() throws InterruptedException {
+        service = createService(feedProperties(2));
+        CountDownLatch unblock = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink() {
+            @Override
+            public void send(MatchChange change) throws IOException {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+        service.subscribe(slow).orElseThrow();
+
+        for (long parentId = 1; parentId < 100; parentId += 10) {
+            saveFamily(parentId, TODAY.minusYears(10));
+            service.refreshMatches();
+        }
+
+        assertThat(slow.closed.poll(5, TimeUnit.SECONDS)).isTrue();
+        unblock.countDown();
+        assertThat(service.findMatches()).hasSize(20);
+    }
+
+    @Test
+    void feedShouldRefuseSubscribersWhenDisabled() {
+        assertThat(service.subscribe(new RecordingSink())).isEmpty();
+    }
+
+    private static FamilyChallengeProperties feedProperties(int bufferSize) {
+        FamilyChallengeProperties properties = new FamilyChallengeProperties();
+        properties.getMatchFeed().setEnabled(true);
+        properties.getMatchFeed().setBufferSize(bufferSize);
+        return properties;
+    }
+
+    private static class RecordingSink implements MatchFeed.Sink {
+
+        final BlockingQueue<MatchChange> changes = new LinkedBlockingQueue<>();
+        final BlockingQueue<Boolean>     closed  = new LinkedBlockingQueue<>();
+
+        MatchChange next() throws InterruptedException {
+            return changes.poll(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void send(MatchChange change) throws IOException {
+            changes.add(change);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close(boolean dropped) {
+            closed.add(dropped);
+        }
+    }
+
+    private void saveFamily(long parentId, LocalDate youngestBirthDate) {
+        long partnerId = parentId + 1;
+        Set<Long> children = Set.of(parentId + 2, parentId + 3, parentId + 4);
+        repository.save(new Person(parentId).withPartnerId(partnerId).withChildrenIds(children));
+        repository.save(new Person(partnerId).withPartnerId(parentId).withChildrenIds(children));
+        repository.save(new Person(parentId + 2).withBirthDate(youngestBirthDate)
+                .withParent1Id(parentId).withParent2Id(partnerId));
+        repository.save(new Person(parentId + 3).withBirthDate(youngestBirthDate.minusYears(2))
+                .withParent1Id(parentId).withParent2Id(partnerId));
+        repository.save(new Person(parentId + 4).withBirthDate(youngestBirthDate.minusYears(4))
+                .withParent1Id(parentId).withParent2Id(partnerId));
+    }
+}
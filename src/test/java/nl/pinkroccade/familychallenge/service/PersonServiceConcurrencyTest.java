@@ -0,0 +1,94 @@
+package nl.pinkroccade.familychallenge.service;
+
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.repository.InMemoryPersonRepository;
+import nl.pinkroccade.familychallenge.util.ServiceFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for concurrent updates of related persons through {@link PersonService}.
+ */
+class PersonServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private final InMemoryPersonRepository repository = new InMemoryPersonRepository();
+
+    private PersonService          service;
+    private PatternMatchingService patternMatchingService;
+
+    @BeforeEach
+    void setUp() {
+        ServiceFixture services = new ServiceFixture(repository, new FamilyChallengeProperties());
+        service = services.personService;
+        patternMatchingService = services.patternMatchingService;
+    }
+
+    @Test
+    void concurrentChildrenShouldAllBeLinkedToSharedParents() throws Exception {
+        service.importPersons(List.of(new Person(1L).withPartnerId(2L), new Person(2L).withPartnerId(1L)));
+
+        runConcurrently(LongStream.range(100, 2_100).mapToObj(childId ->
+                () -> service.importPersons(List.of(new Person(childId).withParent1Id(1L).withParent2Id(2L)))));
+
+        assertThat(repository.findById(1L).orElseThrow().getChildrenIds()).hasSize(2_000);
+        assertThat(repository.findById(2L).orElseThrow().getChildrenIds()).hasSize(2_000);
+    }
+
+    @Test
+    void concurrentDeletesShouldCleanUpEveryReferrer() throws Exception {
+        service.importPersons(List.of(new Person(1L)));
+
+        runConcurrently(LongStream.range(100, 1_100).mapToObj(id -> id % 2 == 0
+                ? () -> service.importPersons(List.of(new Person(id).withPartnerId(1L)))
+                : () -> service.deletePersons(List.of(id))));
+        service.deletePersons(List.of(1L));
+
+        assertThat(repository.findAll()).hasSize(500).allMatch(person -> person.getPartnerId() == null);
+    }
+
+    @Test
+    void concurrentWritesToDisjointFamiliesShouldAllBeMatched() throws Exception {
+        LocalDate minor = LocalDate.now().minusYears(10);
+        // Every record is its own request, so the refreshes of the writers overlap and get combined. Records
+        // replace the stored ones, so each is complete and the family is the same in any order.
+        runConcurrently(LongStream.range(0, 300).boxed().flatMap(family -> {
+            long parent1 = family * 10;
+            long parent2 = parent1 + 1;
+            Set<Long> children = Set.of(parent1 + 2, parent1 + 3, parent1 + 4);
+            return Stream.of(
+                    new Person(parent1).withPartnerId(parent2).withChildrenIds(children),
+                    new Person(parent2).withPartnerId(parent1).withChildrenIds(children),
+                    new Person(parent1 + 2).withBirthDate(minor).withParent1Id(parent1).withParent2Id(parent2),
+                    new Person(parent1 + 3).withBirthDate(minor.minusYears(2)).withParent1Id(parent1)
+                            .withParent2Id(parent2),
+                    new Person(parent1 + 4).withBirthDate(minor.minusYears(4)).withParent1Id(parent1)
+                            .withParent2Id(parent2));
+        }).map(person -> () -> service.importPersons(List.of(person))));
+
+        assertThat(patternMatchingService.getMatchCount()).isEqualTo(600);
+        assertThat(repository.changesSince(0).ids()).isEmpty();
+    }
+
+    private void runConcurrently(Stream<Runnable> tasks) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = tasks.<Future<?>>map(executor::submit).toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+}
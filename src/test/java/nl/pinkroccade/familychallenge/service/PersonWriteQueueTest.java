@@ -0,0 +1,126 @@
+package nl.pinkroccade.familychallenge.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.domain.Person;
+import nl.pinkroccade.familychallenge.dto.PersonReferenceDTO;
+import nl.pinkroccade.familychallenge.dto.PersonRequestDTO;
+import nl.pinkroccade.familychallenge.repository.ColumnarPersonRepository;
+import nl.pinkroccade.familychallenge.util.ServiceFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link PersonWriteQueue} with the single writer enabled.
+ */
+class PersonWriteQueueTest {
+
+    /* ID whose record fails with an Error instead of an exception */
+    private static final long BROKEN_ID = 9_999L;
+
+    private final ColumnarPersonRepository repository = new ColumnarPersonRepository() {
+        @Override
+        public Optional<Person> save(Person person) {
+            if (person.getId() == BROKEN_ID) {
+                throw new StackOverflowError();
+            }
+            return super.save(person);
+        }
+    };
+
+    private PersonWriteQueue queue;
+    private MeterRegistry    meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        FamilyChallengeProperties properties = new FamilyChallengeProperties();
+        properties.getSingleWriter().setEnabled(true);
+        properties.getSingleWriter().setQueueCapacity(16);
+        ServiceFixture services = new ServiceFixture(repository, properties);
+        meterRegistry = services.meterRegistry;
+        queue = new PersonWriteQueue(services.personService, services.patternMatchingService, properties,
+                meterRegistry);
+        queue.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.stop();
+    }
+
+    @Test
+    void concurrentRequestsShouldBeAppliedAndMatchedBeforeReturning() throws Exception {
+        queue.apply(person(1L, null, null, 2L));
+        queue.apply(person(2L, null, null, 1L));
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = LongStream.range(100, 1_100)
+                    .<Future<?>>mapToObj(id -> executor.submit(() -> queue.apply(person(id, 1L, 2L, null))))
+                    .toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(repository.findById(1L).orElseThrow().getChildrenIds()).hasSize(1_000);
+        assertThat(repository.findById(2L).orElseThrow().getChildrenIds()).hasSize(1_000);
+        // Applied and refreshed by the writer, so nothing is left for the caller to refresh
+        assertThat(repository.changesSince(0).ids()).isEmpty();
+    }
+
+    @Test
+    void everyQueuedRecordShouldBeTimed() {
+        queue.apply(person(1L, null, null, null));
+        queue.apply(person(2L, null, null, null));
+
+        assertThat(meterRegistry.get("family.person.process").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("family.writer.batch").timer().count()).isBetween(1L, 2L);
+    }
+
+    @Test
+    void failedRecordShouldOnlyFailItsOwnRequest() {
+        assertThatThrownBy(() -> queue.apply(person(Long.MIN_VALUE, null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        queue.apply(person(1L, null, null, null));
+        assertThat(repository.findById(1L)).isPresent();
+    }
+
+    @Test
+    void recordFailingWithErrorShouldNotStopWriter() {
+        assertThatThrownBy(() -> queue.apply(person(BROKEN_ID, null, null, null)))
+                .hasCauseInstanceOf(StackOverflowError.class);
+
+        queue.apply(person(1L, null, null, null));
+        assertThat(repository.findById(1L)).isPresent();
+    }
+
+    @Test
+    void stoppedQueueShouldRejectRequests() throws InterruptedException {
+        queue.stop();
+
+        assertThatThrownBy(() -> queue.apply(person(1L, null, null, null)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static PersonRequestDTO person(long id, Long parent1Id, Long parent2Id, Long partnerId) {
+        return new PersonRequestDTO(id, null, LocalDate.of(2015, 1, 1), reference(parent1Id), reference(parent2Id),
+                reference(partnerId), null);
+    }
+
+    private static PersonReferenceDTO reference(Long id) {
+        return id != null ? new PersonReferenceDTO(id) : null;
+    }
+}
@@ -0,0 +1,54 @@
+package nl.pinkroccade.familychallenge.service.strategy.age;
+
+import nl.pinkroccade.familychallenge.util.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link AgeCutoff}.
+ */
+class AgeCutoffTest {
+
+    @Test
+    void isMinorShouldAgreeWithPeriodAroundLeapDays() {
+        LocalDate firstDay = LocalDate.of(2023, 12, 1);
+        for (LocalDate today = firstDay; today.isBefore(firstDay.plusYears(2)); today = today.plusDays(1)) {
+            AgeCutoff.Day day = new AgeCutoff(clockAt(today)).current();
+            for (LocalDate birthDate = today.minusYears(18).minusDays(3);
+                 birthDate.isBefore(today.minusYears(18).plusDays(3));
+                 birthDate = birthDate.plusDays(1)) {
+                boolean expected = Period.between(birthDate, today).getYears() < 18;
+
+                assertThat(day.isMinor(birthDate.toEpochDay()))
+                        .as("born %s, today %s", birthDate, today)
+                        .isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void rolloverShouldOnlyMoveOnNewDay() {
+        MutableClock clock = new MutableClock(LocalDate.of(2026, 2, 28));
+        AgeCutoff ageCutoff = new AgeCutoff(clock);
+
+        assertThat(ageCutoff.isStale()).isFalse();
+        assertThat(ageCutoff.rollover()).isNull();
+
+        clock.setDate(LocalDate.of(2026, 3, 1));
+        assertThat(ageCutoff.isStale()).isTrue();
+
+        AgeCutoff.Day previous = ageCutoff.rollover();
+        assertThat(previous.adultCutoff()).isEqualTo(LocalDate.of(2008, 2, 28));
+        assertThat(ageCutoff.current().adultCutoff()).isEqualTo(LocalDate.of(2008, 3, 1));
+        assertThat(ageCutoff.isStale()).isFalse();
+    }
+
+    private static Clock clockAt(LocalDate date) {
+        return new MutableClock(date);
+    }
+}
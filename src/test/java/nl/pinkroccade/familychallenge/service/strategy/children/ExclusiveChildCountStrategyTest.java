@@ -2,6 +2,7 @@ package nl.pinkroccade.familychallenge.service.strategy.children;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,6 +13,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -67,6 +69,27 @@ class ExclusiveChildCountStrategyTest {
         assertThat(result.valid()).isFalse();
     }
 
+    @Test
+    void contextShouldLookUpPartnerAndEachChildOnce() {
+        Person person = new Person(1L).withPartnerId(2L).withChildrenIds(Set.of(10L, 11L, 12L));
+        Person partner = new Person(2L).withPartnerId(1L).withChildrenIds(Set.of(10L, 11L, 12L, 13L));
+        when(repository.findById(2L)).thenReturn(Optional.of(partner));
+        when(repository.findById(10L)).thenReturn(Optional.of(new Person(10L).withParent1Id(1L).withParent2Id(2L)));
+        when(repository.findById(11L)).thenReturn(Optional.of(new Person(11L).withParent1Id(1L).withParent2Id(2L)));
+        when(repository.findById(12L)).thenReturn(Optional.of(new Person(12L).withParent1Id(1L).withParent2Id(2L)));
+        MatchContext context = new MatchContext(repository).reset(person);
+
+        assertThat(strategy.hasValidChildren(context)).isFalse(); // Partner has a 4th child
+        partner.removeChild(13L);
+        assertThat(strategy.hasValidChildren(context)).isTrue();
+        assertThat(context.child(0).getId()).isEqualTo(10L);
+
+        verify(repository).findById(2L);
+        verify(repository).findById(10L);
+        verify(repository).findById(11L);
+        verify(repository).findById(12L);
+    }
+
     @Test
     void personHas2ChildrenShouldNotBeValid() {
         Person person = new Person(1L).withPartnerId(2L).withChildrenIds(Set.of(10L, 11L));
@@ -2,6 +2,7 @@ package nl.pinkroccade.familychallenge.service.strategy.partner;
 
 import nl.pinkroccade.familychallenge.domain.Person;
 import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.strategy.MatchContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -53,5 +55,17 @@ class ExistenceBasedPartnerValidationTest {
         boolean result = strategy.hasValidPartner(person, repository);
         assertThat(result).isTrue();
     }
+
+    @Test
+    void contextShouldShareResolvedPartner() {
+        when(repository.findById(2L)).thenReturn(Optional.of(new Person(2L)));
+        MatchContext context = new MatchContext(repository).reset(new Person(1L).withPartnerId(2L));
+
+        assertThat(strategy.hasValidPartner(context)).isTrue();
+        assertThat(context.partner().getId()).isEqualTo(2L);
+        verify(repository).findById(2L);
+
+        assertThat(strategy.hasValidPartner(context.reset(new Person(3L)))).isFalse();
+    }
 }
 
@@ -0,0 +1,50 @@
+package nl.pinkroccade.familychallenge.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link PendingChanges}.
+ */
+class PendingChangesTest {
+
+    private final List<List<Long>> batches = new ArrayList<>();
+
+    @Test
+    void changesQueuedBeforeSendShouldBeSentInOneBatch() {
+        PendingChanges changes = new PendingChanges(batches::add);
+        changes.queue(List.of(1L));
+        changes.queue(List.of(2L, 3L));
+        changes.queue(List.of(1L));
+
+        changes.send();
+        // The changes of the second writer were already sent by the first
+        changes.send();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.getFirst()).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    void failedSendShouldKeepChangesQueued() {
+        PendingChanges changes = new PendingChanges(batch -> {
+            if (batches.isEmpty() && batch.contains(1L)) {
+                batches.add(List.of());
+                throw new IllegalStateException("Peer unreachable");
+            }
+            batches.add(batch);
+        });
+        changes.queue(List.of(1L));
+
+        assertThatThrownBy(changes::send).isInstanceOf(IllegalStateException.class);
+        changes.queue(List.of(2L));
+        changes.send();
+
+        assertThat(batches.getLast()).containsExactlyInAnyOrder(1L, 2L);
+    }
+}
@@ -0,0 +1,56 @@
+package nl.pinkroccade.familychallenge.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ShardRing}.
+ */
+class ShardRingTest {
+
+    private static final List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void everyNodeShouldComputeTheSameOwners() {
+        ShardRing ring = new ShardRing(NODES, 128);
+        ShardRing other = new ShardRing(NODES, 128);
+
+        assertThat(LongStream.range(0, 10_000)).allMatch(id -> ring.ownerOf(id).equals(other.ownerOf(id)));
+    }
+
+    @Test
+    void idsShouldBeSpreadEvenly() {
+        ShardRing ring = new ShardRing(NODES, 128);
+        Map<String, Integer> counts = new HashMap<>();
+        LongStream.range(0, 30_000).forEach(id -> counts.merge(ring.ownerOf(id), 1, Integer::sum));
+
+        assertThat(counts).containsOnlyKeys(NODES);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(7_000, 13_000));
+    }
+
+    @Test
+    void addingNodeShouldOnlyMoveIdsToIt() {
+        ShardRing before = new ShardRing(NODES, 128);
+        ShardRing after = new ShardRing(List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"),
+                128);
+
+        long moved = LongStream.range(0, 40_000)
+                .filter(id -> !before.ownerOf(id).equals(after.ownerOf(id)))
+                .peek(id -> assertThat(after.ownerOf(id)).isEqualTo("http://d:8080"))
+                .count();
+        // About a quarter of the IDs move to the new node, nothing moves between the existing ones
+        assertThat(moved).isBetween(6_000L, 14_000L);
+    }
+
+    @Test
+    void ringWithoutNodesShouldBeRejected() {
+        assertThatThrownBy(() -> new ShardRing(List.of(), 128)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
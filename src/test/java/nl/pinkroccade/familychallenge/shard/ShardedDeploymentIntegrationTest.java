@@ -0,0 +1,167 @@
+package nl.pinkroccade.familychallenge.shard;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.pinkroccade.familychallenge.FamilyChallengeApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs three sharded instances in one JVM and checks that they together behave like a single one.
+ *
+ * <p>The family is laid out so that the parents and children are stored on different instances, whatever
+ * ports the instances get.</p>
+ */
+class ShardedDeploymentIntegrationTest {
+
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static final List<String>                         nodes    = new ArrayList<>();
+
+    private final HttpClient   httpClient   = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    static void startInstances() throws IOException {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort());
+            }
+        }
+        ports.forEach(port -> nodes.add("http://localhost:" + port));
+        for (int i = 0; i < ports.size(); i++) {
+            contexts.add(new SpringApplicationBuilder(FamilyChallengeApplication.class).run(
+                    "--server.port=" + ports.get(i),
+                    "--family-challenge.shard.enabled=true",
+                    "--family-challenge.shard.nodes=" + String.join(",", nodes),
+                    "--family-challenge.shard.self=" + nodes.get(i),
+                    "--family-challenge.partner-validation=nl.pinkroccade.familychallenge.service.strategy.partner.ReferenceBasedPartnerValidation",
+                    "--family-challenge.child-count=nl.pinkroccade.familychallenge.service.strategy.children.ExclusiveChildCountStrategy",
+                    "--family-challenge.age-validation=nl.pinkroccade.familychallenge.service.strategy.age.PessimisticAgeValidation",
+                    "--family-challenge.cascade-delete=nl.pinkroccade.familychallenge.service.strategy.cleanup.CascadeDeleteStrategy",
+                    "--logging.level.nl.pinkroccade.familychallenge=INFO"
+            ));
+        }
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void familySpreadOverInstancesShouldMatchEverywhere() throws Exception {
+        ShardRing ring = new ShardRing(nodes, 128);
+        long parent1 = firstIdOwnedBy(ring, nodes.get(0), Set.of());
+        long parent2 = firstIdOwnedBy(ring, nodes.get(1), Set.of(parent1));
+        long child1 = firstIdOwnedBy(ring, nodes.get(2), Set.of(parent1, parent2));
+        long child2 = firstIdOwnedBy(ring, nodes.get(0), Set.of(parent1, parent2, child1));
+        long child3 = firstIdOwnedBy(ring, nodes.get(1), Set.of(parent1, parent2, child1, child2));
+        // Matches are ordered by ID, which depends on the ports the instances got
+        List<Long> parents = Stream.of(parent1, parent2).sorted().toList();
+
+        // Everything is posted to the third instance, which forwards the records it does not own
+        String entry = nodes.get(2);
+        post(entry, person(parent1, "1980-05-15", parent2, null, null));
+        post(entry, person(parent2, "1982-03-20", parent1, null, null));
+        post(entry, person(child1, "2010-01-01", null, parent1, parent2));
+        post(entry, person(child2, "2012-06-15", null, parent1, parent2));
+        HttpResponse<String> last = post(entry, person(child3, "2020-12-25", null, parent1, parent2));
+
+        assertThat(last.statusCode()).isEqualTo(200);
+        assertThat(ids(last.body())).containsExactlyElementsOf(parents);
+        for (String node : nodes) {
+            assertThat(ids(getMatches(node, "").body())).containsExactlyElementsOf(parents);
+        }
+
+        // Pages are merged over the instances
+        HttpResponse<String> firstPage = getMatches(nodes.get(1), "?limit=1");
+        assertThat(ids(firstPage.body())).containsExactly(parents.get(0));
+        assertThat(firstPage.headers().firstValue("Link")).isPresent();
+
+        // A child dropping a parent on its own instance is seen by the parents on the others
+        post(nodes.get(0), person(child1, "2010-01-01", null, parent1, null));
+        assertThat(getMatches(nodes.get(1), "").statusCode()).isEqualTo(444);
+
+        post(nodes.get(1), person(child1, "2010-01-01", null, parent1, parent2));
+        assertThat(ids(getMatches(nodes.get(0), "").body())).containsExactlyElementsOf(parents);
+
+        // Deleting a child on any instance removes it from the family everywhere
+        HttpResponse<String> deleted = httpClient.send(
+                HttpRequest.newBuilder(URI.create(nodes.get(0) + "/api/v1/people"))
+                        .method("DELETE", HttpRequest.BodyPublishers.ofString("[" + child3 + "]"))
+                        .header("Content-Type", "application/json")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(deleted.statusCode()).isEqualTo(200);
+        for (String node : nodes) {
+            assertThat(getMatches(node, "").statusCode()).isEqualTo(444);
+        }
+        // The deleted ID is ignored on every instance
+        assertThat(post(nodes.get(2), person(child3, "2020-12-25", null, parent1, parent2)).statusCode())
+                .isEqualTo(444);
+    }
+
+    private static long firstIdOwnedBy(ShardRing ring, String node, Set<Long> taken) {
+        return LongStream.iterate(100, id -> id + 1)
+                .filter(id -> !taken.contains(id) && ring.ownerOf(id).equals(node))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static String person(long id, String birthDate, Long partner, Long parent1, Long parent2) {
+        StringBuilder json = new StringBuilder("{\"id\": " + id + ", \"name\": \"Person " + id
+                + "\", \"birthDate\": \"" + birthDate + "\"");
+        if (partner != null) {
+            json.append(", \"partner\": {\"id\": ").append(partner).append('}');
+        }
+        if (parent1 != null) {
+            json.append(", \"parent1\": {\"id\": ").append(parent1).append('}');
+        }
+        if (parent2 != null) {
+            json.append(", \"parent2\": {\"id\": ").append(parent2).append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private HttpResponse<String> post(String node, String body) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create(node + "/api/v1/people"))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .header("Content-Type", "application/json")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> getMatches(String node, String query) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create(node + "/api/v1/people/matches" + query)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Long> ids(String body) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (JsonNode person : objectMapper.readTree(body)) {
+            assertThat(seen.add(person.get("id").asLong())).isTrue();
+            ids.add(person.get("id").asLong());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,38 @@
+package nl.pinkroccade.familychallenge.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * UTC clock standing at the start of a date that tests can move.
+ */
+public class MutableClock extends Clock {
+
+    private volatile Instant instant;
+
+    public MutableClock(LocalDate date) {
+        setDate(date);
+    }
+
+    public void setDate(LocalDate date) {
+        instant = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
@@ -0,0 +1,78 @@
+package nl.pinkroccade.familychallenge.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.pinkroccade.familychallenge.config.FamilyChallengeProperties;
+import nl.pinkroccade.familychallenge.metrics.TimedAgeValidationStrategy;
+import nl.pinkroccade.familychallenge.metrics.TimedChildCountStrategy;
+import nl.pinkroccade.familychallenge.metrics.TimedDataCleanupStrategy;
+import nl.pinkroccade.familychallenge.metrics.TimedPartnerValidationStrategy;
+import nl.pinkroccade.familychallenge.repository.FamilyComponentIndex;
+import nl.pinkroccade.familychallenge.repository.PersonRepository;
+import nl.pinkroccade.familychallenge.service.MatchFeed;
+import nl.pinkroccade.familychallenge.service.PatternMatchingService;
+import nl.pinkroccade.familychallenge.service.PersonLockStripes;
+import nl.pinkroccade.familychallenge.service.PersonService;
+import nl.pinkroccade.familychallenge.service.strategy.age.AgeCutoff;
+import nl.pinkroccade.familychallenge.service.strategy.age.AgeValidationStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.age.PessimisticAgeValidation;
+import nl.pinkroccade.familychallenge.service.strategy.children.ChildCountStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.children.InclusiveChildCountStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.cleanup.CascadeDeleteStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.cleanup.DataCleanupStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.partner.PartnerValidationStrategy;
+import nl.pinkroccade.familychallenge.service.strategy.partner.ReferenceBasedPartnerValidation;
+import nl.pinkroccade.familychallenge.shard.ShardRouter;
+import org.springframework.web.client.RestClient;
+
+import java.time.Clock;
+
+/**
+ * The services wired by hand, without Spring, with the default strategies from application.properties.
+ *
+ * <p>Tests and benchmarks that need the services on a repository of their own create them here, so a new
+ * collaborator only has to be added in one place.</p>
+ */
+public final class ServiceFixture {
+
+    public final FamilyChallengeProperties properties;
+    public final MeterRegistry             meterRegistry;
+    public final PatternMatchingService    patternMatchingService;
+    public final PersonService             personService;
+
+    /**
+     * Wires the services on the system clock with a fresh meter registry.
+     */
+    public ServiceFixture(PersonRepository repository, FamilyChallengeProperties properties) {
+        this(repository, properties, Clock.systemDefaultZone(), new SimpleMeterRegistry(), false);
+    }
+
+    /**
+     * @param clock         the clock the age checks use
+     * @param meterRegistry the registry of the service timers
+     * @param timed         whether the strategies are wrapped in their timers, as in the running application
+     */
+    public ServiceFixture(PersonRepository repository, FamilyChallengeProperties properties, Clock clock,
+                          MeterRegistry meterRegistry, boolean timed) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        AgeCutoff ageCutoff = new AgeCutoff(clock);
+        PartnerValidationStrategy partnerValidation = new ReferenceBasedPartnerValidation();
+        ChildCountStrategy childCount = new InclusiveChildCountStrategy();
+        AgeValidationStrategy ageValidation = new PessimisticAgeValidation(ageCutoff);
+        DataCleanupStrategy cleanup = new CascadeDeleteStrategy();
+        if (timed) {
+            partnerValidation = new TimedPartnerValidationStrategy(partnerValidation, meterRegistry);
+            childCount = new TimedChildCountStrategy(childCount, meterRegistry);
+            ageValidation = new TimedAgeValidationStrategy(ageValidation, meterRegistry);
+            cleanup = new TimedDataCleanupStrategy(cleanup, meterRegistry);
+        }
+
+        this.patternMatchingService = new PatternMatchingService(repository, partnerValidation, childCount,
+                ageValidation, ageCutoff, properties, new MatchFeed(properties, meterRegistry), meterRegistry);
+        this.personService = new PersonService(repository, patternMatchingService, cleanup,
+                new PersonLockStripes(properties), new FamilyComponentIndex(repository),
+                new ShardRouter(properties, RestClient.builder()), meterRegistry);
+    }
+}